@@ -0,0 +1,114 @@
+/*
+ *
+ *  Copyright [ 2020 - 2024 ] Matthew Buckton
+ *  Copyright [ 2024 - 2025 ] MapsMessaging B.V.
+ *
+ *  Licensed under the Apache License, Version 2.0 with the Commons Clause
+ *  (the "License"); you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at:
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *      https://commonsclause.com/
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.mapsmessaging.jsonquery.jmh;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+import java.util.Random;
+
+/**
+ * Deterministic input documents shared by the benchmarks, so runs are comparable across builds.
+ */
+final class BenchmarkData {
+
+  private static final String[] FIRST_NAMES = {"Chris", "Joe", "Emily", "Sarah", "Oliver", "Mia", "Noah", "Ava"};
+  private static final String[] LAST_NAMES = {"Smith", "Jones", "Brown", "Taylor", "Wilson", "Evans"};
+  private static final String[] STATES = {"Alaska", "Texas", "Ohio", "Utah", "Maine", "Iowa", "Oregon", "Nevada"};
+  private static final String[] WORDS = {"alpha", "bravo", "charlie", "delta", "echo", "foxtrot", "golf"};
+
+  private static final long SEED = 0x5EEDL;
+
+  private BenchmarkData() {
+  }
+
+  static JsonArray people(int count) {
+    Random random = new Random(SEED);
+    JsonArray array = new JsonArray(count);
+    for (int i = 0; i < count; i++) {
+      array.add(person(i, random));
+    }
+    return array;
+  }
+
+  static JsonObject person() {
+    return person(0, new Random(SEED));
+  }
+
+  static JsonArray numbers(int count) {
+    Random random = new Random(SEED);
+    JsonArray array = new JsonArray(count);
+    for (int i = 0; i < count; i++) {
+      array.add(1 + random.nextInt(count / 2 + 1));
+    }
+    return array;
+  }
+
+  static JsonArray strings(int count) {
+    Random random = new Random(SEED);
+    JsonArray array = new JsonArray(count);
+    for (int i = 0; i < count; i++) {
+      array.add(WORDS[random.nextInt(WORDS.length)]);
+    }
+    return array;
+  }
+
+  static JsonArray nested(int count) {
+    Random random = new Random(SEED);
+    JsonArray array = new JsonArray(count);
+    for (int i = 0; i < count; i++) {
+      JsonArray inner = new JsonArray(4);
+      for (int j = 0; j < 4; j++) {
+        inner.add(random.nextInt(1000));
+      }
+      array.add(inner);
+    }
+    return array;
+  }
+
+  static JsonObject counters(int count) {
+    Random random = new Random(SEED);
+    JsonObject object = new JsonObject();
+    for (int i = 0; i < count; i++) {
+      object.addProperty("counter" + i, random.nextInt(10_000));
+    }
+    return object;
+  }
+
+  private static JsonObject person(int id, Random random) {
+    JsonObject person = new JsonObject();
+    person.addProperty("id", id);
+    person.addProperty("first", FIRST_NAMES[random.nextInt(FIRST_NAMES.length)]);
+    person.addProperty("last", LAST_NAMES[random.nextInt(LAST_NAMES.length)]);
+    person.addProperty("age", 18 + random.nextInt(60));
+    person.addProperty("score", Math.round(random.nextDouble() * 10_000) / 100.0);
+    person.addProperty("delta", random.nextInt(200) - 100);
+    person.addProperty("active", random.nextBoolean());
+    person.addProperty("zip", Integer.toString(10_000 + random.nextInt(89_999)));
+    person.addProperty("text", WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)]
+        + " " + WORDS[random.nextInt(WORDS.length)]);
+
+    JsonObject address = new JsonObject();
+    address.addProperty("state", STATES[random.nextInt(STATES.length)]);
+    address.addProperty("city", "City" + random.nextInt(100));
+    person.add("address", address);
+    return person;
+  }
+}
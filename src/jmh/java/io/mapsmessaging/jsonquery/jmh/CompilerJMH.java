@@ -0,0 +1,55 @@
+/*
+ *
+ *  Copyright [ 2020 - 2024 ] Matthew Buckton
+ *  Copyright [ 2024 - 2025 ] MapsMessaging B.V.
+ *
+ *  Licensed under the Apache License, Version 2.0 with the Commons Clause
+ *  (the "License"); you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at:
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *      https://commonsclause.com/
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.mapsmessaging.jsonquery.jmh;
+
+import com.google.gson.JsonElement;
+import io.mapsmessaging.jsonquery.JsonQueryCompiler;
+import io.mapsmessaging.jsonquery.JsonQueryParser;
+import io.mapsmessaging.jsonquery.parser.JsonQueryParseException;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CompilerJMH {
+
+  @Param({"short", "long"})
+  public String query;
+
+  private JsonQueryCompiler compiler;
+  private JsonElement ast;
+
+  @Setup
+  public void setup() throws JsonQueryParseException {
+    compiler = JsonQueryCompiler.createDefault();
+    ast = JsonQueryParser.parse("short".equals(query) ? ParserJMH.SHORT_QUERY : ParserJMH.LONG_QUERY);
+  }
+
+  @Benchmark
+  public Function<JsonElement, JsonElement> compile() {
+    return compiler.compile(ast);
+  }
+}
@@ -0,0 +1,194 @@
+/*
+ *
+ *  Copyright [ 2020 - 2024 ] Matthew Buckton
+ *  Copyright [ 2024 - 2025 ] MapsMessaging B.V.
+ *
+ *  Licensed under the Apache License, Version 2.0 with the Commons Clause
+ *  (the "License"); you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at:
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *      https://commonsclause.com/
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.mapsmessaging.jsonquery.jmh;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import io.mapsmessaging.jsonquery.JsonQueryCompiler;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Steady-state {@code apply} cost of every built-in function. Each registered name has one
+ * representative query and input; setup fails when a registered function has no sample or is not
+ * listed in the {@code function} parameter, so new functions cannot silently drop out of the
+ * benchmark.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FunctionJMH {
+
+  private static final int ARRAY_SIZE = 100;
+
+  private static final Map<String, Sample> SAMPLES = new HashMap<>();
+
+  static {
+    sample("abs", "[\"abs\", [\"get\", \"delta\"]]", Input.RECORD);
+    sample("add", "[\"add\", [\"get\", \"age\"], [\"get\", \"score\"]]", Input.RECORD);
+    sample("and", "[\"and\", [\"get\", \"active\"], [\"gt\", [\"get\", \"age\"], 21]]", Input.RECORD);
+    sample("array", "[\"array\", [\"get\", \"first\"], [\"get\", \"age\"], 1]", Input.RECORD);
+    sample("average", "[\"average\"]", Input.NUMBERS);
+    sample("divide", "[\"divide\", [\"get\", \"score\"], [\"get\", \"age\"]]", Input.RECORD);
+    sample("eq", "[\"eq\", [\"get\", \"address\", \"state\"], \"Alaska\"]", Input.RECORD);
+    sample("exists", "[\"exists\", [\"get\", \"address\", \"city\"]]", Input.RECORD);
+    sample("filter", "[\"filter\", [\"gt\", [\"get\", \"age\"], 40]]", Input.RECORDS);
+    sample("flatten", "[\"flatten\"]", Input.NESTED);
+    sample("get", "[\"get\", \"address\", \"state\"]", Input.RECORD);
+    sample("groupBy", "[\"groupBy\", [\"get\", \"address\", \"state\"]]", Input.RECORDS);
+    sample("gt", "[\"gt\", [\"get\", \"age\"], 40]", Input.RECORD);
+    sample("gte", "[\"gte\", [\"get\", \"age\"], 40]", Input.RECORD);
+    sample("if", "[\"if\", [\"get\", \"active\"], [\"get\", \"first\"], [\"get\", \"last\"]]", Input.RECORD);
+    sample("in", "[\"in\", [\"get\", \"address\", \"state\"], [\"array\", \"Alaska\", \"Texas\", \"Ohio\"]]", Input.RECORD);
+    sample("join", "[\"join\", \", \"]", Input.STRINGS);
+    sample("keyBy", "[\"keyBy\", [\"get\", \"id\"]]", Input.RECORDS);
+    sample("keys", "[\"keys\"]", Input.RECORD);
+    sample("limit", "[\"limit\", 10]", Input.RECORDS);
+    sample("lt", "[\"lt\", [\"get\", \"age\"], 40]", Input.RECORD);
+    sample("lte", "[\"lte\", [\"get\", \"age\"], 40]", Input.RECORD);
+    sample("map", "[\"map\", [\"get\", \"age\"]]", Input.RECORDS);
+    sample("mapKeys", "[\"mapKeys\", [\"add\", \"#\", [\"get\"]]]", Input.COUNTERS);
+    sample("mapObject", "[\"mapObject\", [\"object\", {\"key\": [\"get\", \"key\"], \"value\": [\"get\", \"value\"]}]]", Input.COUNTERS);
+    sample("mapValues", "[\"mapValues\", [\"multiply\", [\"get\"], 2]]", Input.COUNTERS);
+    sample("match", "[\"match\", [\"get\", \"text\"], \"[a-z]+\"]", Input.RECORD);
+    sample("matchAll", "[\"matchAll\", [\"get\", \"text\"], \"[a-z]+\"]", Input.RECORD);
+    sample("max", "[\"max\"]", Input.NUMBERS);
+    sample("min", "[\"min\"]", Input.NUMBERS);
+    sample("mod", "[\"mod\", [\"get\", \"age\"], 7]", Input.RECORD);
+    sample("multiply", "[\"multiply\", [\"get\", \"age\"], [\"get\", \"score\"]]", Input.RECORD);
+    sample("ne", "[\"ne\", [\"get\", \"address\", \"state\"], \"Alaska\"]", Input.RECORD);
+    sample("not", "[\"not\", [\"get\", \"active\"]]", Input.RECORD);
+    sample("not in", "[\"not in\", [\"get\", \"address\", \"state\"], [\"array\", \"Alaska\", \"Texas\", \"Ohio\"]]", Input.RECORD);
+    sample("number", "[\"number\", [\"get\", \"zip\"]]", Input.RECORD);
+    sample("object", "[\"object\", {\"name\": [\"get\", \"first\"], \"age\": [\"get\", \"age\"]}]", Input.RECORD);
+    sample("or", "[\"or\", [\"get\", \"active\"], [\"gt\", [\"get\", \"age\"], 60]]", Input.RECORD);
+    sample("pick", "[\"pick\", [\"get\", \"first\"], [\"get\", \"age\"]]", Input.RECORD);
+    sample("pipe", "[\"pipe\", [\"get\", \"address\"], [\"get\", \"state\"]]", Input.RECORD);
+    sample("pow", "[\"pow\", [\"get\", \"age\"], 2]", Input.RECORD);
+    sample("prod", "[\"prod\"]", Input.NUMBERS);
+    sample("regex", "[\"regex\", [\"get\", \"first\"], \"^[A-Z][a-z]{2,8}$\"]", Input.RECORD);
+    sample("reverse", "[\"reverse\"]", Input.RECORDS);
+    sample("round", "[\"round\", [\"get\", \"score\"], 1]", Input.RECORD);
+    sample("selector", "[\"selector\", \"address.state = 'Alaska' AND age > 30\"]", Input.RECORDS);
+    sample("size", "[\"size\"]", Input.RECORDS);
+    sample("sort", "[\"sort\", [\"get\", \"age\"], \"desc\"]", Input.RECORDS);
+    sample("split", "[\"split\", [\"get\", \"text\"], \" \"]", Input.RECORD);
+    sample("string", "[\"string\", [\"get\", \"age\"]]", Input.RECORD);
+    sample("substring", "[\"substring\", [\"get\", \"first\"], 1, 3]", Input.RECORD);
+    sample("subtract", "[\"subtract\", [\"get\", \"age\"], [\"get\", \"delta\"]]", Input.RECORD);
+    sample("sum", "[\"sum\"]", Input.NUMBERS);
+    sample("uniq", "[\"uniq\"]", Input.NUMBERS);
+    sample("uniqBy", "[\"uniqBy\", [\"get\", \"address\", \"state\"]]", Input.RECORDS);
+    sample("values", "[\"values\"]", Input.RECORD);
+  }
+
+  @Param({
+      "abs", "add", "and", "array", "average", "divide", "eq", "exists", "filter", "flatten",
+      "get", "groupBy", "gt", "gte", "if", "in", "join", "keyBy", "keys", "limit",
+      "lt", "lte", "map", "mapKeys", "mapObject", "mapValues", "match", "matchAll", "max", "min",
+      "mod", "multiply", "ne", "not", "not in", "number", "object", "or", "pick", "pipe",
+      "pow", "prod", "regex", "reverse", "round", "selector", "size", "sort", "split", "string",
+      "substring", "subtract", "sum", "uniq", "uniqBy", "values"
+  })
+  public String function;
+
+  private Function<JsonElement, JsonElement> program;
+  private JsonElement input;
+
+  private static void sample(String name, String query, Input input) {
+    SAMPLES.put(name, new Sample(query, input));
+  }
+
+  @Setup
+  public void setup() {
+    JsonQueryCompiler compiler = JsonQueryCompiler.createDefault();
+    Set<String> registered = compiler.getFunctionRegistry().asMap().keySet();
+    TreeSet<String> missing = new TreeSet<>(registered);
+    missing.removeAll(SAMPLES.keySet());
+    if (!missing.isEmpty()) {
+      throw new IllegalStateException("No benchmark sample for registered functions " + missing);
+    }
+    TreeSet<String> unlisted = new TreeSet<>(registered);
+    unlisted.removeAll(parameterValues());
+    if (!unlisted.isEmpty()) {
+      throw new IllegalStateException("Registered functions missing from @Param: " + unlisted);
+    }
+
+    Sample sample = SAMPLES.get(function);
+    if (sample == null) {
+      throw new IllegalArgumentException("Unknown function: " + function);
+    }
+    program = compiler.compile(JsonParser.parseString(sample.query));
+    input = sample.input.create();
+  }
+
+  private static Set<String> parameterValues() {
+    try {
+      Param param = FunctionJMH.class.getField("function").getAnnotation(Param.class);
+      return new TreeSet<>(Arrays.asList(param.value()));
+    } catch (NoSuchFieldException e) {
+      throw new IllegalStateException("function parameter not found", e);
+    }
+  }
+
+  @Benchmark
+  public JsonElement apply() {
+    return program.apply(input);
+  }
+
+  private enum Input {
+    RECORD,
+    RECORDS,
+    NUMBERS,
+    STRINGS,
+    NESTED,
+    COUNTERS;
+
+    private JsonElement create() {
+      switch (this) {
+        case RECORD:
+          return BenchmarkData.person();
+        case RECORDS:
+          return BenchmarkData.people(ARRAY_SIZE);
+        case NUMBERS:
+          return BenchmarkData.numbers(ARRAY_SIZE);
+        case STRINGS:
+          return BenchmarkData.strings(ARRAY_SIZE);
+        case NESTED:
+          return BenchmarkData.nested(ARRAY_SIZE);
+        default:
+          return BenchmarkData.counters(ARRAY_SIZE / 4);
+      }
+    }
+  }
+
+  private record Sample(String query, Input input) {
+  }
+}
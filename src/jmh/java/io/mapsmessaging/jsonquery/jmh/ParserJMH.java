@@ -0,0 +1,60 @@
+/*
+ *
+ *  Copyright [ 2020 - 2024 ] Matthew Buckton
+ *  Copyright [ 2024 - 2025 ] MapsMessaging B.V.
+ *
+ *  Licensed under the Apache License, Version 2.0 with the Commons Clause
+ *  (the "License"); you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at:
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *      https://commonsclause.com/
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.mapsmessaging.jsonquery.jmh;
+
+import com.google.gson.JsonElement;
+import io.mapsmessaging.jsonquery.JsonQueryParser;
+import io.mapsmessaging.jsonquery.parser.JsonQueryParseException;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParserJMH {
+
+  static final String SHORT_QUERY = ".address.state";
+
+  static final String LONG_QUERY = "filter((.address.state == \"Alaska\" or .address.state == \"Texas\") and .age >= 21)"
+      + " | sort(.age, \"desc\")"
+      + " | map({ name: .first + \" \" + .last, age: .age, score: round(.score * 1.1, 2) })"
+      + " | groupBy(.age)"
+      + " | mapValues(size())"
+      + " | limit(10)";
+
+  @Param({"short", "long"})
+  public String query;
+
+  private String text;
+
+  @Setup
+  public void setup() {
+    text = "short".equals(query) ? SHORT_QUERY : LONG_QUERY;
+  }
+
+  @Benchmark
+  public JsonElement parse() throws JsonQueryParseException {
+    return JsonQueryParser.parse(text);
+  }
+}
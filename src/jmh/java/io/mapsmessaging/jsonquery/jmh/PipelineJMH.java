@@ -0,0 +1,109 @@
+/*
+ *
+ *  Copyright [ 2020 - 2024 ] Matthew Buckton
+ *  Copyright [ 2024 - 2025 ] MapsMessaging B.V.
+ *
+ *  Licensed under the Apache License, Version 2.0 with the Commons Clause
+ *  (the "License"); you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at:
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *      https://commonsclause.com/
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.mapsmessaging.jsonquery.jmh;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import io.mapsmessaging.jsonquery.JsonQueryCompiler;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * End-to-end pipelines in the shape of the README example, over growing input sizes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class PipelineJMH {
+
+  private static final String SELECTOR_PIPELINE = """
+      ["pipe",
+        ["filter", "address.state = 'Alaska'"],
+        ["sort", ["get", "age"], "desc"],
+        ["pick", ["get", "first"], ["get", "age"]]
+      ]
+      """;
+
+  private static final String NATIVE_PIPELINE = """
+      ["pipe",
+        ["filter", ["eq", ["get", "address", "state"], "Alaska"]],
+        ["sort", ["get", "age"], "desc"],
+        ["pick", ["get", "first"], ["get", "age"]]
+      ]
+      """;
+
+  private static final String AGGREGATE_PIPELINE = """
+      ["pipe",
+        ["filter", ["gte", ["get", "age"], 21]],
+        ["groupBy", ["get", "address", "state"]],
+        ["mapValues", ["pipe", ["map", ["get", "score"]], ["average"]]]
+      ]
+      """;
+
+  private static final String TOP_N_PIPELINE = """
+      ["pipe",
+        ["sort", ["get", "score"], "desc"],
+        ["limit", 10],
+        ["map", ["get", "id"]]
+      ]
+      """;
+
+  @Param({"10", "10000", "1000000"})
+  public int size;
+
+  @Param({"selector", "native", "aggregate", "topN"})
+  public String pipeline;
+
+  private Function<JsonElement, JsonElement> program;
+  private JsonArray input;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    JsonQueryCompiler compiler = JsonQueryCompiler.createDefault();
+    program = compiler.compile(JsonParser.parseString(query(pipeline)));
+    input = BenchmarkData.people(size);
+  }
+
+  private static String query(String pipeline) {
+    switch (pipeline) {
+      case "selector":
+        return SELECTOR_PIPELINE;
+      case "native":
+        return NATIVE_PIPELINE;
+      case "aggregate":
+        return AGGREGATE_PIPELINE;
+      case "topN":
+        return TOP_N_PIPELINE;
+      default:
+        throw new IllegalArgumentException("Unknown pipeline: " + pipeline);
+    }
+  }
+
+  @Benchmark
+  public JsonElement apply() {
+    return program.apply(input);
+  }
+}
@@ -0,0 +1,312 @@
+/*
+ *
+ *  Copyright [ 2020 - 2024 ] Matthew Buckton
+ *  Copyright [ 2024 - 2025 ] MapsMessaging B.V.
+ *
+ *  Licensed under the Apache License, Version 2.0 with the Commons Clause
+ *  (the "License"); you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at:
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *      https://commonsclause.com/
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.mapsmessaging.jsonquery;
+
+import com.google.gson.JsonElement;
+import io.mapsmessaging.jsonquery.metrics.QueryMetrics;
+import io.mapsmessaging.jsonquery.parser.JsonQueryParseException;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Bounded cache of compiled queries in front of a {@link JsonQueryCompiler}.
+ * <p>
+ * Queries are keyed on their canonical JSON text (for ASTs) or on the raw query string (for
+ * {@link JsonQueryParser} input). Compiled functions are thread safe and their results do not
+ * depend on earlier calls (selectivity sampling only changes evaluation order), so the same
+ * instance is handed out to every caller. The cache is split into independently locked segments, each
+ * evicting its least recently used entries once either the entry count or the total key weight
+ * (in characters) is exceeded.
+ */
+public final class CachingJsonQueryCompiler {
+
+  public static final int DEFAULT_MAXIMUM_SIZE = 1024;
+  public static final long DEFAULT_MAXIMUM_WEIGHT = 4L * 1024 * 1024;
+
+  private static final int MAX_SEGMENTS = 16;
+  // Rough per-entry overhead so that tiny queries still carry weight
+  private static final int ENTRY_OVERHEAD = 32;
+
+  private static final char AST_PREFIX = 'A';
+  private static final char TEXT_PREFIX = 'T';
+
+  private final JsonQueryCompiler compiler;
+  private final Segment[] segments;
+  private final int segmentMask;
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+
+  public CachingJsonQueryCompiler(JsonQueryCompiler compiler) {
+    this(compiler, DEFAULT_MAXIMUM_SIZE, DEFAULT_MAXIMUM_WEIGHT);
+  }
+
+  public CachingJsonQueryCompiler(JsonQueryCompiler compiler, int maximumSize, long maximumWeight) {
+    if (compiler == null) {
+      throw new IllegalArgumentException("compiler cannot be null");
+    }
+    if (maximumSize <= 0) {
+      throw new IllegalArgumentException("maximumSize must be greater than 0");
+    }
+    if (maximumWeight <= 0) {
+      throw new IllegalArgumentException("maximumWeight must be greater than 0");
+    }
+    this.compiler = compiler;
+
+    int segmentCount = 1;
+    while (segmentCount < MAX_SEGMENTS && segmentCount * 2 <= maximumSize) {
+      segmentCount *= 2;
+    }
+    this.segments = new Segment[segmentCount];
+    this.segmentMask = segmentCount - 1;
+
+    int sizePerSegment = (int) Math.ceil((double) maximumSize / segmentCount);
+    long weightPerSegment = Math.max(1L, maximumWeight / segmentCount);
+    for (int i = 0; i < segmentCount; i++) {
+      segments[i] = new Segment(sizePerSegment, weightPerSegment);
+    }
+  }
+
+  public static CachingJsonQueryCompiler createDefault() {
+    return new CachingJsonQueryCompiler(JsonQueryCompiler.createDefault());
+  }
+
+  private static int spread(int hash) {
+    return hash ^ (hash >>> 16);
+  }
+
+  public JsonQueryCompiler getCompiler() {
+    return compiler;
+  }
+
+  public Function<JsonElement, JsonElement> compile(JsonElement query) {
+    if (query == null || query.isJsonNull()) {
+      return compiler.compile(query);
+    }
+    String key = AST_PREFIX + query.toString();
+    return lookup(key, null, () -> compiler.compile(query));
+  }
+
+  /**
+   * As {@link #compile(JsonElement)}, reporting the lookup, compile time and executions to the
+   * compiler's {@link CompilerOptions#getMetrics() metrics} tagged with {@code queryId}. Callers
+   * with different ids for the same query share the cached function but are measured separately.
+   */
+  public Function<JsonElement, JsonElement> compile(String queryId, JsonElement query) {
+    if (queryId == null) {
+      throw new IllegalArgumentException("queryId cannot be null");
+    }
+    if (compiler.getOptions().getMetrics() == QueryMetrics.NONE || query == null || query.isJsonNull()) {
+      return compiler.compile(queryId, query);
+    }
+    String key = AST_PREFIX + query.toString();
+    return compiler.metered(queryId, lookup(key, queryId, () -> compiler.compile(query)));
+  }
+
+  public Function<JsonElement, JsonElement> compile(String queryText) throws JsonQueryParseException {
+    if (queryText == null) {
+      throw new IllegalArgumentException("queryText cannot be null");
+    }
+    String key = TEXT_PREFIX + queryText;
+    return lookup(key, null, () -> compiler.compile(JsonQueryParser.parse(queryText)));
+  }
+
+  /**
+   * As {@link #compile(String)}, measured like {@link #compile(String, JsonElement)}; compile time
+   * includes parsing the text.
+   */
+  public Function<JsonElement, JsonElement> compile(String queryId, String queryText) throws JsonQueryParseException {
+    if (queryId == null) {
+      throw new IllegalArgumentException("queryId cannot be null");
+    }
+    if (compiler.getOptions().getMetrics() == QueryMetrics.NONE) {
+      return compile(queryText);
+    }
+    if (queryText == null) {
+      throw new IllegalArgumentException("queryText cannot be null");
+    }
+    String key = TEXT_PREFIX + queryText;
+    return compiler.metered(queryId, lookup(key, queryId, () -> compiler.compile(JsonQueryParser.parse(queryText))));
+  }
+
+  private Function<JsonElement, JsonElement> lookup(String key, String queryId, CompileAction action) {
+    QueryMetrics metrics = compiler.getOptions().getMetrics();
+    Segment segment = segments[spread(key.hashCode()) & segmentMask];
+    Function<JsonElement, JsonElement> cached = segment.get(key);
+    if (cached != null) {
+      hits.increment();
+      if (queryId != null) {
+        metrics.cacheHit(queryId);
+      }
+      return cached;
+    }
+    misses.increment();
+    if (queryId != null) {
+      metrics.cacheMiss(queryId);
+    }
+
+    // Compile outside the segment lock; a concurrent miss on the same key may compile twice,
+    // but only the first result is retained and returned to both callers.
+    long start = System.nanoTime();
+    Function<JsonElement, JsonElement> compiled = action.compile();
+    if (queryId != null) {
+      metrics.compiled(queryId, System.nanoTime() - start);
+    }
+    return segment.putIfAbsent(key, compiled);
+  }
+
+  public long getHitCount() {
+    return hits.sum();
+  }
+
+  public long getMissCount() {
+    return misses.sum();
+  }
+
+  public long getEvictionCount() {
+    return evictions.sum();
+  }
+
+  public double getHitRatio() {
+    long hitCount = hits.sum();
+    long total = hitCount + misses.sum();
+    return total == 0 ? 0.0 : (double) hitCount / total;
+  }
+
+  public int size() {
+    int size = 0;
+    for (Segment segment : segments) {
+      size += segment.size();
+    }
+    return size;
+  }
+
+  public long weight() {
+    long weight = 0;
+    for (Segment segment : segments) {
+      weight += segment.weight();
+    }
+    return weight;
+  }
+
+  public void invalidateAll() {
+    for (Segment segment : segments) {
+      segment.clear();
+    }
+  }
+
+  @FunctionalInterface
+  private interface CompileAction {
+    Function<JsonElement, JsonElement> compile();
+  }
+
+  private final class Segment {
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<String, Function<JsonElement, JsonElement>> entries =
+        new LinkedHashMap<>(16, 0.75f, true);
+    private final int maximumSize;
+    private final long maximumWeight;
+    private long weight;
+
+    private Segment(int maximumSize, long maximumWeight) {
+      this.maximumSize = maximumSize;
+      this.maximumWeight = maximumWeight;
+    }
+
+    private Function<JsonElement, JsonElement> get(String key) {
+      lock.lock();
+      try {
+        return entries.get(key);
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    private Function<JsonElement, JsonElement> putIfAbsent(String key, Function<JsonElement, JsonElement> value) {
+      lock.lock();
+      try {
+        Function<JsonElement, JsonElement> existing = entries.get(key);
+        if (existing != null) {
+          return existing;
+        }
+        long entryWeight = weigh(key);
+        if (entryWeight > maximumWeight) {
+          // Larger than the whole segment, hand it back without caching
+          return value;
+        }
+        entries.put(key, value);
+        weight += entryWeight;
+        evict();
+        return value;
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    private void evict() {
+      Iterator<Map.Entry<String, Function<JsonElement, JsonElement>>> iterator = entries.entrySet().iterator();
+      while ((entries.size() > maximumSize || weight > maximumWeight) && iterator.hasNext()) {
+        Map.Entry<String, Function<JsonElement, JsonElement>> eldest = iterator.next();
+        iterator.remove();
+        weight -= weigh(eldest.getKey());
+        evictions.increment();
+      }
+    }
+
+    private long weigh(String key) {
+      return (long) key.length() + ENTRY_OVERHEAD;
+    }
+
+    private int size() {
+      lock.lock();
+      try {
+        return entries.size();
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    private long weight() {
+      lock.lock();
+      try {
+        return weight;
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    private void clear() {
+      lock.lock();
+      try {
+        entries.clear();
+        weight = 0;
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+}
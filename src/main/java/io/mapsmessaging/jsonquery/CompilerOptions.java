@@ -0,0 +1,199 @@
+/*
+ *
+ *  Copyright [ 2020 - 2024 ] Matthew Buckton
+ *  Copyright [ 2024 - 2025 ] MapsMessaging B.V.
+ *
+ *  Licensed under the Apache License, Version 2.0 with the Commons Clause
+ *  (the "License"); you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at:
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *      https://commonsclause.com/
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.mapsmessaging.jsonquery;
+
+import io.mapsmessaging.jsonquery.metrics.QueryMetrics;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Settings that change how {@link JsonQueryCompiler} builds its functions, never what the compiled
+ * queries return; where an option can change an edge case (which error is raised, selector type
+ * rules) its method says so. Instances are immutable; the {@code with} methods return a modified copy.
+ */
+public final class CompilerOptions {
+
+  public static final int DEFAULT_PARALLEL_THRESHOLD = 16384;
+
+  private static final CompilerOptions DEFAULTS =
+      new CompilerOptions(false, null, DEFAULT_PARALLEL_THRESHOLD, false, 0, false, QueryMetrics.NONE, false);
+
+  private final boolean bytecodeGeneration;
+  private final Executor parallelExecutor;
+  private final int parallelThreshold;
+  private final boolean operandReordering;
+  private final int selectivitySamples;
+  private final boolean selectorTranslation;
+  private final QueryMetrics metrics;
+  private final boolean flightRecorderEvents;
+
+  private CompilerOptions(boolean bytecodeGeneration, Executor parallelExecutor, int parallelThreshold,
+                          boolean operandReordering, int selectivitySamples, boolean selectorTranslation,
+                          QueryMetrics metrics, boolean flightRecorderEvents) {
+    this.bytecodeGeneration = bytecodeGeneration;
+    this.parallelExecutor = parallelExecutor;
+    this.parallelThreshold = parallelThreshold;
+    this.operandReordering = operandReordering;
+    this.selectivitySamples = selectivitySamples;
+    this.selectorTranslation = selectorTranslation;
+    this.metrics = metrics;
+    this.flightRecorderEvents = flightRecorderEvents;
+  }
+
+  public static CompilerOptions defaults() {
+    return DEFAULTS;
+  }
+
+  public boolean isBytecodeGeneration() {
+    return bytecodeGeneration;
+  }
+
+  /**
+   * Returns the executor element-wise stages split large arrays across, or null when queries run
+   * sequentially (the default).
+   */
+  public Executor getParallelExecutor() {
+    return parallelExecutor;
+  }
+
+  public int getParallelThreshold() {
+    return parallelThreshold;
+  }
+
+  public boolean isOperandReordering() {
+    return operandReordering || selectivitySamples > 0;
+  }
+
+  /**
+   * Returns how many evaluations an {@code and} or {@code or} observes before settling its operand
+   * order, or 0 when selectivity sampling is off (the default).
+   */
+  public int getSelectivitySamples() {
+    return selectivitySamples;
+  }
+
+  public boolean isSelectorTranslation() {
+    return selectorTranslation;
+  }
+
+  public QueryMetrics getMetrics() {
+    return metrics;
+  }
+
+  public boolean isFlightRecorderEvents() {
+    return flightRecorderEvents;
+  }
+
+  /**
+   * When enabled, predicate trees of comparisons between a {@code get} path and a constant,
+   * combined with {@code and}, {@code or} and {@code not}, are compiled into one hidden class each
+   * (see {@link io.mapsmessaging.jsonquery.codegen.PredicateCodeGenerator}). Everything else keeps
+   * the closure path.
+   */
+  public CompilerOptions withBytecodeGeneration(boolean enabled) {
+    return new CompilerOptions(enabled, parallelExecutor, parallelThreshold, operandReordering, selectivitySamples,
+        selectorTranslation, metrics, flightRecorderEvents);
+  }
+
+  /**
+   * Runs {@code filter}, {@code selector}, {@code map}, {@code pick} and {@code sort} over arrays
+   * of at least {@code threshold} elements in chunks on the common {@link ForkJoinPool}.
+   */
+  public CompilerOptions withParallelExecution(int threshold) {
+    return withParallelExecution(ForkJoinPool.commonPool(), threshold);
+  }
+
+  /**
+   * As {@link #withParallelExecution(int)}, with the chunks submitted to the given executor. The
+   * calling thread processes any chunk no worker has started, so a busy or bounded executor slows
+   * a stage down but never stalls it, and results keep the input order.
+   */
+  public CompilerOptions withParallelExecution(Executor executor, int threshold) {
+    if (executor == null) {
+      throw new IllegalArgumentException("executor cannot be null");
+    }
+    if (threshold <= 0) {
+      throw new IllegalArgumentException("threshold must be greater than 0");
+    }
+    return new CompilerOptions(bytecodeGeneration, executor, threshold, operandReordering, selectivitySamples,
+        selectorTranslation, metrics, flightRecorderEvents);
+  }
+
+  /**
+   * When enabled, operands of {@code and} and {@code or} whose {@link
+   * io.mapsmessaging.jsonquery.functions.JsonQueryFunction#cost() cost} is known and that {@link
+   * JsonQueryCompiler#isInfallible cannot throw} are evaluated cheapest first. Other operands keep
+   * their written position and nothing moves across them, so results and errors are unchanged.
+   */
+  public CompilerOptions withOperandReordering(boolean enabled) {
+    return new CompilerOptions(bytecodeGeneration, parallelExecutor, parallelThreshold, enabled, selectivitySamples,
+        selectorTranslation, metrics, flightRecorderEvents);
+  }
+
+  /**
+   * Lets each {@code and} and {@code or} count, over its first {@code samples} evaluations, how
+   * often every operand decides the result, then fix the order that is cheapest on average. This
+   * implies {@link #withOperandReordering(boolean) operand reordering}; 0 turns sampling off.
+   * Predicates compiled to bytecode keep their static order.
+   */
+  public CompilerOptions withSelectivitySampling(int samples) {
+    if (samples < 0) {
+      throw new IllegalArgumentException("samples cannot be negative");
+    }
+    return new CompilerOptions(bytecodeGeneration, parallelExecutor, parallelThreshold, operandReordering, samples,
+        selectorTranslation, metrics, flightRecorderEvents);
+  }
+
+  /**
+   * Translates {@code selector} expressions that stay within comparisons of identifiers with
+   * literals, {@code BETWEEN}, {@code IN}, {@code LIKE}, {@code IS NULL} and the logical operators
+   * into engine predicates, evaluated with JMS three-valued logic and without implicit conversion
+   * between strings and numbers. Other selectors keep the selector library's executor.
+   */
+  public CompilerOptions withSelectorTranslation(boolean enabled) {
+    return new CompilerOptions(bytecodeGeneration, parallelExecutor, parallelThreshold, operandReordering,
+        selectivitySamples, enabled, metrics, flightRecorderEvents);
+  }
+
+  /**
+   * Reports compile time, execution latency, sizes, errors and cache lookups of queries compiled
+   * with a query id ({@link JsonQueryCompiler#compile(String, com.google.gson.JsonElement)} and the
+   * matching {@link CachingJsonQueryCompiler} methods) to {@code metrics}. Queries compiled without
+   * an id are never measured.
+   */
+  public CompilerOptions withMetrics(QueryMetrics metrics) {
+    if (metrics == null) {
+      throw new IllegalArgumentException("metrics cannot be null");
+    }
+    return new CompilerOptions(bytecodeGeneration, parallelExecutor, parallelThreshold, operandReordering,
+        selectivitySamples, selectorTranslation, metrics, flightRecorderEvents);
+  }
+
+  /**
+   * Wraps the functions returned by {@link JsonQueryCompiler#compile} so that executions emit the
+   * JDK Flight Recorder events described in {@link io.mapsmessaging.jsonquery.jfr.QueryEvents}.
+   * Parse and compile events do not depend on this setting.
+   */
+  public CompilerOptions withFlightRecorderEvents(boolean enabled) {
+    return new CompilerOptions(bytecodeGeneration, parallelExecutor, parallelThreshold, operandReordering,
+        selectivitySamples, selectorTranslation, metrics, enabled);
+  }
+}
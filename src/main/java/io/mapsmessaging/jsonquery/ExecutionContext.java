@@ -0,0 +1,256 @@
+/*
+ *
+ *  Copyright [ 2020 - 2024 ] Matthew Buckton
+ *  Copyright [ 2024 - 2025 ] MapsMessaging B.V.
+ *
+ *  Licensed under the Apache License, Version 2.0 with the Commons Clause
+ *  (the "License"); you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at:
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *      https://commonsclause.com/
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.mapsmessaging.jsonquery;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonPrimitive;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * The budget of one query execution: a deadline, step and output counters checked against
+ * {@link ExecutionLimits}, and a cancellation flag that any thread may set.
+ * <p>
+ * {@link #execute} binds the context to the calling thread (and to the workers of parallel
+ * stages) for the duration of the query. The looping functions ({@code filter}, {@code selector},
+ * {@code map}, {@code pick}, {@code sort}, {@code groupBy}, {@code keyBy}, {@code uniqBy},
+ * {@code flatten}, including their fused pipe forms) charge it per element and the regex functions
+ * check it while the matcher reads its input, so a runaway query fails with a
+ * {@link QueryBudgetExceededException} instead of holding the thread. Queries executed without a
+ * context are not limited and only pay one thread-local lookup per looping call.
+ * <p>
+ * Output is charged by every stage that writes an element, not only by the last one, so the output
+ * limits bound the intermediate arrays a query builds: in {@code filter | sort | map} an element
+ * that survives the filter counts three times. A context may run several executions, which then
+ * share its budget.
+ */
+public final class ExecutionContext {
+
+  private static final ThreadLocal<ExecutionContext> CURRENT = new ThreadLocal<>();
+  /**
+   * Deadline and cancellation are polled every this many steps or characters read. Loops that
+   * charge their steps up front (such as sort) call {@link #checkpoint()} at the same interval.
+   */
+  public static final int CHECK_INTERVAL = 1024;
+  private static final int REGEX_CHECK_INTERVAL = 16 * CHECK_INTERVAL;
+
+  private final ExecutionLimits limits;
+  private final long deadline;
+  private final AtomicLong steps = new AtomicLong();
+  private final AtomicLong outputElements = new AtomicLong();
+  private final AtomicLong outputBytes = new AtomicLong();
+  private volatile boolean cancelled;
+
+  public ExecutionContext(ExecutionLimits limits) {
+    if (limits == null) {
+      throw new IllegalArgumentException("limits cannot be null");
+    }
+    this.limits = limits;
+    this.deadline = limits.getTimeoutNanos() == ExecutionLimits.UNLIMITED
+        ? 0
+        : System.nanoTime() + limits.getTimeoutNanos();
+  }
+
+  /**
+   * Returns the context bound to the current thread, or null when the query runs unlimited.
+   */
+  public static ExecutionContext current() {
+    return CURRENT.get();
+  }
+
+  /**
+   * Returns {@code text} wrapped so that reading it checks the current context, or {@code text}
+   * itself when there is none. Regex matchers read their input through it, which bounds even
+   * catastrophic backtracking by the deadline and the cancellation flag.
+   */
+  public static CharSequence guard(CharSequence text) {
+    ExecutionContext context = CURRENT.get();
+    return context == null ? text : new GuardedText(text, context);
+  }
+
+  public ExecutionLimits getLimits() {
+    return limits;
+  }
+
+  public JsonElement execute(Function<JsonElement, JsonElement> query, JsonElement data) {
+    if (query == null) {
+      throw new IllegalArgumentException("query cannot be null");
+    }
+    ExecutionContext previous = CURRENT.get();
+    CURRENT.set(this);
+    try {
+      checkpoint();
+      return query.apply(data);
+    } finally {
+      restore(previous);
+    }
+  }
+
+  /**
+   * Runs {@code task} with this context bound to the calling thread, used to carry the context
+   * onto the workers of parallel stages.
+   */
+  public void run(Runnable task) {
+    ExecutionContext previous = CURRENT.get();
+    CURRENT.set(this);
+    try {
+      task.run();
+    } finally {
+      restore(previous);
+    }
+  }
+
+  private static void restore(ExecutionContext previous) {
+    if (previous == null) {
+      CURRENT.remove();
+    } else {
+      CURRENT.set(previous);
+    }
+  }
+
+  public void cancel() {
+    cancelled = true;
+  }
+
+  public boolean isCancelled() {
+    return cancelled;
+  }
+
+  public long getSteps() {
+    return steps.get();
+  }
+
+  public long getOutputElements() {
+    return outputElements.get();
+  }
+
+  public long getOutputBytes() {
+    return outputBytes.get();
+  }
+
+  public void step() {
+    steps(1);
+  }
+
+  public void steps(long count) {
+    long total = steps.addAndGet(count);
+    if (total > limits.getMaxSteps()) {
+      throw new QueryBudgetExceededException(QueryBudgetExceededException.Reason.STEPS,
+          "Query exceeded its limit of " + limits.getMaxSteps() + " steps");
+    }
+    if (total % CHECK_INTERVAL < count) {
+      checkpoint();
+    }
+  }
+
+  /**
+   * Charges one element written to a result array, and its estimated size when output bytes are
+   * limited.
+   */
+  public void emit(JsonElement element) {
+    if (outputElements.incrementAndGet() > limits.getMaxOutputElements()) {
+      throw new QueryBudgetExceededException(QueryBudgetExceededException.Reason.OUTPUT_ELEMENTS,
+          "Query exceeded its limit of " + limits.getMaxOutputElements() + " output elements");
+    }
+    if (limits.getMaxOutputBytes() != ExecutionLimits.UNLIMITED
+        && outputBytes.addAndGet(estimateSize(element)) > limits.getMaxOutputBytes()) {
+      throw new QueryBudgetExceededException(QueryBudgetExceededException.Reason.OUTPUT_BYTES,
+          "Query exceeded its limit of " + limits.getMaxOutputBytes() + " output bytes");
+    }
+  }
+
+  /**
+   * Throws if the context was cancelled or its deadline has passed.
+   */
+  public void checkpoint() {
+    if (cancelled) {
+      throw new QueryBudgetExceededException(QueryBudgetExceededException.Reason.CANCELLED, "Query was cancelled");
+    }
+    if (deadline != 0 && System.nanoTime() - deadline > 0) {
+      throw new QueryBudgetExceededException(QueryBudgetExceededException.Reason.DEADLINE,
+          "Query exceeded its timeout of " + limits.getTimeoutNanos() / 1_000_000 + " ms");
+    }
+  }
+
+  /**
+   * Length of the compact JSON text of the element, counting numbers by their Java string form.
+   */
+  static long estimateSize(JsonElement element) {
+    if (element == null || element.isJsonNull()) {
+      return 4;
+    }
+    if (element.isJsonPrimitive()) {
+      JsonPrimitive primitive = element.getAsJsonPrimitive();
+      if (primitive.isString()) {
+        return primitive.getAsString().length() + 2L;
+      }
+      return primitive.isBoolean() ? (primitive.getAsBoolean() ? 4 : 5) : primitive.getAsNumber().toString().length();
+    }
+    long size = 2;
+    if (element.isJsonArray()) {
+      for (JsonElement child : element.getAsJsonArray()) {
+        size += estimateSize(child) + 1;
+      }
+      return size;
+    }
+    for (Map.Entry<String, JsonElement> entry : element.getAsJsonObject().entrySet()) {
+      size += entry.getKey().length() + 4L + estimateSize(entry.getValue());
+    }
+    return size;
+  }
+
+  private static final class GuardedText implements CharSequence {
+
+    private final CharSequence text;
+    private final ExecutionContext context;
+    private int reads;
+
+    private GuardedText(CharSequence text, ExecutionContext context) {
+      this.text = text;
+      this.context = context;
+    }
+
+    @Override
+    public int length() {
+      return text.length();
+    }
+
+    @Override
+    public char charAt(int index) {
+      if (++reads == REGEX_CHECK_INTERVAL) {
+        reads = 0;
+        context.checkpoint();
+      }
+      return text.charAt(index);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+      return text.subSequence(start, end);
+    }
+
+    @Override
+    public String toString() {
+      return text.toString();
+    }
+  }
+}
@@ -0,0 +1,110 @@
+/*
+ *
+ *  Copyright [ 2020 - 2024 ] Matthew Buckton
+ *  Copyright [ 2024 - 2025 ] MapsMessaging B.V.
+ *
+ *  Licensed under the Apache License, Version 2.0 with the Commons Clause
+ *  (the "License"); you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at:
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *      https://commonsclause.com/
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.mapsmessaging.jsonquery;
+
+import java.time.Duration;
+
+/**
+ * Limits for one query execution, applied by running the query through an
+ * {@link ExecutionContext}. Every limit starts unlimited. Instances are immutable; the {@code with}
+ * methods return a modified copy.
+ */
+public final class ExecutionLimits {
+
+  public static final long UNLIMITED = Long.MAX_VALUE;
+
+  private static final ExecutionLimits NONE = new ExecutionLimits(UNLIMITED, UNLIMITED, UNLIMITED, UNLIMITED);
+
+  private final long timeoutNanos;
+  private final long maxSteps;
+  private final long maxOutputElements;
+  private final long maxOutputBytes;
+
+  private ExecutionLimits(long timeoutNanos, long maxSteps, long maxOutputElements, long maxOutputBytes) {
+    this.timeoutNanos = timeoutNanos;
+    this.maxSteps = maxSteps;
+    this.maxOutputElements = maxOutputElements;
+    this.maxOutputBytes = maxOutputBytes;
+  }
+
+  public static ExecutionLimits unlimited() {
+    return NONE;
+  }
+
+  private static long requirePositive(long value, String name) {
+    if (value <= 0) {
+      throw new IllegalArgumentException(name + " must be greater than 0");
+    }
+    return value;
+  }
+
+  public long getTimeoutNanos() {
+    return timeoutNanos;
+  }
+
+  public long getMaxSteps() {
+    return maxSteps;
+  }
+
+  public long getMaxOutputElements() {
+    return maxOutputElements;
+  }
+
+  public long getMaxOutputBytes() {
+    return maxOutputBytes;
+  }
+
+  /**
+   * Time allowed from the creation of the {@link ExecutionContext}.
+   */
+  public ExecutionLimits withTimeout(Duration timeout) {
+    if (timeout == null) {
+      throw new IllegalArgumentException("timeout cannot be null");
+    }
+    long nanos = requirePositive(timeout.toNanos(), "timeout");
+    return new ExecutionLimits(nanos, maxSteps, maxOutputElements, maxOutputBytes);
+  }
+
+  /**
+   * Array elements that {@code filter}, {@code selector}, {@code map}, {@code pick}, {@code sort},
+   * {@code groupBy}, {@code keyBy}, {@code uniqBy} and {@code flatten} may visit, and regex matches
+   * {@code matchAll} may produce, summed over the execution.
+   */
+  public ExecutionLimits withMaxSteps(long steps) {
+    return new ExecutionLimits(timeoutNanos, requirePositive(steps, "steps"), maxOutputElements, maxOutputBytes);
+  }
+
+  /**
+   * Elements those stages may write into their result arrays, summed over the stages and the
+   * execution. Intermediate arrays count, so an element passing through three stages is charged
+   * three times.
+   */
+  public ExecutionLimits withMaxOutputElements(long elements) {
+    return new ExecutionLimits(timeoutNanos, maxSteps, requirePositive(elements, "elements"), maxOutputBytes);
+  }
+
+  /**
+   * Estimated JSON size, in bytes, of the elements those stages write, summed over the stages and
+   * the execution like {@link #withMaxOutputElements}.
+   */
+  public ExecutionLimits withMaxOutputBytes(long bytes) {
+    return new ExecutionLimits(timeoutNanos, maxSteps, maxOutputElements, requirePositive(bytes, "bytes"));
+  }
+}
@@ -23,22 +23,50 @@ import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonNull;
 import com.google.gson.JsonPrimitive;
+import io.mapsmessaging.jsonquery.codegen.PredicateCodeGenerator;
 import io.mapsmessaging.jsonquery.functions.FunctionRegistry;
 import io.mapsmessaging.jsonquery.functions.JsonQueryFunction;
+import io.mapsmessaging.jsonquery.functions.JsonQueryGson;
+import io.mapsmessaging.jsonquery.functions.PredicateExpression;
+import io.mapsmessaging.jsonquery.jfr.QueryEvents;
+import io.mapsmessaging.jsonquery.metrics.QueryMetrics;
 
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
 import java.util.function.Function;
+import java.util.function.Supplier;
 
 public final class JsonQueryCompiler {
 
+  // Functions compile their arguments through compile() too; only the outermost call keeps
+  // compile state and is traced
+  private static final ThreadLocal<CompileState> COMPILE_STATE = ThreadLocal.withInitial(CompileState::new);
+
   private final FunctionRegistry functionRegistry;
+  private final CompilerOptions options;
+  private final QueryProfiler profiler;
 
   public JsonQueryCompiler(FunctionRegistry functionRegistry) {
+    this(functionRegistry, CompilerOptions.defaults());
+  }
+
+  public JsonQueryCompiler(FunctionRegistry functionRegistry, CompilerOptions options) {
+    this(functionRegistry, options, null);
+  }
+
+  private JsonQueryCompiler(FunctionRegistry functionRegistry, CompilerOptions options, QueryProfiler profiler) {
     if (functionRegistry == null) {
       throw new IllegalArgumentException("functionRegistry cannot be null");
     }
+    if (options == null) {
+      throw new IllegalArgumentException("options cannot be null");
+    }
     this.functionRegistry = functionRegistry;
+    this.options = options;
+    this.profiler = profiler;
   }
 
   public static JsonQueryCompiler createDefault() {
@@ -49,6 +77,29 @@ public final class JsonQueryCompiler {
     return new JsonQueryCompiler(FunctionRegistry.merge(builtIns, custom));
   }
 
+  public FunctionRegistry getFunctionRegistry() {
+    return functionRegistry;
+  }
+
+  public CompilerOptions getOptions() {
+    return options;
+  }
+
+  /**
+   * Returns the function a query node calls, or null when the node is a literal or names a
+   * function that is not registered.
+   */
+  public JsonQueryFunction functionOf(JsonElement expression) {
+    if (expression == null || !expression.isJsonArray() || expression.getAsJsonArray().isEmpty()) {
+      return null;
+    }
+    JsonElement name = expression.getAsJsonArray().get(0);
+    if (!isString(name)) {
+      return null;
+    }
+    return functionRegistry.get(name.getAsString());
+  }
+
   private static boolean isString(JsonElement element) {
     if (element == null || element.isJsonNull()) {
       return false;
@@ -60,7 +111,266 @@ public final class JsonQueryCompiler {
     return primitive.isString();
   }
 
+  private static Function<JsonElement, JsonElement> foldConstant(Function<JsonElement, JsonElement> compiled) {
+    JsonElement value;
+    try {
+      value = compiled.apply(JsonNull.INSTANCE);
+    } catch (RuntimeException e) {
+      // Leave failing expressions to raise their error at evaluation time, as before
+      return compiled;
+    }
+    JsonElement constant = JsonQueryGson.nullToJsonNull(value);
+    if (constant.isJsonArray() || constant.isJsonObject()) {
+      // Callers may modify what they get back, so each call receives its own copy
+      return ignored -> constant.deepCopy();
+    }
+    return ignored -> constant;
+  }
+
+  /**
+   * A call is input independent when its function is pure and every argument is itself a
+   * constant. Calls without arguments are never folded, since several functions fall back to
+   * reading the input directly when no argument is supplied (e.g. abs, and, or).
+   */
+  private boolean isConstantCall(JsonQueryFunction function, List<JsonElement> rawArgs,
+                                 Map<JsonElement, Boolean> known) {
+    if (!function.isPure() || rawArgs.isEmpty()) {
+      return false;
+    }
+    for (JsonElement rawArg : rawArgs) {
+      if (!isConstant(rawArg, known)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns the constancy answers of the query being compiled on this thread, so that every node
+   * is examined once however deep it is nested; outside a compile each call starts afresh.
+   */
+  private Map<JsonElement, Boolean> knownConstants() {
+    CompileState state = COMPILE_STATE.get();
+    return state.depth > 0 && state.owner == this ? state.constants : new IdentityHashMap<>();
+  }
+
+  /**
+   * Returns true when the expression does not depend on the input, i.e. compiling it yields a
+   * function that returns the same value for every input.
+   */
+  public boolean isConstant(JsonElement element) {
+    return isConstant(element, knownConstants());
+  }
+
+  private boolean isConstant(JsonElement element, Map<JsonElement, Boolean> known) {
+    if (element == null || element.isJsonNull() || element.isJsonPrimitive()) {
+      return true;
+    }
+    Boolean answer = known.get(element);
+    if (answer == null) {
+      answer = examineConstant(element, known);
+      known.put(element, answer);
+    }
+    return answer;
+  }
+
+  private boolean examineConstant(JsonElement element, Map<JsonElement, Boolean> known) {
+    if (element.isJsonObject()) {
+      // object({...}) templates hold expressions as values
+      for (Map.Entry<String, JsonElement> entry : element.getAsJsonObject().entrySet()) {
+        if (!isConstant(entry.getValue(), known)) {
+          return false;
+        }
+      }
+      return true;
+    }
+    JsonArray array = element.getAsJsonArray();
+    if (array.isEmpty() || !isString(array.get(0))) {
+      return false;
+    }
+    JsonQueryFunction function = functionRegistry.get(array.get(0).getAsString());
+    if (function == null) {
+      return false;
+    }
+    List<JsonElement> rawArgs = new ArrayList<>(array.size());
+    for (int i = 1; i < array.size(); i++) {
+      rawArgs.add(array.get(i));
+    }
+    return isConstantCall(function, rawArgs, known);
+  }
+
+  /**
+   * Sums {@link JsonQueryFunction#cost()} over every call in the expression; literals cost
+   * nothing. Returns {@link JsonQueryFunction#UNKNOWN_COST} if any call is not estimated or names
+   * an unknown function.
+   */
+  public int estimateCost(JsonElement expression) {
+    if (expression == null || expression.isJsonNull() || expression.isJsonPrimitive()) {
+      return 0;
+    }
+    int total = 0;
+    if (expression.isJsonObject()) {
+      for (Map.Entry<String, JsonElement> entry : expression.getAsJsonObject().entrySet()) {
+        int cost = estimateCost(entry.getValue());
+        if (cost == JsonQueryFunction.UNKNOWN_COST) {
+          return JsonQueryFunction.UNKNOWN_COST;
+        }
+        total += cost;
+      }
+      return total;
+    }
+    JsonQueryFunction function = functionOf(expression);
+    if (function == null || function.cost() == JsonQueryFunction.UNKNOWN_COST) {
+      return JsonQueryFunction.UNKNOWN_COST;
+    }
+    total = function.cost();
+    JsonArray array = expression.getAsJsonArray();
+    for (int i = 1; i < array.size(); i++) {
+      int cost = estimateCost(array.get(i));
+      if (cost == JsonQueryFunction.UNKNOWN_COST) {
+        return JsonQueryFunction.UNKNOWN_COST;
+      }
+      total += cost;
+    }
+    return total;
+  }
+
+  /**
+   * True when evaluating the expression can never throw and has no side effects: literals,
+   * constant subtrees that fold without error, and calls whose function is {@link
+   * JsonQueryFunction#isInfallible infallible} for its arguments, with every argument infallible.
+   */
+  public boolean isInfallible(JsonElement expression) {
+    if (expression == null || expression.isJsonNull() || expression.isJsonPrimitive()) {
+      return true;
+    }
+    JsonQueryFunction function = functionOf(expression);
+    if (function == null) {
+      return false;
+    }
+    if (isConstant(expression)) {
+      // Folded once at compile time, so only a failing fold can throw later
+      try {
+        compile(expression).apply(JsonNull.INSTANCE);
+        return true;
+      } catch (RuntimeException e) {
+        return false;
+      }
+    }
+    JsonArray array = expression.getAsJsonArray();
+    List<JsonElement> rawArgs = new ArrayList<>(array.size() - 1);
+    for (int i = 1; i < array.size(); i++) {
+      rawArgs.add(array.get(i));
+    }
+    if (!function.isInfallible(rawArgs, this)) {
+      return false;
+    }
+    for (JsonElement rawArg : rawArgs) {
+      if (!isInfallible(rawArg)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
   public Function<JsonElement, JsonElement> compile(JsonElement query) {
+    CompileState state = COMPILE_STATE.get();
+    if (state.depth > 0) {
+      return compileNested(query);
+    }
+    state.depth++;
+    state.owner = this;
+    try {
+      Function<JsonElement, JsonElement> compiled = QueryEvents.compile(query, this::compileNested);
+      return options.isFlightRecorderEvents() ? QueryEvents.trace(query, compiled) : compiled;
+    } finally {
+      state.depth--;
+      state.owner = null;
+      state.constants.clear();
+    }
+  }
+
+  private Function<JsonElement, JsonElement> compileNested(JsonElement query) {
+    if (profiler != null) {
+      return profiler.instrument(query, this::compileNode);
+    }
+    return compileNode(query);
+  }
+
+  /**
+   * Compiles a stage that a function built from several adjacent query nodes, such as a fused
+   * {@code sort | limit}. A profiled query reports the stage as one node whose function names the
+   * fused functions joined by {@code |} and whose query lists the fused expressions.
+   */
+  public Function<JsonElement, JsonElement> compileFused(List<JsonElement> stages,
+                                                         Supplier<Function<JsonElement, JsonElement>> fused) {
+    if (profiler == null) {
+      return fused.get();
+    }
+    StringJoiner names = new StringJoiner("|");
+    JsonArray query = new JsonArray();
+    for (JsonElement stage : stages) {
+      names.add(stage.getAsJsonArray().get(0).getAsString());
+    }
+    query.add(names.toString());
+    stages.forEach(query::add);
+    return profiler.instrument(query, ignored -> fused.get());
+  }
+
+  /**
+   * Compiles the query as {@link #compile(JsonElement)} and, when {@link CompilerOptions#withMetrics}
+   * installed a {@link QueryMetrics}, reports the compile time and every execution tagged with
+   * {@code queryId}.
+   */
+  public Function<JsonElement, JsonElement> compile(String queryId, JsonElement query) {
+    if (queryId == null) {
+      throw new IllegalArgumentException("queryId cannot be null");
+    }
+    if (options.getMetrics() == QueryMetrics.NONE) {
+      return compile(query);
+    }
+    long start = System.nanoTime();
+    Function<JsonElement, JsonElement> compiled = compile(query);
+    options.getMetrics().compiled(queryId, System.nanoTime() - start);
+    return metered(queryId, compiled);
+  }
+
+  Function<JsonElement, JsonElement> metered(String queryId, Function<JsonElement, JsonElement> compiled) {
+    QueryMetrics metrics = options.getMetrics();
+    return data -> {
+      long start = System.nanoTime();
+      JsonElement result;
+      try {
+        result = compiled.apply(data);
+      } catch (RuntimeException e) {
+        metrics.failed(queryId, System.nanoTime() - start, e);
+        throw e;
+      }
+      metrics.executed(queryId, System.nanoTime() - start, sizeOf(data), sizeOf(result));
+      return result;
+    };
+  }
+
+  private static int sizeOf(JsonElement element) {
+    if (element == null || element.isJsonNull()) {
+      return 0;
+    }
+    return element.isJsonArray() ? element.getAsJsonArray().size() : 1;
+  }
+
+  /**
+   * Compiles the query with every node wrapped to record its invocations, time, allocation and
+   * array cardinality; see {@link ProfiledQuery}. Queries compiled with {@link #compile} are not
+   * instrumented and pay nothing for this.
+   */
+  public ProfiledQuery compileProfiled(JsonElement query) {
+    QueryProfiler session = new QueryProfiler();
+    Function<JsonElement, JsonElement> compiled =
+        new JsonQueryCompiler(functionRegistry, options, session).compile(query);
+    return new ProfiledQuery(compiled, session.finish());
+  }
+
+  private Function<JsonElement, JsonElement> compileNode(JsonElement query) {
     if (query == null || query.isJsonNull()) {
       return ignored -> JsonNull.INSTANCE;
     }
@@ -87,6 +397,15 @@ public final class JsonQueryCompiler {
         rawArgs.add(array.get(i));
       }
 
+      if (isConstantCall(function, rawArgs, knownConstants())) {
+        return foldConstant(function.compile(rawArgs, this));
+      }
+      if (options.isBytecodeGeneration()) {
+        PredicateExpression generated = PredicateCodeGenerator.generate(function, rawArgs, this);
+        if (generated != null) {
+          return generated;
+        }
+      }
       return function.compile(rawArgs, this);
     }
 
@@ -97,4 +416,10 @@ public final class JsonQueryCompiler {
     JsonElement staticValue = query;
     return ignored -> staticValue;
   }
+
+  private static final class CompileState {
+    private final Map<JsonElement, Boolean> constants = new IdentityHashMap<>();
+    private int depth;
+    private JsonQueryCompiler owner;
+  }
 }
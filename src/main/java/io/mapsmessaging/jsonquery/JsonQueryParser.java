@@ -6,6 +6,7 @@ import com.google.gson.JsonElement;
 import com.google.gson.JsonNull;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonPrimitive;
+import io.mapsmessaging.jsonquery.jfr.QueryEvents;
 import io.mapsmessaging.jsonquery.parser.JsonQueryParseException;
 
 import java.util.ArrayList;
@@ -22,6 +23,10 @@ public final class JsonQueryParser {
   }
 
   public static JsonElement parse(String input) throws JsonQueryParseException {
+    return QueryEvents.parse(input, JsonQueryParser::parseText);
+  }
+
+  private static JsonElement parseText(String input) throws JsonQueryParseException {
     JsonQueryParser parser = new JsonQueryParser(input);
     JsonElement value = parser.parsePipe();
     parser.skipWhitespace();
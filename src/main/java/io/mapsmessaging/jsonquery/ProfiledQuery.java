@@ -0,0 +1,67 @@
+/*
+ *
+ *  Copyright [ 2020 - 2024 ] Matthew Buckton
+ *  Copyright [ 2024 - 2025 ] MapsMessaging B.V.
+ *
+ *  Licensed under the Apache License, Version 2.0 with the Commons Clause
+ *  (the "License"); you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at:
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *      https://commonsclause.com/
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.mapsmessaging.jsonquery;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import java.util.function.Function;
+
+/**
+ * A query compiled by {@link JsonQueryCompiler#compileProfiled(JsonElement)}. It returns the same
+ * results as {@link JsonQueryCompiler#compile(JsonElement)} and accumulates, for every node of the
+ * query, how often it ran, how long it took and how many array elements went in and out.
+ * <p>
+ * {@link #getProfile()} reports the nodes as a JSON tree mirroring the query AST, except that pipe
+ * stages which run fused appear as one node (see {@link JsonQueryCompiler#compileFused}). Each
+ * node carries {@code function} and {@code query}, {@code invocations}, {@code errors},
+ * {@code totalNanos} (including its children) and {@code selfNanos}, plus {@code allocatedBytes}
+ * when the JVM tracks per-thread allocation and {@code inputElements} / {@code outputElements} for
+ * nodes that received or returned arrays. Allocation is only attributed to the calling thread, so
+ * work done on a parallel executor is not included.
+ */
+public final class ProfiledQuery implements Function<JsonElement, JsonElement> {
+
+  private final Function<JsonElement, JsonElement> function;
+  private final QueryProfiler.Node root;
+
+  ProfiledQuery(Function<JsonElement, JsonElement> function, QueryProfiler.Node root) {
+    this.function = function;
+    this.root = root;
+  }
+
+  @Override
+  public JsonElement apply(JsonElement data) {
+    return function.apply(data);
+  }
+
+  public JsonObject getProfile() {
+    return root.toJson();
+  }
+
+  public void reset() {
+    root.reset();
+  }
+
+  @Override
+  public String toString() {
+    return root.toJson().toString();
+  }
+}
@@ -0,0 +1,225 @@
+/*
+ *
+ *  Copyright [ 2020 - 2024 ] Matthew Buckton
+ *  Copyright [ 2024 - 2025 ] MapsMessaging B.V.
+ *
+ *  Licensed under the Apache License, Version 2.0 with the Commons Clause
+ *  (the "License"); you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at:
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *      https://commonsclause.com/
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.mapsmessaging.jsonquery;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import io.mapsmessaging.jsonquery.functions.NumericExpression;
+import io.mapsmessaging.jsonquery.functions.PredicateExpression;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Records, while a query is compiled, one node per compiled expression and wraps each compiled
+ * function so that it updates its node when it runs. Nodes follow the order the functions compile
+ * their arguments in, which mirrors the query AST.
+ */
+final class QueryProfiler {
+
+  private static final com.sun.management.ThreadMXBean ALLOCATIONS = allocationBean();
+
+  private final Deque<Node> open = new ArrayDeque<>();
+  private final List<Node> roots = new ArrayList<>();
+
+  private static com.sun.management.ThreadMXBean allocationBean() {
+    try {
+      if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean bean
+          && bean.isThreadAllocatedMemorySupported() && bean.isThreadAllocatedMemoryEnabled()) {
+        return bean;
+      }
+    } catch (RuntimeException | LinkageError e) {
+      // No allocation counters on this JVM, the report simply leaves them out
+    }
+    return null;
+  }
+
+  private static long allocatedBytes() {
+    return ALLOCATIONS == null ? 0 : ALLOCATIONS.getCurrentThreadAllocatedBytes();
+  }
+
+  synchronized Function<JsonElement, JsonElement> instrument(JsonElement query,
+                                                            Function<JsonElement, Function<JsonElement, JsonElement>> compile) {
+    Node node = new Node(query);
+    Node parent = open.peek();
+    if (parent == null) {
+      roots.add(node);
+    } else {
+      parent.children.add(node);
+    }
+    open.push(node);
+    Function<JsonElement, JsonElement> compiled;
+    try {
+      compiled = compile.apply(query);
+    } finally {
+      open.pop();
+    }
+    return node.wrap(compiled);
+  }
+
+  /**
+   * Returns the node of the first compiled expression, with the counters cleared of anything that
+   * ran during compilation (constant folding evaluates its operands once).
+   */
+  synchronized Node finish() {
+    for (Node root : roots) {
+      root.reset();
+    }
+    return roots.get(0);
+  }
+
+  static final class Node {
+
+    private final JsonElement query;
+    private final List<Node> children = new ArrayList<>();
+
+    private final LongAdder invocations = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder nanos = new LongAdder();
+    private final LongAdder allocated = new LongAdder();
+    private final LongAdder arrayInputs = new LongAdder();
+    private final LongAdder inputElements = new LongAdder();
+    private final LongAdder arrayOutputs = new LongAdder();
+    private final LongAdder outputElements = new LongAdder();
+
+    private Node(JsonElement query) {
+      this.query = query;
+    }
+
+    private Function<JsonElement, JsonElement> wrap(Function<JsonElement, JsonElement> compiled) {
+      // Keep the specialised interfaces, callers such as filter and add look for them
+      if (compiled instanceof PredicateExpression predicate) {
+        return (PredicateExpression) data -> {
+          long allocatedBefore = enter(data);
+          long start = System.nanoTime();
+          boolean succeeded = false;
+          try {
+            boolean result = predicate.test(data);
+            succeeded = true;
+            return result;
+          } finally {
+            exit(start, allocatedBefore, succeeded, null);
+          }
+        };
+      }
+      if (compiled instanceof NumericExpression numeric) {
+        return (NumericExpression) data -> {
+          long allocatedBefore = enter(data);
+          long start = System.nanoTime();
+          boolean succeeded = false;
+          try {
+            double result = numeric.applyAsDouble(data);
+            succeeded = true;
+            return result;
+          } finally {
+            exit(start, allocatedBefore, succeeded, null);
+          }
+        };
+      }
+      return data -> {
+        long allocatedBefore = enter(data);
+        long start = System.nanoTime();
+        JsonElement result = null;
+        boolean succeeded = false;
+        try {
+          result = compiled.apply(data);
+          succeeded = true;
+          return result;
+        } finally {
+          exit(start, allocatedBefore, succeeded, result);
+        }
+      };
+    }
+
+    private long enter(JsonElement data) {
+      if (data != null && data.isJsonArray()) {
+        arrayInputs.increment();
+        inputElements.add(data.getAsJsonArray().size());
+      }
+      return allocatedBytes();
+    }
+
+    private void exit(long start, long allocatedBefore, boolean succeeded, JsonElement result) {
+      nanos.add(System.nanoTime() - start);
+      allocated.add(allocatedBytes() - allocatedBefore);
+      invocations.increment();
+      if (!succeeded) {
+        errors.increment();
+      }
+      if (result != null && result.isJsonArray()) {
+        arrayOutputs.increment();
+        outputElements.add(result.getAsJsonArray().size());
+      }
+    }
+
+    synchronized void reset() {
+      invocations.reset();
+      errors.reset();
+      nanos.reset();
+      allocated.reset();
+      arrayInputs.reset();
+      inputElements.reset();
+      arrayOutputs.reset();
+      outputElements.reset();
+      for (Node child : children) {
+        child.reset();
+      }
+    }
+
+    synchronized JsonObject toJson() {
+      JsonObject report = new JsonObject();
+      if (query != null && query.isJsonArray() && !query.getAsJsonArray().isEmpty()) {
+        report.add("function", query.getAsJsonArray().get(0).deepCopy());
+      }
+      report.add("query", query == null ? null : query.deepCopy());
+      long total = nanos.sum();
+      long childNanos = 0;
+      JsonArray childReports = new JsonArray();
+      for (Node child : children) {
+        childNanos += child.nanos.sum();
+        childReports.add(child.toJson());
+      }
+      report.addProperty("invocations", invocations.sum());
+      report.addProperty("errors", errors.sum());
+      report.addProperty("totalNanos", total);
+      // Children that ran on other threads (parallel stages) can exceed the parent's own time
+      report.addProperty("selfNanos", Math.max(0, total - childNanos));
+      if (ALLOCATIONS != null) {
+        report.addProperty("allocatedBytes", allocated.sum());
+      }
+      if (arrayInputs.sum() > 0) {
+        report.addProperty("inputElements", inputElements.sum());
+      }
+      if (arrayOutputs.sum() > 0) {
+        report.addProperty("outputElements", outputElements.sum());
+      }
+      if (!childReports.isEmpty()) {
+        report.add("children", childReports);
+      }
+      return report;
+    }
+  }
+}
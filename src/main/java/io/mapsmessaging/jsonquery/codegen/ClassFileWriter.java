@@ -0,0 +1,252 @@
+/*
+ *
+ *  Copyright [ 2020 - 2024 ] Matthew Buckton
+ *  Copyright [ 2024 - 2025 ] MapsMessaging B.V.
+ *
+ *  Licensed under the Apache License, Version 2.0 with the Commons Clause
+ *  (the "License"); you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at:
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *      https://commonsclause.com/
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.mapsmessaging.jsonquery.codegen;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Just enough of a class file writer for the generated predicates: a constant pool, fields and
+ * methods. Every branch target in a method shares one frame (the same locals and an empty operand
+ * stack), which keeps the StackMapTable trivial. Anything that would not fit the class file
+ * limits raises an {@link IllegalStateException}.
+ */
+final class ClassFileWriter {
+
+  static final int ACC_PUBLIC = 0x0001;
+  static final int ACC_PRIVATE = 0x0002;
+  static final int ACC_FINAL = 0x0010;
+  static final int ACC_SUPER = 0x0020;
+
+  // Java 17
+  private static final int CLASS_FILE_VERSION = 61;
+
+  private final ByteArrayOutputStream constants = new ByteArrayOutputStream();
+  private final DataOutputStream constantOut = new DataOutputStream(constants);
+  private final Map<String, Integer> constantIndex = new HashMap<>();
+  private int constantCount = 1;
+
+  private final ByteArrayOutputStream fields = new ByteArrayOutputStream();
+  private final DataOutputStream fieldOut = new DataOutputStream(fields);
+  private final ByteArrayOutputStream methods = new ByteArrayOutputStream();
+  private final DataOutputStream methodOut = new DataOutputStream(methods);
+  private int fieldCount;
+  private int methodCount;
+
+  private final int thisClass;
+  private final int superClass;
+  private final int[] interfaces;
+
+  ClassFileWriter(String name, String superName, String... interfaceNames) {
+    thisClass = classRef(name);
+    superClass = classRef(superName);
+    interfaces = new int[interfaceNames.length];
+    for (int i = 0; i < interfaceNames.length; i++) {
+      interfaces[i] = classRef(interfaceNames[i]);
+    }
+  }
+
+  int thisClass() {
+    return thisClass;
+  }
+
+  int utf8(String value) {
+    return constant("U" + value, 1, out -> {
+      out.writeByte(1);
+      out.writeUTF(value);
+    });
+  }
+
+  int classRef(String internalName) {
+    int name = utf8(internalName);
+    return constant("C" + internalName, 1, out -> {
+      out.writeByte(7);
+      out.writeShort(name);
+    });
+  }
+
+  int string(String value) {
+    int utf8 = utf8(value);
+    return constant("S" + value, 1, out -> {
+      out.writeByte(8);
+      out.writeShort(utf8);
+    });
+  }
+
+  int integer(int value) {
+    return constant("I" + value, 1, out -> {
+      out.writeByte(3);
+      out.writeInt(value);
+    });
+  }
+
+  int doubleValue(double value) {
+    long bits = Double.doubleToRawLongBits(value);
+    return constant("D" + bits, 2, out -> {
+      out.writeByte(6);
+      out.writeLong(bits);
+    });
+  }
+
+  int fieldRef(String owner, String name, String descriptor) {
+    return memberRef(9, owner, name, descriptor);
+  }
+
+  int methodRef(String owner, String name, String descriptor) {
+    return memberRef(10, owner, name, descriptor);
+  }
+
+  int interfaceMethodRef(String owner, String name, String descriptor) {
+    return memberRef(11, owner, name, descriptor);
+  }
+
+  private int memberRef(int tag, String owner, String name, String descriptor) {
+    int ownerIndex = classRef(owner);
+    int nameIndex = utf8(name);
+    int descriptorIndex = utf8(descriptor);
+    int nameAndType = constant("N" + name + ' ' + descriptor, 1, out -> {
+      out.writeByte(12);
+      out.writeShort(nameIndex);
+      out.writeShort(descriptorIndex);
+    });
+    return constant(tag + owner + '.' + name + ' ' + descriptor, 1, out -> {
+      out.writeByte(tag);
+      out.writeShort(ownerIndex);
+      out.writeShort(nameAndType);
+    });
+  }
+
+  private int constant(String key, int slots, ConstantWriter writer) {
+    Integer existing = constantIndex.get(key);
+    if (existing != null) {
+      return existing;
+    }
+    if (constantCount + slots > 0xFFFF) {
+      throw new IllegalStateException("Constant pool too large");
+    }
+    try {
+      writer.write(constantOut);
+    } catch (IOException e) {
+      // Only a string constant longer than 64KB can fail here
+      throw new IllegalStateException("Constant too large", e);
+    }
+    int index = constantCount;
+    constantIndex.put(key, index);
+    constantCount += slots;
+    return index;
+  }
+
+  void addField(int access, String name, String descriptor) {
+    int nameIndex = utf8(name);
+    int descriptorIndex = utf8(descriptor);
+    write(() -> {
+      fieldOut.writeShort(access);
+      fieldOut.writeShort(nameIndex);
+      fieldOut.writeShort(descriptorIndex);
+      fieldOut.writeShort(0);
+    });
+    fieldCount++;
+  }
+
+  /**
+   * Adds a method whose branch targets all use the frame described by {@code frameLocals}, the
+   * constant pool class of each local slot.
+   */
+  void addMethod(int access, String name, String descriptor, CodeWriter code, int... frameLocals) {
+    int nameIndex = utf8(name);
+    int descriptorIndex = utf8(descriptor);
+    int codeName = utf8("Code");
+    byte[] bytecode = code.toByteArray();
+    byte[] frames = code.stackMapTable(frameLocals);
+    int stackMapName = frames.length == 0 ? 0 : utf8("StackMapTable");
+
+    write(() -> {
+      methodOut.writeShort(access);
+      methodOut.writeShort(nameIndex);
+      methodOut.writeShort(descriptorIndex);
+      methodOut.writeShort(1);
+
+      int attributeLength = 12 + bytecode.length + (frames.length == 0 ? 0 : 6 + frames.length);
+      methodOut.writeShort(codeName);
+      methodOut.writeInt(attributeLength);
+      methodOut.writeShort(code.getMaxStack());
+      methodOut.writeShort(code.getMaxLocals());
+      methodOut.writeInt(bytecode.length);
+      methodOut.write(bytecode);
+      methodOut.writeShort(0);
+      if (frames.length == 0) {
+        methodOut.writeShort(0);
+      } else {
+        methodOut.writeShort(1);
+        methodOut.writeShort(stackMapName);
+        methodOut.writeInt(frames.length);
+        methodOut.write(frames);
+      }
+    });
+    methodCount++;
+  }
+
+  byte[] toByteArray() {
+    ByteArrayOutputStream result = new ByteArrayOutputStream(constants.size() + fields.size() + methods.size() + 64);
+    DataOutputStream out = new DataOutputStream(result);
+    write(() -> {
+      out.writeInt(0xCAFEBABE);
+      out.writeShort(0);
+      out.writeShort(CLASS_FILE_VERSION);
+      out.writeShort(constantCount);
+      constants.writeTo(out);
+      out.writeShort(ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+      out.writeShort(thisClass);
+      out.writeShort(superClass);
+      out.writeShort(interfaces.length);
+      for (int anInterface : interfaces) {
+        out.writeShort(anInterface);
+      }
+      out.writeShort(fieldCount);
+      fields.writeTo(out);
+      out.writeShort(methodCount);
+      methods.writeTo(out);
+      out.writeShort(0);
+    });
+    return result.toByteArray();
+  }
+
+  private static void write(IoAction action) {
+    try {
+      action.run();
+    } catch (IOException e) {
+      // Backed by byte arrays, so this cannot happen
+      throw new IllegalStateException(e);
+    }
+  }
+
+  @FunctionalInterface
+  private interface ConstantWriter {
+    void write(DataOutputStream out) throws IOException;
+  }
+
+  @FunctionalInterface
+  private interface IoAction {
+    void run() throws IOException;
+  }
+}
@@ -0,0 +1,215 @@
+/*
+ *
+ *  Copyright [ 2020 - 2024 ] Matthew Buckton
+ *  Copyright [ 2024 - 2025 ] MapsMessaging B.V.
+ *
+ *  Licensed under the Apache License, Version 2.0 with the Commons Clause
+ *  (the "License"); you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at:
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *      https://commonsclause.com/
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.mapsmessaging.jsonquery.codegen;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Bytecode buffer for one method. Branches are written against {@link Label}s and patched once
+ * the method is complete; every bound label records a frame offset for the StackMapTable.
+ */
+final class CodeWriter {
+
+  static final int ACONST_NULL = 0x01;
+  static final int ICONST_0 = 0x03;
+  static final int ICONST_1 = 0x04;
+  static final int BIPUSH = 0x10;
+  static final int SIPUSH = 0x11;
+  static final int LDC = 0x12;
+  static final int LDC_W = 0x13;
+  static final int LDC2_W = 0x14;
+  static final int ALOAD = 0x19;
+  static final int AALOAD = 0x32;
+  static final int ASTORE = 0x3a;
+  static final int IFEQ = 0x99;
+  static final int IFNE = 0x9a;
+  static final int IFLT = 0x9b;
+  static final int IFGE = 0x9c;
+  static final int IFGT = 0x9d;
+  static final int IFLE = 0x9e;
+  static final int IF_ICMPLE = 0xa4;
+  static final int GOTO = 0xa7;
+  static final int IRETURN = 0xac;
+  static final int RETURN = 0xb1;
+  static final int GETFIELD = 0xb4;
+  static final int PUTFIELD = 0xb5;
+  static final int INVOKEVIRTUAL = 0xb6;
+  static final int INVOKESPECIAL = 0xb7;
+  static final int INVOKESTATIC = 0xb8;
+  static final int INVOKEINTERFACE = 0xb9;
+  static final int CHECKCAST = 0xc0;
+  static final int INSTANCEOF = 0xc1;
+  static final int IFNULL = 0xc6;
+
+  private static final int MAX_CODE_LENGTH = 0xFFFF;
+
+  private byte[] code = new byte[256];
+  private int length;
+  private final List<Jump> jumps = new ArrayList<>();
+  private final TreeSet<Integer> frameOffsets = new TreeSet<>();
+  private final int maxStack;
+  private final int maxLocals;
+
+  CodeWriter(int maxStack, int maxLocals) {
+    this.maxStack = maxStack;
+    this.maxLocals = maxLocals;
+  }
+
+  int getMaxStack() {
+    return maxStack;
+  }
+
+  int getMaxLocals() {
+    return maxLocals;
+  }
+
+  void op(int opcode) {
+    put(opcode);
+  }
+
+  /**
+   * Writes an instruction with a two byte operand, a constant pool index for most opcodes.
+   */
+  void op(int opcode, int operand) {
+    put(opcode);
+    putShort(operand);
+  }
+
+  void local(int opcode, int slot) {
+    put(opcode);
+    put(slot);
+  }
+
+  void invokeInterface(int methodRef, int argumentSlots) {
+    op(INVOKEINTERFACE, methodRef);
+    put(argumentSlots + 1);
+    put(0);
+  }
+
+  void pushInt(ClassFileWriter classFile, int value) {
+    if (value >= -1 && value <= 5) {
+      put(ICONST_0 + value);
+    } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+      put(BIPUSH);
+      put(value);
+    } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+      op(SIPUSH, value);
+    } else {
+      loadConstant(classFile.integer(value));
+    }
+  }
+
+  void loadConstant(int index) {
+    if (index <= 0xFF) {
+      put(LDC);
+      put(index);
+    } else {
+      op(LDC_W, index);
+    }
+  }
+
+  void jump(int opcode, Label target) {
+    jumps.add(new Jump(length, target));
+    op(opcode, 0);
+  }
+
+  void bind(Label label) {
+    if (label.offset >= 0) {
+      throw new IllegalStateException("Label already bound");
+    }
+    label.offset = length;
+    frameOffsets.add(length);
+  }
+
+  byte[] toByteArray() {
+    if (length > MAX_CODE_LENGTH) {
+      throw new IllegalStateException("Method too large");
+    }
+    for (Jump jump : jumps) {
+      if (jump.target.offset < 0) {
+        throw new IllegalStateException("Unbound label");
+      }
+      int delta = jump.target.offset - jump.offset;
+      if (delta < Short.MIN_VALUE || delta > Short.MAX_VALUE) {
+        throw new IllegalStateException("Method too large");
+      }
+      code[jump.offset + 1] = (byte) (delta >> 8);
+      code[jump.offset + 2] = (byte) delta;
+    }
+    return Arrays.copyOf(code, length);
+  }
+
+  /**
+   * Full frames at every bound label, each with the given locals and an empty stack.
+   */
+  byte[] stackMapTable(int... frameLocals) {
+    if (frameOffsets.isEmpty()) {
+      return new byte[0];
+    }
+    ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(buffer);
+    try {
+      out.writeShort(frameOffsets.size());
+      int previous = -1;
+      for (int offset : frameOffsets) {
+        out.writeByte(255);
+        out.writeShort(offset - previous - 1);
+        out.writeShort(frameLocals.length);
+        for (int local : frameLocals) {
+          out.writeByte(7);
+          out.writeShort(local);
+        }
+        out.writeShort(0);
+        previous = offset;
+      }
+    } catch (IOException e) {
+      throw new IllegalStateException(e);
+    }
+    return buffer.toByteArray();
+  }
+
+  private void put(int value) {
+    if (length == code.length) {
+      if (length >= MAX_CODE_LENGTH) {
+        throw new IllegalStateException("Method too large");
+      }
+      code = Arrays.copyOf(code, Math.min(code.length * 2, MAX_CODE_LENGTH + 1));
+    }
+    code[length++] = (byte) value;
+  }
+
+  private void putShort(int value) {
+    put(value >> 8);
+    put(value);
+  }
+
+  static final class Label {
+    private int offset = -1;
+  }
+
+  private record Jump(int offset, Label target) {
+  }
+}
@@ -0,0 +1,473 @@
+/*
+ *
+ *  Copyright [ 2020 - 2024 ] Matthew Buckton
+ *  Copyright [ 2024 - 2025 ] MapsMessaging B.V.
+ *
+ *  Licensed under the Apache License, Version 2.0 with the Commons Clause
+ *  (the "License"); you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at:
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *      https://commonsclause.com/
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.mapsmessaging.jsonquery.codegen;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonPrimitive;
+import io.mapsmessaging.jsonquery.JsonQueryCompiler;
+import io.mapsmessaging.jsonquery.codegen.CodeWriter.Label;
+import io.mapsmessaging.jsonquery.functions.GetFunction;
+import io.mapsmessaging.jsonquery.functions.JsonQueryFunction;
+import io.mapsmessaging.jsonquery.functions.NotFunction;
+import io.mapsmessaging.jsonquery.functions.PredicateExpression;
+import io.mapsmessaging.jsonquery.functions.binary.EqFunction;
+import io.mapsmessaging.jsonquery.functions.binary.GtFunction;
+import io.mapsmessaging.jsonquery.functions.binary.GteFunction;
+import io.mapsmessaging.jsonquery.functions.binary.LtFunction;
+import io.mapsmessaging.jsonquery.functions.binary.LteFunction;
+import io.mapsmessaging.jsonquery.functions.binary.NeFunction;
+import io.mapsmessaging.jsonquery.functions.logic.AndFunction;
+import io.mapsmessaging.jsonquery.functions.logic.OperandOrder;
+import io.mapsmessaging.jsonquery.functions.logic.OrFunction;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static io.mapsmessaging.jsonquery.codegen.CodeWriter.*;
+
+/**
+ * Compiles predicate trees into a hidden class with a single straight-line {@code test} method.
+ * <p>
+ * Templates exist for {@code eq}, {@code ne}, {@code gt}, {@code gte}, {@code lt} and {@code lte}
+ * between a {@code get} path and a constant, combined with {@code and}, {@code or} and
+ * {@code not}. The path walk, the type checks and the comparison are inlined, so the JIT sees one
+ * method instead of a tree of megamorphic {@code Function.apply} calls. Any other operand is
+ * compiled as usual and called through a final field. Results are identical to the closure path.
+ */
+public final class PredicateCodeGenerator {
+
+  private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+  private static final String CLASS_NAME = "io/mapsmessaging/jsonquery/codegen/GeneratedPredicate";
+
+  private static final String OBJECT = "java/lang/Object";
+  private static final String STRING = "java/lang/String";
+  private static final String JSON_ELEMENT = "com/google/gson/JsonElement";
+  private static final String JSON_OBJECT = "com/google/gson/JsonObject";
+  private static final String JSON_ARRAY = "com/google/gson/JsonArray";
+  private static final String JSON_PRIMITIVE = "com/google/gson/JsonPrimitive";
+  private static final String JSON_NULL = "com/google/gson/JsonNull";
+  private static final String PREDICATE = "io/mapsmessaging/jsonquery/functions/PredicateExpression";
+  private static final String PREDICATE_DESCRIPTOR = "L" + PREDICATE + ";";
+  private static final String ELEMENT_DESCRIPTOR = "L" + JSON_ELEMENT + ";";
+
+  private static final int THIS = 0;
+  private static final int DATA = 1;
+  private static final int VALUE = 2;
+
+  private PredicateCodeGenerator() {
+  }
+
+  /**
+   * Returns a generated predicate for the call, or null when the call has no template (or the
+   * class could not be defined) and should be compiled as a closure.
+   */
+  public static PredicateExpression generate(JsonQueryFunction function, List<JsonElement> rawArgs,
+                                             JsonQueryCompiler compiler) {
+    Node root = template(function, rawArgs, compiler);
+    if (root == null || !root.inlines()) {
+      return null;
+    }
+    try {
+      return new Emitter(compiler).define(root);
+    } catch (IllegalStateException | IllegalAccessException | NoSuchMethodException | LinkageError e) {
+      // Too large for one method, or rejected by the JVM; the closures give the same results
+      return null;
+    }
+  }
+
+  private static Node template(JsonQueryFunction function, List<JsonElement> rawArgs, JsonQueryCompiler compiler) {
+    Operator operator = Operator.of(function);
+    if (operator != null) {
+      return rawArgs.size() == 2 ? comparison(operator, rawArgs.get(0), rawArgs.get(1), compiler) : null;
+    }
+    if ((function instanceof AndFunction || function instanceof OrFunction) && !rawArgs.isEmpty()) {
+      List<Node> operands = new ArrayList<>(rawArgs.size());
+      for (JsonElement rawArg : OperandOrder.reorder(rawArgs, compiler)) {
+        operands.add(operand(rawArg, compiler));
+      }
+      return new Logic(function instanceof AndFunction, operands);
+    }
+    if (function instanceof NotFunction && rawArgs.size() == 1) {
+      return new Negation(operand(rawArgs.get(0), compiler));
+    }
+    return null;
+  }
+
+  private static Node operand(JsonElement expression, JsonQueryCompiler compiler) {
+    JsonQueryFunction function = compiler.functionOf(expression);
+    if (function != null && !compiler.isConstant(expression)) {
+      JsonArray array = expression.getAsJsonArray();
+      List<JsonElement> rawArgs = new ArrayList<>(array.size() - 1);
+      for (int i = 1; i < array.size(); i++) {
+        rawArgs.add(array.get(i));
+      }
+      Node node = template(function, rawArgs, compiler);
+      if (node != null) {
+        return node;
+      }
+    }
+    return new Opaque(expression);
+  }
+
+  private static Node comparison(Operator operator, JsonElement left, JsonElement right, JsonQueryCompiler compiler) {
+    List<JsonPrimitive> path = path(left, compiler);
+    JsonElement constant = path == null ? null : constant(right, compiler);
+    if (constant != null) {
+      return new Comparison(operator, path, constant);
+    }
+    path = path(right, compiler);
+    constant = path == null ? null : constant(left, compiler);
+    if (constant != null) {
+      return new Comparison(operator.flipped(), path, constant);
+    }
+    return null;
+  }
+
+  private static List<JsonPrimitive> path(JsonElement expression, JsonQueryCompiler compiler) {
+    if (!(compiler.functionOf(expression) instanceof GetFunction)) {
+      return null;
+    }
+    JsonArray array = expression.getAsJsonArray();
+    List<JsonPrimitive> path = new ArrayList<>(array.size() - 1);
+    for (int i = 1; i < array.size(); i++) {
+      JsonElement segment = array.get(i);
+      if (!segment.isJsonPrimitive()) {
+        return null;
+      }
+      JsonPrimitive primitive = segment.getAsJsonPrimitive();
+      if (primitive.isNumber()) {
+        // Malformed and negative indices stay on the closure path
+        BigDecimal index = primitive.getAsBigDecimal();
+        if (index.scale() > 0 || index.signum() < 0 || index.compareTo(BigDecimal.valueOf(Integer.MAX_VALUE)) > 0) {
+          return null;
+        }
+      } else if (!primitive.isString()) {
+        return null;
+      }
+      path.add(primitive);
+    }
+    return path;
+  }
+
+  private static JsonElement constant(JsonElement expression, JsonQueryCompiler compiler) {
+    JsonElement value = expression;
+    if (expression.isJsonArray()) {
+      if (!compiler.isConstant(expression)) {
+        return null;
+      }
+      try {
+        value = compiler.compile(expression).apply(JsonNull.INSTANCE);
+      } catch (RuntimeException e) {
+        return null;
+      }
+      if (value == null) {
+        value = JsonNull.INSTANCE;
+      }
+    }
+    return value.isJsonNull() || value.isJsonPrimitive() ? value : null;
+  }
+
+  private enum Operator {
+    EQ(IFEQ), NE(IFNE), GT(IFGT), GTE(IFGE), LT(IFLT), LTE(IFLE);
+
+    // Jumps when the int comparison result satisfies the operator
+    private final int opcode;
+
+    Operator(int opcode) {
+      this.opcode = opcode;
+    }
+
+    private static Operator of(JsonQueryFunction function) {
+      if (function instanceof EqFunction) {
+        return EQ;
+      }
+      if (function instanceof NeFunction) {
+        return NE;
+      }
+      if (function instanceof GtFunction) {
+        return GT;
+      }
+      if (function instanceof GteFunction) {
+        return GTE;
+      }
+      if (function instanceof LtFunction) {
+        return LT;
+      }
+      if (function instanceof LteFunction) {
+        return LTE;
+      }
+      return null;
+    }
+
+    private Operator flipped() {
+      return switch (this) {
+        case GT -> LT;
+        case GTE -> LTE;
+        case LT -> GT;
+        case LTE -> GTE;
+        default -> this;
+      };
+    }
+  }
+
+  private sealed interface Node permits Comparison, Logic, Negation, Opaque {
+    boolean inlines();
+  }
+
+  private record Comparison(Operator operator, List<JsonPrimitive> path, JsonElement constant) implements Node {
+    @Override
+    public boolean inlines() {
+      return true;
+    }
+  }
+
+  private record Logic(boolean conjunction, List<Node> operands) implements Node {
+    @Override
+    public boolean inlines() {
+      for (Node operand : operands) {
+        if (operand.inlines()) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+
+  private record Negation(Node operand) implements Node {
+    @Override
+    public boolean inlines() {
+      return operand.inlines();
+    }
+  }
+
+  private record Opaque(JsonElement expression) implements Node {
+    @Override
+    public boolean inlines() {
+      return false;
+    }
+  }
+
+  private static final class Emitter {
+
+    private final JsonQueryCompiler compiler;
+    private final ClassFileWriter classFile = new ClassFileWriter(CLASS_NAME, OBJECT, PREDICATE);
+    private final CodeWriter code = new CodeWriter(4, 3);
+    private final List<PredicateExpression> fallbacks = new ArrayList<>();
+
+    private Emitter(JsonQueryCompiler compiler) {
+      this.compiler = compiler;
+    }
+
+    private PredicateExpression define(Node root) throws IllegalAccessException, NoSuchMethodException {
+      // boolean test(JsonElement data): jump to "rejected" when the tree is false
+      code.op(ACONST_NULL);
+      code.local(ASTORE, VALUE);
+      Label rejected = new Label();
+      branch(root, false, rejected);
+      code.op(ICONST_1);
+      code.op(IRETURN);
+      code.bind(rejected);
+      code.op(ICONST_0);
+      code.op(IRETURN);
+      int element = classFile.classRef(JSON_ELEMENT);
+      classFile.addMethod(ClassFileWriter.ACC_PUBLIC, "test", "(" + ELEMENT_DESCRIPTOR + ")Z", code,
+          classFile.thisClass(), element, element);
+
+      // Constructor storing each fallback predicate in its own final field
+      CodeWriter constructor = new CodeWriter(3, 2);
+      constructor.local(ALOAD, THIS);
+      constructor.op(INVOKESPECIAL, classFile.methodRef(OBJECT, "<init>", "()V"));
+      for (int i = 0; i < fallbacks.size(); i++) {
+        classFile.addField(ClassFileWriter.ACC_PRIVATE | ClassFileWriter.ACC_FINAL, fieldName(i), PREDICATE_DESCRIPTOR);
+        constructor.local(ALOAD, THIS);
+        constructor.local(ALOAD, 1);
+        constructor.pushInt(classFile, i);
+        constructor.op(AALOAD);
+        constructor.op(PUTFIELD, classFile.fieldRef(CLASS_NAME, fieldName(i), PREDICATE_DESCRIPTOR));
+      }
+      constructor.op(RETURN);
+      classFile.addMethod(ClassFileWriter.ACC_PUBLIC, "<init>", "([" + PREDICATE_DESCRIPTOR + ")V", constructor);
+
+      MethodHandles.Lookup lookup = LOOKUP.defineHiddenClass(classFile.toByteArray(), true);
+      MethodHandle factory = lookup.findConstructor(lookup.lookupClass(),
+          MethodType.methodType(void.class, PredicateExpression[].class));
+      PredicateExpression[] arguments = fallbacks.toArray(new PredicateExpression[0]);
+      try {
+        return (PredicateExpression) factory.invoke(arguments);
+      } catch (Throwable e) {
+        // The constructor only assigns fields
+        throw new IllegalStateException("Unable to create generated predicate", e);
+      }
+    }
+
+    /**
+     * Jumps to {@code target} when the node evaluates to {@code jumpWhen}, otherwise falls through.
+     */
+    private void branch(Node node, boolean jumpWhen, Label target) {
+      if (node instanceof Comparison comparison) {
+        Label next = new Label();
+        if (jumpWhen) {
+          comparison(comparison, target, next);
+        } else {
+          comparison(comparison, next, target);
+        }
+        code.bind(next);
+      } else if (node instanceof Negation negation) {
+        branch(negation.operand(), !jumpWhen, target);
+      } else if (node instanceof Logic logic) {
+        // and jumps on the first false operand, or on the first true one
+        boolean shortCircuit = !logic.conjunction();
+        List<Node> operands = logic.operands();
+        if (jumpWhen == shortCircuit) {
+          for (Node operand : operands) {
+            branch(operand, jumpWhen, target);
+          }
+        } else {
+          Label next = new Label();
+          for (int i = 0; i < operands.size() - 1; i++) {
+            branch(operands.get(i), shortCircuit, next);
+          }
+          branch(operands.get(operands.size() - 1), jumpWhen, target);
+          code.bind(next);
+        }
+      } else {
+        Opaque opaque = (Opaque) node;
+        int index = fallbacks.size();
+        fallbacks.add(PredicateExpression.of(compiler.compile(opaque.expression())));
+        code.local(ALOAD, THIS);
+        code.op(GETFIELD, classFile.fieldRef(CLASS_NAME, fieldName(index), PREDICATE_DESCRIPTOR));
+        code.local(ALOAD, DATA);
+        code.invokeInterface(classFile.interfaceMethodRef(PREDICATE, "test", "(" + ELEMENT_DESCRIPTOR + ")Z"), 1);
+        code.jump(jumpWhen ? IFNE : IFEQ, target);
+      }
+    }
+
+    /**
+     * Ends with a jump to either {@code yes} or {@code no}, so nothing falls through.
+     */
+    private void comparison(Comparison comparison, Label yes, Label no) {
+      Operator operator = comparison.operator();
+      JsonElement constant = comparison.constant();
+      boolean negated = operator == Operator.NE;
+
+      if (constant.isJsonNull()) {
+        // Only a missing or null value matches; ne is the inverse
+        Label isNull = new Label();
+        path(comparison.path(), isNull);
+        code.local(ALOAD, VALUE);
+        code.jump(IFNULL, isNull);
+        code.local(ALOAD, VALUE);
+        code.op(INSTANCEOF, classFile.classRef(JSON_NULL));
+        code.jump(IFEQ, negated ? yes : no);
+        code.bind(isNull);
+        code.jump(GOTO, negated ? no : yes);
+        return;
+      }
+
+      // Against a non-null constant, missing values and values of another type answer alike
+      Label other = negated ? yes : no;
+      path(comparison.path(), other);
+      code.local(ALOAD, VALUE);
+      code.op(INSTANCEOF, classFile.classRef(JSON_PRIMITIVE));
+      code.jump(IFEQ, other);
+
+      JsonPrimitive primitive = constant.getAsJsonPrimitive();
+      if (primitive.isNumber()) {
+        primitiveCall("isNumber", "()Z");
+        code.jump(IFEQ, other);
+        primitiveCall("getAsDouble", "()D");
+        code.op(LDC2_W, classFile.doubleValue(primitive.getAsDouble()));
+        code.op(INVOKESTATIC, classFile.methodRef("java/lang/Double", "compare", "(DD)I"));
+        code.jump(operator.opcode, yes);
+      } else if (primitive.isString()) {
+        primitiveCall("isString", "()Z");
+        code.jump(IFEQ, other);
+        primitiveCall("getAsString", "()L" + STRING + ";");
+        code.loadConstant(classFile.string(primitive.getAsString()));
+        if (operator == Operator.EQ || negated) {
+          code.op(INVOKEVIRTUAL, classFile.methodRef(STRING, "equals", "(L" + OBJECT + ";)Z"));
+          code.jump(negated ? IFEQ : IFNE, yes);
+        } else {
+          code.op(INVOKEVIRTUAL, classFile.methodRef(STRING, "compareTo", "(L" + STRING + ";)I"));
+          code.jump(operator.opcode, yes);
+        }
+      } else {
+        primitiveCall("isBoolean", "()Z");
+        code.jump(IFEQ, other);
+        primitiveCall("getAsBoolean", "()Z");
+        code.pushInt(classFile, primitive.getAsBoolean() ? 1 : 0);
+        code.op(INVOKESTATIC, classFile.methodRef("java/lang/Boolean", "compare", "(ZZ)I"));
+        code.jump(operator.opcode, yes);
+      }
+      code.jump(GOTO, no);
+    }
+
+    /**
+     * Walks the path from the input into the value local, jumping to {@code missing} when a
+     * segment cannot be followed. A missing member leaves null in the local.
+     */
+    private void path(List<JsonPrimitive> path, Label missing) {
+      code.local(ALOAD, DATA);
+      code.local(ASTORE, VALUE);
+      for (JsonPrimitive segment : path) {
+        if (segment.isString()) {
+          code.local(ALOAD, VALUE);
+          code.op(INSTANCEOF, classFile.classRef(JSON_OBJECT));
+          code.jump(IFEQ, missing);
+          code.local(ALOAD, VALUE);
+          code.op(CHECKCAST, classFile.classRef(JSON_OBJECT));
+          code.loadConstant(classFile.string(segment.getAsString()));
+          code.op(INVOKEVIRTUAL, classFile.methodRef(JSON_OBJECT, "get", "(L" + STRING + ";)" + ELEMENT_DESCRIPTOR));
+        } else {
+          int index = segment.getAsInt();
+          code.local(ALOAD, VALUE);
+          code.op(INSTANCEOF, classFile.classRef(JSON_ARRAY));
+          code.jump(IFEQ, missing);
+          code.local(ALOAD, VALUE);
+          code.op(CHECKCAST, classFile.classRef(JSON_ARRAY));
+          code.op(INVOKEVIRTUAL, classFile.methodRef(JSON_ARRAY, "size", "()I"));
+          code.pushInt(classFile, index);
+          code.jump(IF_ICMPLE, missing);
+          code.local(ALOAD, VALUE);
+          code.op(CHECKCAST, classFile.classRef(JSON_ARRAY));
+          code.pushInt(classFile, index);
+          code.op(INVOKEVIRTUAL, classFile.methodRef(JSON_ARRAY, "get", "(I)" + ELEMENT_DESCRIPTOR));
+        }
+        code.local(ASTORE, VALUE);
+      }
+    }
+
+    private void primitiveCall(String name, String descriptor) {
+      code.local(ALOAD, VALUE);
+      code.op(CHECKCAST, classFile.classRef(JSON_PRIMITIVE));
+      code.op(INVOKEVIRTUAL, classFile.methodRef(JSON_PRIMITIVE, name, descriptor));
+    }
+
+    private static String fieldName(int index) {
+      return "fallback" + index;
+    }
+  }
+}
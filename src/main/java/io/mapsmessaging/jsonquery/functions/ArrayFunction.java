@@ -35,6 +35,11 @@ public final class ArrayFunction extends AbstractFunction {
     return "array";
   }
 
+  @Override
+  public boolean isPure() {
+    return true;
+  }
+
   @Override
   public Function<JsonElement, JsonElement> compile(List<JsonElement> rawArgs, JsonQueryCompiler compiler) {
     if (rawArgs == null || rawArgs.isEmpty()) {
@@ -0,0 +1,40 @@
+/*
+ *
+ *  Copyright [ 2020 - 2024 ] Matthew Buckton
+ *  Copyright [ 2024 - 2025 ] MapsMessaging B.V.
+ *
+ *  Licensed under the Apache License, Version 2.0 with the Commons Clause
+ *  (the "License"); you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at:
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *      https://commonsclause.com/
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.mapsmessaging.jsonquery.functions;
+
+import com.google.gson.JsonElement;
+import io.mapsmessaging.jsonquery.JsonQueryCompiler;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * A function that processes an array one element at a time and keeps the results in order
+ * (filter, selector, map, pick). Streaming execution applies it to each element as it is read
+ * instead of wrapping the element in a single element array.
+ */
+public interface ElementWiseFunction extends JsonQueryFunction {
+
+  /**
+   * Compiles the stage for a single array element. The returned function gives what the stage
+   * writes to its result for that element, or null when the stage drops it.
+   */
+  Function<JsonElement, JsonElement> compileElement(List<JsonElement> rawArgs, JsonQueryCompiler compiler);
+}
@@ -99,6 +99,21 @@ public final class ExistsFunction extends AbstractFunction {
     return "exists";
   }
 
+  @Override
+  public boolean isPure() {
+    return true;
+  }
+
+  @Override
+  public int cost() {
+    return 1;
+  }
+
+  @Override
+  public boolean isInfallible(List<JsonElement> rawArgs, JsonQueryCompiler compiler) {
+    return true;
+  }
+
   @Override
   public Function<JsonElement, JsonElement> compile(List<JsonElement> rawArgs, JsonQueryCompiler compiler) {
     requireArgCountExact(rawArgs, 1, "1 argument: exists(expr)");
@@ -109,12 +124,12 @@ public final class ExistsFunction extends AbstractFunction {
     Function<JsonElement, JsonElement> arg = compileArg(rawExpr, compiler);
 
     if (getPath != null) {
-      return data -> new JsonPrimitive(pathExists(data, getPath));
+      return (PredicateExpression) data -> pathExists(data, getPath);
     }
 
-    return data -> {
+    return (PredicateExpression) data -> {
       JsonElement value = arg.apply(data);
-      return new JsonPrimitive(value != null && !value.isJsonNull());
+      return value != null && !value.isJsonNull();
     };
   }
 }
@@ -23,12 +23,14 @@ import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonNull;
 import com.google.gson.JsonPrimitive;
+import io.mapsmessaging.jsonquery.ExecutionContext;
 import io.mapsmessaging.jsonquery.JsonQueryCompiler;
 
 import java.util.List;
 import java.util.function.Function;
+import java.util.function.Predicate;
 
-public final class FilterFunction implements JsonQueryFunction {
+public final class FilterFunction implements ElementWiseFunction {
 
   private static boolean isTruthy(JsonElement value) {
     if (value == null || value.isJsonNull()) {
@@ -57,14 +59,29 @@ public final class FilterFunction implements JsonQueryFunction {
     return "filter";
   }
 
-  @Override
-  public Function<JsonElement, JsonElement> compile(List<JsonElement> rawArgs, JsonQueryCompiler compiler) {
+  private static Predicate<JsonElement> predicateOf(List<JsonElement> rawArgs, JsonQueryCompiler compiler) {
     if (rawArgs.size() != 1) {
       throw new IllegalArgumentException("filter expects 1 argument");
     }
 
     JsonElement predicateExpression = rawArgs.get(0);
-    Function<JsonElement, JsonElement> predicate = compiler.compile(predicateExpression);
+    Function<JsonElement, JsonElement> compiled = compiler.compile(predicateExpression);
+    // Boolean nodes are tested directly, anything else uses the filter truthiness (strings are kept)
+    return compiled instanceof PredicateExpression expression
+        ? expression::test
+        : element -> isTruthy(compiled.apply(element));
+  }
+
+  @Override
+  public Function<JsonElement, JsonElement> compileElement(List<JsonElement> rawArgs, JsonQueryCompiler compiler) {
+    Predicate<JsonElement> predicate = predicateOf(rawArgs, compiler);
+    return element -> predicate.test(element) ? element : null;
+  }
+
+  @Override
+  public Function<JsonElement, JsonElement> compile(List<JsonElement> rawArgs, JsonQueryCompiler compiler) {
+    Predicate<JsonElement> predicate = predicateOf(rawArgs, compiler);
+    ParallelArrays parallel = ParallelArrays.of(compiler);
 
     return data -> {
       if (data == null || data.isJsonNull()) {
@@ -76,13 +93,21 @@ public final class FilterFunction implements JsonQueryFunction {
       }
 
       JsonArray inputArray = data.getAsJsonArray();
+      if (parallel != null && parallel.covers(inputArray)) {
+        return parallel.filter(inputArray, predicate);
+      }
       JsonArray outputArray = new JsonArray();
+      ExecutionContext budget = ExecutionContext.current();
 
       for (int index = 0; index < inputArray.size(); index++) {
         JsonElement element = inputArray.get(index);
-        JsonElement predicateResult = predicate.apply(element);
-
-        if (isTruthy(predicateResult)) {
+        if (budget != null) {
+          budget.step();
+        }
+        if (predicate.test(element)) {
+          if (budget != null) {
+            budget.emit(element);
+          }
           outputArray.add(element);
         }
       }
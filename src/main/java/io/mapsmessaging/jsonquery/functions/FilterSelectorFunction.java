@@ -23,6 +23,7 @@ import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonNull;
 import com.google.gson.JsonObject;
+import io.mapsmessaging.jsonquery.ExecutionContext;
 import io.mapsmessaging.jsonquery.JsonQueryCompiler;
 import io.mapsmessaging.selector.ParseException;
 import io.mapsmessaging.selector.SelectorParser;
@@ -30,35 +31,60 @@ import io.mapsmessaging.selector.operators.ParserExecutor;
 
 import java.util.List;
 import java.util.function.Function;
+import java.util.function.Predicate;
 
-public final class FilterSelectorFunction implements JsonQueryFunction {
+public final class FilterSelectorFunction implements ElementWiseFunction {
 
   @Override
   public String getName() {
     return "selector";
   }
 
-  @Override
-  public Function<JsonElement, JsonElement> compile(List<JsonElement> rawArgs, JsonQueryCompiler compiler) {
+  private static String selectorOf(List<JsonElement> rawArgs) {
     if (rawArgs.size() != 1) {
       throw new IllegalArgumentException("filter expects 1 argument: a JMS selector string");
     }
+    return JsonQueryGson.requireString(rawArgs.get(0), "filter selector must be a string");
+  }
 
-    String selector = JsonQueryGson.requireString(rawArgs.get(0), "filter selector must be a string");
-
-    ParserExecutor executor;
+  private static ParserExecutor executorOf(String selector) {
     try {
-      executor = SelectorParser.compile(selector);
+      return SelectorParser.compile(selector);
     } catch (ParseException e) {
       throw new IllegalArgumentException("Invalid selector: " + selector, e);
     }
+  }
+
+  private static Predicate<JsonObject> matcherOf(String selector, ParserExecutor executor, JsonQueryCompiler compiler) {
+    // Supported selectors run as engine predicates; the executor stays for everything else
+    PredicateExpression translated = compiler.getOptions().isSelectorTranslation()
+        ? SelectorTranslator.translate(selector, compiler)
+        : null;
+    return translated != null ? translated::test : executor::evaluate;
+  }
+
+  @Override
+  public Function<JsonElement, JsonElement> compileElement(List<JsonElement> rawArgs, JsonQueryCompiler compiler) {
+    String selector = selectorOf(rawArgs);
+    Predicate<JsonObject> matches = matcherOf(selector, executorOf(selector), compiler);
+    return element -> element != null && element.isJsonObject() && matches.test(element.getAsJsonObject())
+        ? element
+        : null;
+  }
+
+  @Override
+  public Function<JsonElement, JsonElement> compile(List<JsonElement> rawArgs, JsonQueryCompiler compiler) {
+    String selector = selectorOf(rawArgs);
+    ParserExecutor executor = executorOf(selector);
+    Predicate<JsonObject> matches = matcherOf(selector, executor, compiler);
+    ParallelArrays parallel = ParallelArrays.of(compiler);
 
     return data -> {
       if (data == null || data.isJsonNull()) {
         return JsonNull.INSTANCE;
       }
       if (!data.isJsonArray()) {
-        if(executor.evaluate(data)){
+        if (data.isJsonObject() ? matches.test(data.getAsJsonObject()) : executor.evaluate(data)) {
           return data;
         }
         else{
@@ -67,13 +93,24 @@ public final class FilterSelectorFunction implements JsonQueryFunction {
       }
 
       JsonArray inputArray = data.getAsJsonArray();
+      if (parallel != null && parallel.covers(inputArray)) {
+        return parallel.filter(inputArray, element -> element != null && element.isJsonObject()
+            && matches.test(element.getAsJsonObject()));
+      }
       JsonArray outputArray = new JsonArray();
+      ExecutionContext budget = ExecutionContext.current();
 
       for (int i = 0; i < inputArray.size(); i++) {
         JsonElement element = inputArray.get(i);
+        if (budget != null) {
+          budget.step();
+        }
         if (element != null && element.isJsonObject()) {
           JsonObject object = element.getAsJsonObject();
-          if (executor.evaluate(object)) {
+          if (matches.test(object)) {
+            if (budget != null) {
+              budget.emit(object);
+            }
             outputArray.add(object);
           }
         }
@@ -22,6 +22,7 @@ package io.mapsmessaging.jsonquery.functions;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonNull;
+import io.mapsmessaging.jsonquery.ExecutionContext;
 import io.mapsmessaging.jsonquery.JsonQueryCompiler;
 
 import java.util.List;
@@ -50,23 +51,32 @@ public final class FlattenFunction implements JsonQueryFunction {
 
       JsonArray input = data.getAsJsonArray();
       JsonArray output = new JsonArray();
+      ExecutionContext budget = ExecutionContext.current();
 
       for (JsonElement element : input) {
         if (element == null || element.isJsonNull()) {
-          output.add(JsonNull.INSTANCE);
+          add(output, JsonNull.INSTANCE, budget);
           continue;
         }
 
         if (element.isJsonArray()) {
           for (JsonElement inner : element.getAsJsonArray()) {
-            output.add(inner == null ? JsonNull.INSTANCE : inner);
+            add(output, inner == null ? JsonNull.INSTANCE : inner, budget);
           }
         } else {
-          output.add(element);
+          add(output, element, budget);
         }
       }
 
       return output;
     };
   }
+
+  private static void add(JsonArray output, JsonElement element, ExecutionContext budget) {
+    if (budget != null) {
+      budget.step();
+      budget.emit(element);
+    }
+    output.add(element);
+  }
 }
@@ -28,11 +28,37 @@ import java.util.function.Function;
 
 public final class GetFunction implements JsonQueryFunction {
 
+  private static JsonElement member(JsonElement current, String key) {
+    if (current instanceof JsonObject object) {
+      JsonElement next = object.get(key);
+      return next == null ? JsonNull.INSTANCE : next;
+    }
+    return JsonNull.INSTANCE;
+  }
+
+  private static JsonElement element(JsonElement current, int index) {
+    if (current instanceof JsonArray array && index >= 0 && index < array.size()) {
+      JsonElement next = array.get(index);
+      return next == null ? JsonNull.INSTANCE : next;
+    }
+    return JsonNull.INSTANCE;
+  }
+
   @Override
   public String getName() {
     return "get";
   }
 
+  @Override
+  public int cost() {
+    return 1;
+  }
+
+  @Override
+  public boolean isInfallible(List<JsonElement> rawArgs, JsonQueryCompiler compiler) {
+    return true;
+  }
+
   @Override
   public Function<JsonElement, JsonElement> compile(List<JsonElement> rawArgs, JsonQueryCompiler compiler) {
     if (rawArgs.isEmpty()) {
@@ -61,42 +87,40 @@ public final class GetFunction implements JsonQueryFunction {
       }
     }
 
-    return data -> {
-      JsonElement current = data == null ? JsonNull.INSTANCE : data;
-
-      for (JsonElement rawArg : rawArgs) {
-        if (current == null || current.isJsonNull()) {
-          return JsonNull.INSTANCE;
-        }
-
-        JsonPrimitive primitive = rawArg.getAsJsonPrimitive();
-
-        if (primitive.isString()) {
-          if (!current.isJsonObject()) {
-            return JsonNull.INSTANCE;
-          }
-
-          JsonObject object = current.getAsJsonObject();
-          JsonElement next = object.get(primitive.getAsString());
-          current = next == null ? JsonNull.INSTANCE : next;
-          continue;
-        }
-
-        int index = primitive.getAsInt();
-        if (!current.isJsonArray()) {
-          return JsonNull.INSTANCE;
-        }
-
-        JsonArray array = current.getAsJsonArray();
-        if (index < 0 || index >= array.size()) {
-          return JsonNull.INSTANCE;
-        }
+    // Resolve the path once: a key per object segment, an index per array segment
+    String[] keys = new String[rawArgs.size()];
+    int[] indexes = new int[rawArgs.size()];
+    boolean objectPath = true;
+    for (int i = 0; i < keys.length; i++) {
+      JsonPrimitive primitive = rawArgs.get(i).getAsJsonPrimitive();
+      if (primitive.isString()) {
+        keys[i] = primitive.getAsString();
+      } else {
+        indexes[i] = primitive.getAsInt();
+        objectPath = false;
+      }
+    }
 
-        JsonElement next = array.get(index);
-        current = next == null ? JsonNull.INSTANCE : next;
+    if (objectPath && keys.length <= 3) {
+      String first = keys[0];
+      if (keys.length == 1) {
+        return data -> member(data, first);
+      }
+      String second = keys[1];
+      if (keys.length == 2) {
+        return data -> member(member(data, first), second);
       }
+      String third = keys[2];
+      return data -> member(member(member(data, first), second), third);
+    }
 
-      return current == null ? JsonNull.INSTANCE : current;
+    return data -> {
+      JsonElement current = data;
+      for (int i = 0; i < keys.length; i++) {
+        String key = keys[i];
+        current = key != null ? member(current, key) : element(current, indexes[i]);
+      }
+      return current;
     };
   }
 }
@@ -0,0 +1,211 @@
+/*
+ *
+ *  Copyright [ 2020 - 2024 ] Matthew Buckton
+ *  Copyright [ 2024 - 2025 ] MapsMessaging B.V.
+ *
+ *  Licensed under the Apache License, Version 2.0 with the Commons Clause
+ *  (the "License"); you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at:
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *      https://commonsclause.com/
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.mapsmessaging.jsonquery.functions;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import io.mapsmessaging.jsonquery.ExecutionContext;
+import io.mapsmessaging.jsonquery.JsonQueryCompiler;
+import io.mapsmessaging.jsonquery.functions.numeric.AverageFunction;
+import io.mapsmessaging.jsonquery.functions.numeric.MaxFunction;
+import io.mapsmessaging.jsonquery.functions.numeric.MinFunction;
+import io.mapsmessaging.jsonquery.functions.numeric.ProdFunction;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * {@code groupBy(key) | mapValues(reducer)} evaluated in a single pass. Instead of building a
+ * bucket array per group, each group keeps primitive accumulators, so memory grows with the
+ * number of groups rather than the number of elements. The reducer is one of {@code sum},
+ * {@code average}, {@code min}, {@code max}, {@code prod} or {@code size}, optionally preceded by
+ * {@code map(value)}, and the results are exactly those of the two separate stages.
+ */
+final class GroupAggregate {
+
+  private enum Reducer {
+    SUM, AVERAGE, MIN, MAX, PROD, SIZE
+  }
+
+  private GroupAggregate() {
+  }
+
+  /**
+   * Returns the fused stage, or null when the pair does not have a supported shape.
+   */
+  static Function<JsonElement, JsonElement> compile(JsonElement groupByExpr, JsonElement mapValuesExpr,
+                                                    JsonQueryCompiler compiler) {
+    if (!(compiler.functionOf(groupByExpr) instanceof GroupByFunction)
+        || !(compiler.functionOf(mapValuesExpr) instanceof MapValuesFunction)) {
+      return null;
+    }
+    JsonArray groupBy = groupByExpr.getAsJsonArray();
+    JsonArray mapValues = mapValuesExpr.getAsJsonArray();
+    if (groupBy.size() != 2 || mapValues.size() != 2) {
+      return null;
+    }
+
+    // Either [reducer] or [pipe, [map, value]?, [reducer]]
+    JsonElement body = mapValues.get(1);
+    JsonElement valueExpr = null;
+    if (compiler.functionOf(body) instanceof PipeFunction) {
+      JsonArray pipe = body.getAsJsonArray();
+      if (pipe.size() == 3 && compiler.functionOf(pipe.get(1)) instanceof MapFunction
+          && pipe.get(1).getAsJsonArray().size() == 2) {
+        valueExpr = pipe.get(1).getAsJsonArray().get(1);
+      } else if (pipe.size() != 2) {
+        return null;
+      }
+      body = pipe.get(pipe.size() - 1);
+    }
+    Reducer reducer = reducerOf(body, compiler);
+    if (reducer == null) {
+      return null;
+    }
+
+    JsonElement finalValueExpr = valueExpr;
+    return compiler.compileFused(List.of(groupByExpr, mapValuesExpr), () -> {
+      Function<JsonElement, JsonElement> keySelector = compiler.compile(groupBy.get(1));
+      Function<JsonElement, JsonElement> valueSelector =
+          finalValueExpr == null ? null : compiler.compile(finalValueExpr);
+      return data -> {
+        if (data == null || !data.isJsonArray()) {
+          return JsonNull.INSTANCE;
+        }
+        return aggregate(data.getAsJsonArray(), keySelector, valueSelector, reducer);
+      };
+    });
+  }
+
+  private static Reducer reducerOf(JsonElement expr, JsonQueryCompiler compiler) {
+    JsonQueryFunction function = compiler.functionOf(expr);
+    if (function == null || expr.getAsJsonArray().size() != 1) {
+      return null;
+    }
+    if (function instanceof SumFunction) {
+      return Reducer.SUM;
+    }
+    if (function instanceof AverageFunction) {
+      return Reducer.AVERAGE;
+    }
+    if (function instanceof MinFunction) {
+      return Reducer.MIN;
+    }
+    if (function instanceof MaxFunction) {
+      return Reducer.MAX;
+    }
+    if (function instanceof ProdFunction) {
+      return Reducer.PROD;
+    }
+    if (function instanceof SizeFunction) {
+      return Reducer.SIZE;
+    }
+    return null;
+  }
+
+  private static JsonElement aggregate(JsonArray input, Function<JsonElement, JsonElement> keySelector,
+                                       Function<JsonElement, JsonElement> valueSelector, Reducer reducer) {
+    GroupingTable groups = new GroupingTable();
+    int capacity = 16;
+    double[] values = new double[capacity];
+    long[] numbers = new long[capacity];
+    long[] sizes = new long[capacity];
+    ExecutionContext budget = ExecutionContext.current();
+
+    for (JsonElement element : input) {
+      if (budget != null) {
+        budget.step();
+      }
+      String key = GroupByFunction.toGroupKey(keySelector.apply(element));
+      if (key == null) {
+        continue;
+      }
+      int group = groups.add(key);
+      if (group == capacity) {
+        capacity *= 2;
+        values = Arrays.copyOf(values, capacity);
+        numbers = Arrays.copyOf(numbers, capacity);
+        sizes = Arrays.copyOf(sizes, capacity);
+      }
+      if (sizes[group]++ == 0 && reducer == Reducer.PROD) {
+        values[group] = 1.0;
+      }
+      if (reducer == Reducer.SIZE) {
+        continue;
+      }
+
+      // Same element rules as the reducers: nulls are skipped, anything else must be a number
+      JsonElement value = valueSelector == null ? element : valueSelector.apply(element);
+      if (value == null || value.isJsonNull()) {
+        continue;
+      }
+      if (!value.isJsonPrimitive() || !value.getAsJsonPrimitive().isNumber()) {
+        throw new IllegalArgumentException("Number expected");
+      }
+      double number = value.getAsDouble();
+      switch (reducer) {
+        case SUM, AVERAGE -> values[group] += number;
+        case PROD -> values[group] *= number;
+        case MIN -> values[group] = numbers[group] == 0 ? number : Math.min(values[group], number);
+        case MAX -> values[group] = numbers[group] == 0 ? number : Math.max(values[group], number);
+        default -> {
+        }
+      }
+      numbers[group]++;
+    }
+
+    JsonObject result = new JsonObject();
+    for (int group = 0; group < groups.size(); group++) {
+      JsonElement value = result(reducer, values[group], numbers[group], sizes[group]);
+      if (budget != null) {
+        budget.emit(value);
+      }
+      result.add((String) groups.reference(group), value);
+    }
+    return result;
+  }
+
+  private static JsonElement result(Reducer reducer, double value, long numbers, long size) {
+    switch (reducer) {
+      case SUM:
+        return JsonQueryFunction.numberValue(value);
+      case SIZE:
+        return JsonQueryGson.integerValue(size);
+      default:
+        break;
+    }
+    if (numbers == 0) {
+      return JsonNull.INSTANCE;
+    }
+    switch (reducer) {
+      case AVERAGE:
+        return JsonQueryFunction.numberValue(value / (double) numbers);
+      case PROD:
+        return JsonQueryFunction.numberValue(value);
+      default:
+        // min and max keep the double, as the reducers do
+        return new JsonPrimitive(value);
+    }
+  }
+}
@@ -21,14 +21,16 @@ package io.mapsmessaging.jsonquery.functions;
 
 
 import com.google.gson.*;
+import io.mapsmessaging.jsonquery.ExecutionContext;
 import io.mapsmessaging.jsonquery.JsonQueryCompiler;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.function.Function;
 
 public final class GroupByFunction implements JsonQueryFunction {
 
-  private static String toGroupKey(JsonElement keyValue) {
+  static String toGroupKey(JsonElement keyValue) {
     if (keyValue == null || keyValue.isJsonNull()) {
       return null;
     }
@@ -70,28 +72,35 @@ public final class GroupByFunction implements JsonQueryFunction {
         return JsonNull.INSTANCE;
       }
 
-      JsonObject grouped = new JsonObject();
       JsonArray input = data.getAsJsonArray();
+      GroupingTable groups = new GroupingTable();
+      List<JsonArray> buckets = new ArrayList<>();
+      ExecutionContext budget = ExecutionContext.current();
 
       for (JsonElement element : input) {
+        if (budget != null) {
+          budget.step();
+        }
         JsonElement keyValue = keySelector.apply(element);
         String key = toGroupKey(keyValue);
         if (key == null) {
           continue;
         }
 
-        JsonArray bucket;
-        JsonElement existing = grouped.get(key);
-        if (existing == null || !existing.isJsonArray()) {
-          bucket = new JsonArray();
-          grouped.add(key, bucket);
-        } else {
-          bucket = existing.getAsJsonArray();
+        int group = groups.add(key);
+        if (group == buckets.size()) {
+          buckets.add(new JsonArray());
         }
-
-        bucket.add(element);
+        if (budget != null) {
+          budget.emit(element);
+        }
+        buckets.get(group).add(element);
       }
 
+      JsonObject grouped = new JsonObject();
+      for (int group = 0; group < buckets.size(); group++) {
+        grouped.add((String) groups.reference(group), buckets.get(group));
+      }
       return grouped;
     };
   }
@@ -0,0 +1,164 @@
+/*
+ *
+ *  Copyright [ 2020 - 2024 ] Matthew Buckton
+ *  Copyright [ 2024 - 2025 ] MapsMessaging B.V.
+ *
+ *  Licensed under the Apache License, Version 2.0 with the Commons Clause
+ *  (the "License"); you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at:
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *      https://commonsclause.com/
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.mapsmessaging.jsonquery.functions;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonPrimitive;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Insertion-ordered hash table of grouping keys, shared by groupBy, keyBy, uniq and uniqBy.
+ * <p>
+ * Keys are normalised into a kind plus either 64 raw bits (numbers as doubles, booleans) or a
+ * reference (strings, and Gson elements for everything else). Lookups use open addressing over
+ * parallel arrays, and every key gets a dense id in first-seen order, so callers keep their
+ * per-group state in plain lists and build their output once at the end.
+ */
+final class GroupingTable {
+
+  private static final byte NULL = 0;
+  private static final byte BOOLEAN = 1;
+  private static final byte NUMBER = 2;
+  private static final byte STRING = 3;
+  private static final byte OTHER = 4;
+
+  // Largest magnitude up to which every long is exactly representable as a double
+  private static final long EXACT_DOUBLE_LIMIT = 1L << 53;
+
+  private int[] slots = new int[16];
+  private byte[] kinds = new byte[8];
+  private long[] bits = new long[8];
+  private Object[] refs = new Object[8];
+  private int[] hashes = new int[8];
+  private int size;
+
+  int size() {
+    return size;
+  }
+
+  Object reference(int id) {
+    return refs[id];
+  }
+
+  /**
+   * Returns the id of the string key, adding it when first seen. Ids are dense in first-seen
+   * order, so a key is new exactly when its id equals the size before the call.
+   */
+  int add(String key) {
+    return findOrAdd(STRING, 0L, key, key.hashCode());
+  }
+
+  /**
+   * Returns the id of the JSON value, adding it when first seen. Numbers match by double value
+   * (1 and 1.0 are the same key, 0.0 and -0.0 are not, as in {@code eq}), strings and booleans by
+   * value, and arrays and objects structurally through {@link JsonElement#equals}.
+   */
+  int add(JsonElement key) {
+    if (key == null || key.isJsonNull()) {
+      return findOrAdd(NULL, 0L, null, 0);
+    }
+    if (key.isJsonPrimitive()) {
+      JsonPrimitive primitive = key.getAsJsonPrimitive();
+      if (primitive.isBoolean()) {
+        long value = primitive.getAsBoolean() ? 1L : 0L;
+        return findOrAdd(BOOLEAN, value, null, Long.hashCode(value));
+      }
+      if (primitive.isString()) {
+        String value = primitive.getAsString();
+        return findOrAdd(STRING, 0L, value, value.hashCode());
+      }
+      if (primitive.isNumber() && isExactDouble(primitive.getAsNumber())) {
+        long valueBits = Double.doubleToLongBits(primitive.getAsDouble());
+        return findOrAdd(NUMBER, valueBits, null, Long.hashCode(valueBits));
+      }
+    }
+    // Structures, and numbers a double cannot hold exactly, fall back to Gson equality
+    return findOrAdd(OTHER, 0L, key, key.hashCode());
+  }
+
+  private static boolean isExactDouble(Number number) {
+    if (number instanceof BigInteger || number instanceof BigDecimal) {
+      return false;
+    }
+    if (number instanceof Long value) {
+      return value >= -EXACT_DOUBLE_LIMIT && value <= EXACT_DOUBLE_LIMIT;
+    }
+    return true;
+  }
+
+  private int findOrAdd(byte kind, long keyBits, Object ref, int hash) {
+    if (size * 2 >= slots.length) {
+      grow();
+    }
+    int mask = slots.length - 1;
+    int slot = spread(hash) & mask;
+    while (true) {
+      int entry = slots[slot];
+      if (entry == 0) {
+        return insert(slot, kind, keyBits, ref, hash);
+      }
+      int id = entry - 1;
+      if (hashes[id] == hash && kinds[id] == kind && bits[id] == keyBits && Objects.equals(refs[id], ref)) {
+        return id;
+      }
+      slot = (slot + 1) & mask;
+    }
+  }
+
+  private int insert(int slot, byte kind, long keyBits, Object ref, int hash) {
+    if (size == kinds.length) {
+      int capacity = size * 2;
+      kinds = Arrays.copyOf(kinds, capacity);
+      bits = Arrays.copyOf(bits, capacity);
+      refs = Arrays.copyOf(refs, capacity);
+      hashes = Arrays.copyOf(hashes, capacity);
+    }
+    int id = size++;
+    kinds[id] = kind;
+    bits[id] = keyBits;
+    refs[id] = ref;
+    hashes[id] = hash;
+    // Slots hold id + 1 so that zero marks an empty slot
+    slots[slot] = id + 1;
+    return id;
+  }
+
+  private void grow() {
+    int[] grown = new int[slots.length * 2];
+    int mask = grown.length - 1;
+    for (int id = 0; id < size; id++) {
+      int slot = spread(hashes[id]) & mask;
+      while (grown[slot] != 0) {
+        slot = (slot + 1) & mask;
+      }
+      grown[slot] = id + 1;
+    }
+    slots = grown;
+  }
+
+  private static int spread(int hash) {
+    int mixed = hash * 0x9E3779B9;
+    return mixed ^ (mixed >>> 16);
+  }
+}
@@ -32,6 +32,16 @@ public final class IfFunction extends AbstractFunction {
     return "if";
   }
 
+  @Override
+  public boolean isPure() {
+    return true;
+  }
+
+  @Override
+  public int cost() {
+    return 1;
+  }
+
   @Override
   public Function<JsonElement, JsonElement> compile(List<JsonElement> rawArgs, JsonQueryCompiler compiler) {
     requireArgCountExact(rawArgs, 3, "3 arguments: if(condition, thenExpr, elseExpr)");
@@ -39,6 +49,10 @@ public final class IfFunction extends AbstractFunction {
     Function<JsonElement, JsonElement> thenExpr = compileArg(rawArgs.get(1), compiler);
     Function<JsonElement, JsonElement> elseExpr = compileArg(rawArgs.get(2), compiler);
 
+    if (condition instanceof PredicateExpression predicate) {
+      return data -> predicate.test(data) ? thenExpr.apply(data) : elseExpr.apply(data);
+    }
+
     return data -> {
       JsonElement conditionValue = condition.apply(data);
 
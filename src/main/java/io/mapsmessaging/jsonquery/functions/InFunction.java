@@ -21,7 +21,7 @@ package io.mapsmessaging.jsonquery.functions;
 
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
-import com.google.gson.JsonPrimitive;
+import com.google.gson.JsonNull;
 import io.mapsmessaging.jsonquery.JsonQueryCompiler;
 
 import java.util.List;
@@ -29,23 +29,70 @@ import java.util.function.Function;
 
 public final class InFunction extends AbstractFunction {
 
+  private static LiteralSet tryBuildLiteralSet(JsonElement rawArray,
+                                               Function<JsonElement, JsonElement> arrayExpr,
+                                               JsonQueryCompiler compiler) {
+    if (!compiler.isConstant(rawArray)) {
+      return null;
+    }
+    JsonElement arrayValue;
+    try {
+      arrayValue = arrayExpr.apply(JsonNull.INSTANCE);
+    } catch (RuntimeException e) {
+      return null;
+    }
+    if (arrayValue == null || !arrayValue.isJsonArray()) {
+      return null;
+    }
+    return LiteralSet.of(arrayValue.getAsJsonArray());
+  }
+
   @Override
   public String getName() {
     return "in";
   }
 
+  @Override
+  public boolean isPure() {
+    return true;
+  }
+
+  @Override
+  public int cost() {
+    return 2;
+  }
+
+  @Override
+  public boolean isInfallible(List<JsonElement> rawArgs, JsonQueryCompiler compiler) {
+    // Only a constant list is known to be an array; any other list may raise "Array expected"
+    if (rawArgs.size() != 2 || !compiler.isConstant(rawArgs.get(1))) {
+      return false;
+    }
+    try {
+      JsonElement list = compiler.compile(rawArgs.get(1)).apply(JsonNull.INSTANCE);
+      return JsonQueryFunction.isNull(list) || list.isJsonArray();
+    } catch (RuntimeException e) {
+      return false;
+    }
+  }
+
   @Override
   public Function<JsonElement, JsonElement> compile(List<JsonElement> rawArgs, JsonQueryCompiler compiler) {
     requireArgCountExact(rawArgs, 2, "2 arguments: in(value, array)");
     Function<JsonElement, JsonElement> valueExpr = compileArg(rawArgs.get(0), compiler);
     Function<JsonElement, JsonElement> arrayExpr = compileArg(rawArgs.get(1), compiler);
 
-    return data -> {
+    LiteralSet literalSet = tryBuildLiteralSet(rawArgs.get(1), arrayExpr, compiler);
+    if (literalSet != null) {
+      return (PredicateExpression) data -> literalSet.contains(valueExpr.apply(data));
+    }
+
+    return (PredicateExpression) data -> {
       JsonElement value = valueExpr.apply(data);
       JsonElement arrayValue = arrayExpr.apply(data);
 
       if (JsonQueryFunction.isNull(arrayValue)) {
-        return new JsonPrimitive(false);
+        return false;
       }
       if (!arrayValue.isJsonArray()) {
         throw new IllegalArgumentException("Array expected");
@@ -58,15 +105,15 @@ public final class InFunction extends AbstractFunction {
         }
         if (value == null) {
           if (element.isJsonNull()) {
-            return new JsonPrimitive(true);
+            return true;
           }
           continue;
         }
         if (value.equals(element)) {
-          return new JsonPrimitive(true);
+          return true;
         }
       }
-      return new JsonPrimitive(false);
+      return false;
     };
   }
 }
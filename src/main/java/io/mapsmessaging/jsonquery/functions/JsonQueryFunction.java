@@ -30,6 +30,18 @@ import java.util.function.Function;
 
 public interface JsonQueryFunction {
 
+  /**
+   * Shared boolean results. JsonPrimitive is immutable, so predicates return these instead of
+   * allocating a new primitive per evaluation.
+   */
+  JsonPrimitive TRUE = new JsonPrimitive(true);
+  JsonPrimitive FALSE = new JsonPrimitive(false);
+
+  /**
+   * {@link #cost()} of a function that has not been estimated.
+   */
+  int UNKNOWN_COST = -1;
+
   static Function<JsonElement, JsonElement> compileArg(JsonElement rawArg, JsonQueryCompiler compiler) {
     if (rawArg == null || rawArg.isJsonNull()) {
       return input -> JsonNull.INSTANCE;
@@ -68,17 +80,28 @@ public interface JsonQueryFunction {
     return true;
   }
 
-  static JsonElement booleanValue(boolean value) {
-    return new JsonPrimitive(value);
+  static JsonPrimitive booleanValue(boolean value) {
+    return value ? TRUE : FALSE;
   }
 
   static boolean isIntegral(double value) {
     return value == Math.rint(value);
   }
 
+  /**
+   * Returns the double that {@link #numberValue} of the same value reads back as: integral values
+   * are held as a long, so they saturate at the long range.
+   */
+  static double numberRoundTrip(double value) {
+    if (isIntegral(value)) {
+      return (double) (long) value;
+    }
+    return value;
+  }
+
   static JsonElement numberValue(double value) {
     if (isIntegral(value)) {
-      return new JsonPrimitive((long) value);
+      return JsonQueryGson.integerValue((long) value);
     }
     return new JsonPrimitive(value);
   }
@@ -115,5 +138,40 @@ public interface JsonQueryFunction {
       JsonQueryCompiler compiler
   );
 
+  /**
+   * Pure functions are deterministic, have no side effects and only see the input through their
+   * argument expressions. A call to a pure function whose arguments are all constant is evaluated
+   * once by the compiler and replaced with its result.
+   * <p>
+   * Defaults to {@code false} so custom functions are never folded unless they opt in.
+   */
+  default boolean isPure() {
+    return false;
+  }
+
+  /**
+   * Relative cost of one call, not counting its arguments: about 1 for a field lookup, comparison
+   * or arithmetic step, more for regular expressions and for functions that walk an array. Used to
+   * put cheap operands of {@code and} and {@code or} first when operand reordering is enabled.
+   * <p>
+   * A cost says nothing about failures or side effects; only operands that are also {@link
+   * #isInfallible infallible} are moved. Defaults to {@link #UNKNOWN_COST}, which keeps operands
+   * that call the function in their written position.
+   */
+  default int cost() {
+    return UNKNOWN_COST;
+  }
+
+  /**
+   * Whether a call with these arguments can never throw and has no side effects, given argument
+   * expressions that cannot either. Operand reordering only moves operands that are infallible all
+   * the way down, so an operand that relies on an earlier one as a guard (e.g. a type check before
+   * arithmetic) keeps its place.
+   * <p>
+   * Defaults to {@code false}.
+   */
+  default boolean isInfallible(List<JsonElement> rawArgs, JsonQueryCompiler compiler) {
+    return false;
+  }
 
 }
@@ -25,9 +25,30 @@ import com.google.gson.JsonPrimitive;
 
 public final class JsonQueryGson {
 
+  private static final int INTEGER_CACHE_LOW = -128;
+  private static final int INTEGER_CACHE_HIGH = 1024;
+  private static final JsonPrimitive[] INTEGER_CACHE = new JsonPrimitive[INTEGER_CACHE_HIGH - INTEGER_CACHE_LOW + 1];
+
+  static {
+    for (int i = 0; i < INTEGER_CACHE.length; i++) {
+      INTEGER_CACHE[i] = new JsonPrimitive((long) (i + INTEGER_CACHE_LOW));
+    }
+  }
+
   private JsonQueryGson() {
   }
 
+  /**
+   * Returns an integral number primitive, shared for small values. JsonPrimitive is immutable,
+   * so cached instances can be placed in any number of result trees.
+   */
+  public static JsonPrimitive integerValue(long value) {
+    if (value >= INTEGER_CACHE_LOW && value <= INTEGER_CACHE_HIGH) {
+      return INTEGER_CACHE[(int) value - INTEGER_CACHE_LOW];
+    }
+    return new JsonPrimitive(value);
+  }
+
   public static boolean isString(JsonElement element) {
     if (element == null || element.isJsonNull()) {
       return false;
@@ -20,8 +20,10 @@
 package io.mapsmessaging.jsonquery.functions;
 
 import com.google.gson.*;
+import io.mapsmessaging.jsonquery.ExecutionContext;
 import io.mapsmessaging.jsonquery.JsonQueryCompiler;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.function.Function;
 
@@ -69,22 +71,33 @@ public final class KeyByFunction implements JsonQueryFunction {
         return JsonNull.INSTANCE;
       }
 
-      JsonObject keyed = new JsonObject();
       JsonArray input = data.getAsJsonArray();
+      GroupingTable keys = new GroupingTable();
+      List<JsonElement> values = new ArrayList<>();
+      ExecutionContext budget = ExecutionContext.current();
 
       for (JsonElement element : input) {
+        if (budget != null) {
+          budget.step();
+        }
         JsonElement keyValue = keySelector.apply(element);
         String key = toKey(keyValue);
         if (key == null) {
           continue;
         }
-        if (keyed.has(key)) {
-          continue; // first wins
+        // first wins
+        if (keys.add(key) == values.size()) {
+          if (budget != null) {
+            budget.emit(element);
+          }
+          values.add(element);
         }
-        keyed.add(key, element);
       }
 
-
+      JsonObject keyed = new JsonObject();
+      for (int id = 0; id < values.size(); id++) {
+        keyed.add((String) keys.reference(id), values.get(id));
+      }
       return keyed;
     };
   }
@@ -39,26 +39,7 @@ public final class LimitFunction implements JsonQueryFunction {
   public Function<JsonElement, JsonElement> compile(List<JsonElement> rawArgs,
                                                     JsonQueryCompiler compiler) {
 
-    if (rawArgs.size() != 1) {
-      throw new IllegalArgumentException("limit expects 1 argument (count)");
-    }
-
-    JsonElement rawCount = rawArgs.get(0);
-    if (rawCount == null || rawCount.isJsonNull() || !rawCount.isJsonPrimitive()) {
-      throw new IllegalArgumentException("limit expects numeric count");
-    }
-
-    JsonPrimitive primitive = rawCount.getAsJsonPrimitive();
-    if (!primitive.isNumber()) {
-      throw new IllegalArgumentException("limit expects numeric count");
-    }
-
-    int count = primitive.getAsInt();
-    if (count < 0) {
-      count = 0;
-    }
-
-    int finalCount = count;
+    int finalCount = parseCount(rawArgs);
 
     return data -> {
       if (data == null || data.isJsonNull()) {
@@ -79,4 +60,25 @@ public final class LimitFunction implements JsonQueryFunction {
       return result;
     };
   }
+
+  /**
+   * Validates the raw arguments of a {@code limit} call and returns the count, clamped at zero.
+   */
+  public static int parseCount(List<JsonElement> rawArgs) {
+    if (rawArgs.size() != 1) {
+      throw new IllegalArgumentException("limit expects 1 argument (count)");
+    }
+
+    JsonElement rawCount = rawArgs.get(0);
+    if (rawCount == null || rawCount.isJsonNull() || !rawCount.isJsonPrimitive()) {
+      throw new IllegalArgumentException("limit expects numeric count");
+    }
+
+    JsonPrimitive primitive = rawCount.getAsJsonPrimitive();
+    if (!primitive.isNumber()) {
+      throw new IllegalArgumentException("limit expects numeric count");
+    }
+
+    return Math.max(0, primitive.getAsInt());
+  }
 }
@@ -0,0 +1,167 @@
+/*
+ *
+ *  Copyright [ 2020 - 2024 ] Matthew Buckton
+ *  Copyright [ 2024 - 2025 ] MapsMessaging B.V.
+ *
+ *  Licensed under the Apache License, Version 2.0 with the Commons Clause
+ *  (the "License"); you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at:
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *      https://commonsclause.com/
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.mapsmessaging.jsonquery.functions;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonPrimitive;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Hash based membership test over a fixed list of scalar JSON values, used by {@code in} and
+ * {@code not in} when the array argument is constant.
+ * <p>
+ * Matching follows {@link JsonElement#equals(Object)} on primitives, as the linear scan of
+ * {@code in} always has: numbers compare by value (so {@code 1} matches {@code 1.0}), strings and
+ * booleans by value, and null matches null. Unlike {@code eq}, which orders numbers with
+ * {@link Double#compare}, {@code 0.0} and {@code -0.0} are the same member here.
+ * All-number lists are held in an open-addressing table of {@code double} bits and all-string
+ * lists in a plain {@code HashSet<String>}, so the common allow-list shapes avoid boxing.
+ */
+public final class LiteralSet {
+
+  private final boolean containsNull;
+  private final boolean containsTrue;
+  private final boolean containsFalse;
+  private final Set<String> strings;
+  private final long[] numberTable;
+  private final boolean[] numberUsed;
+  private final int numberMask;
+
+  private LiteralSet(JsonArray values) {
+    boolean hasNull = false;
+    boolean hasTrue = false;
+    boolean hasFalse = false;
+    int numberCount = 0;
+    Set<String> stringSet = new HashSet<>();
+
+    for (JsonElement element : values) {
+      if (element == null || element.isJsonNull()) {
+        hasNull = true;
+        continue;
+      }
+      JsonPrimitive primitive = element.getAsJsonPrimitive();
+      if (primitive.isBoolean()) {
+        if (primitive.getAsBoolean()) {
+          hasTrue = true;
+        } else {
+          hasFalse = true;
+        }
+      } else if (primitive.isNumber()) {
+        numberCount++;
+      } else {
+        stringSet.add(primitive.getAsString());
+      }
+    }
+
+    this.containsNull = hasNull;
+    this.containsTrue = hasTrue;
+    this.containsFalse = hasFalse;
+    this.strings = stringSet.isEmpty() ? null : stringSet;
+
+    if (numberCount == 0) {
+      this.numberTable = null;
+      this.numberUsed = null;
+      this.numberMask = 0;
+    } else {
+      int capacity = Integer.highestOneBit(Math.max(2, numberCount * 2 - 1)) << 1;
+      this.numberTable = new long[capacity];
+      this.numberUsed = new boolean[capacity];
+      this.numberMask = capacity - 1;
+      for (JsonElement element : values) {
+        if (element != null && element.isJsonPrimitive() && element.getAsJsonPrimitive().isNumber()) {
+          insertNumber(normalize(element.getAsDouble()));
+        }
+      }
+    }
+  }
+
+  /**
+   * Builds a set from the given values, or returns null when any value is an array or object
+   * (those still go through the generic linear scan).
+   */
+  public static LiteralSet of(JsonArray values) {
+    for (JsonElement element : values) {
+      if (element != null && !element.isJsonNull() && !element.isJsonPrimitive()) {
+        return null;
+      }
+    }
+    return new LiteralSet(values);
+  }
+
+  // 0.0 and -0.0 are equal under JsonPrimitive.equals, as are all NaNs
+  private static long normalize(double value) {
+    return Double.doubleToLongBits(value == 0.0d ? 0.0d : value);
+  }
+
+  private static int mix(long bits) {
+    long hash = bits * 0x9E3779B97F4A7C15L;
+    return (int) (hash ^ (hash >>> 32));
+  }
+
+  private void insertNumber(long bits) {
+    int slot = mix(bits) & numberMask;
+    while (numberUsed[slot]) {
+      if (numberTable[slot] == bits) {
+        return;
+      }
+      slot = (slot + 1) & numberMask;
+    }
+    numberUsed[slot] = true;
+    numberTable[slot] = bits;
+  }
+
+  private boolean containsNumber(double value) {
+    if (numberTable == null) {
+      return false;
+    }
+    long bits = normalize(value);
+    int slot = mix(bits) & numberMask;
+    while (numberUsed[slot]) {
+      if (numberTable[slot] == bits) {
+        return true;
+      }
+      slot = (slot + 1) & numberMask;
+    }
+    return false;
+  }
+
+  public boolean contains(JsonElement value) {
+    if (value == null || value.isJsonNull()) {
+      return containsNull;
+    }
+    if (!value.isJsonPrimitive()) {
+      return false;
+    }
+    JsonPrimitive primitive = value.getAsJsonPrimitive();
+    if (primitive.isNumber()) {
+      return containsNumber(primitive.getAsDouble());
+    }
+    if (primitive.isString()) {
+      return strings != null && strings.contains(primitive.getAsString());
+    }
+    if (primitive.isBoolean()) {
+      return primitive.getAsBoolean() ? containsTrue : containsFalse;
+    }
+    return false;
+  }
+}
@@ -22,12 +22,13 @@ package io.mapsmessaging.jsonquery.functions;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonNull;
+import io.mapsmessaging.jsonquery.ExecutionContext;
 import io.mapsmessaging.jsonquery.JsonQueryCompiler;
 
 import java.util.List;
 import java.util.function.Function;
 
-public final class MapFunction implements JsonQueryFunction {
+public final class MapFunction implements ElementWiseFunction {
 
   @Override
   public String getName() {
@@ -35,12 +36,22 @@ public final class MapFunction implements JsonQueryFunction {
   }
 
   @Override
-  public Function<JsonElement, JsonElement> compile(List<JsonElement> rawArgs, JsonQueryCompiler compiler) {
+  public Function<JsonElement, JsonElement> compileElement(List<JsonElement> rawArgs, JsonQueryCompiler compiler) {
+    Function<JsonElement, JsonElement> callback = callbackOf(rawArgs, compiler);
+    return element -> JsonQueryGson.nullToJsonNull(callback.apply(element));
+  }
+
+  private static Function<JsonElement, JsonElement> callbackOf(List<JsonElement> rawArgs, JsonQueryCompiler compiler) {
     if (rawArgs.size() != 1) {
       throw new IllegalArgumentException("map expects 1 argument: a query to apply to each element");
     }
+    return compiler.compile(rawArgs.get(0));
+  }
 
-    Function<JsonElement, JsonElement> callback = compiler.compile(rawArgs.get(0));
+  @Override
+  public Function<JsonElement, JsonElement> compile(List<JsonElement> rawArgs, JsonQueryCompiler compiler) {
+    Function<JsonElement, JsonElement> callback = callbackOf(rawArgs, compiler);
+    ParallelArrays parallel = ParallelArrays.of(compiler);
 
     return data -> {
       if (data == null || data.isJsonNull()) {
@@ -51,11 +62,21 @@ public final class MapFunction implements JsonQueryFunction {
       }
 
       JsonArray inputArray = data.getAsJsonArray();
+      if (parallel != null && parallel.covers(inputArray)) {
+        return parallel.map(inputArray, element -> JsonQueryGson.nullToJsonNull(callback.apply(element)));
+      }
       JsonArray outputArray = new JsonArray();
+      ExecutionContext budget = ExecutionContext.current();
 
       for (int i = 0; i < inputArray.size(); i++) {
-        JsonElement mapped = callback.apply(inputArray.get(i));
-        outputArray.add(JsonQueryGson.nullToJsonNull(mapped));
+        if (budget != null) {
+          budget.step();
+        }
+        JsonElement mapped = JsonQueryGson.nullToJsonNull(callback.apply(inputArray.get(i)));
+        if (budget != null) {
+          budget.emit(mapped);
+        }
+        outputArray.add(mapped);
       }
 
       return outputArray;
@@ -20,7 +20,6 @@
 package io.mapsmessaging.jsonquery.functions;
 
 import com.google.gson.JsonElement;
-import com.google.gson.JsonPrimitive;
 import io.mapsmessaging.jsonquery.JsonQueryCompiler;
 
 import java.util.List;
@@ -33,11 +32,26 @@ public final class NotFunction extends AbstractFunction {
     return "not";
   }
 
+  @Override
+  public boolean isPure() {
+    return true;
+  }
+
+  @Override
+  public int cost() {
+    return 1;
+  }
+
+  @Override
+  public boolean isInfallible(List<JsonElement> rawArgs, JsonQueryCompiler compiler) {
+    return true;
+  }
+
   @Override
   public Function<JsonElement, JsonElement> compile(List<JsonElement> rawArgs, JsonQueryCompiler compiler) {
     requireArgCountExact(rawArgs, 1, "1 argument: not(value)");
-    Function<JsonElement, JsonElement> arg = compileArg(rawArgs.get(0), compiler);
+    PredicateExpression arg = PredicateExpression.of(compileArg(rawArgs.get(0), compiler));
 
-    return data -> new JsonPrimitive(!JsonQueryFunction.isTruthy(arg.apply(data)));
+    return (PredicateExpression) data -> !arg.test(data);
   }
 }
@@ -20,7 +20,6 @@
 package io.mapsmessaging.jsonquery.functions;
 
 import com.google.gson.JsonElement;
-import com.google.gson.JsonPrimitive;
 import io.mapsmessaging.jsonquery.JsonQueryCompiler;
 
 import java.util.List;
@@ -33,12 +32,24 @@ public final class NotInFunction extends AbstractFunction {
     return "not in";
   }
 
+  @Override
+  public boolean isPure() {
+    return true;
+  }
+
+  @Override
+  public int cost() {
+    return 2;
+  }
+
+  @Override
+  public boolean isInfallible(List<JsonElement> rawArgs, JsonQueryCompiler compiler) {
+    return new InFunction().isInfallible(rawArgs, compiler);
+  }
+
   @Override
   public Function<JsonElement, JsonElement> compile(List<JsonElement> rawArgs, JsonQueryCompiler compiler) {
-    Function<JsonElement, JsonElement> inFunction = new InFunction().compile(rawArgs, compiler);
-    return data -> {
-      JsonElement inValue = inFunction.apply(data);
-      return new JsonPrimitive(!JsonQueryFunction.isTruthy(inValue));
-    };
+    PredicateExpression inFunction = PredicateExpression.of(new InFunction().compile(rawArgs, compiler));
+    return (PredicateExpression) data -> !inFunction.test(data);
   }
 }
@@ -33,6 +33,16 @@ public final class NumberFunction extends AbstractFunction {
     return "number";
   }
 
+  @Override
+  public boolean isPure() {
+    return true;
+  }
+
+  @Override
+  public int cost() {
+    return 2;
+  }
+
   @Override
   public Function<JsonElement, JsonElement> compile(List<JsonElement> rawArgs, JsonQueryCompiler compiler) {
     requireArgCountExact(rawArgs, 1, "1 argument: number(value)");
@@ -0,0 +1,51 @@
+/*
+ *
+ *  Copyright [ 2020 - 2024 ] Matthew Buckton
+ *  Copyright [ 2024 - 2025 ] MapsMessaging B.V.
+ *
+ *  Licensed under the Apache License, Version 2.0 with the Commons Clause
+ *  (the "License"); you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at:
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *      https://commonsclause.com/
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.mapsmessaging.jsonquery.functions;
+
+import com.google.gson.JsonElement;
+
+import java.util.function.Function;
+
+/**
+ * A compiled node whose result is always a number. {@link #applyAsDouble} returns the value the
+ * JSON result would hold (see {@link JsonQueryFunction#numberValue}), so arithmetic can be chained
+ * on primitives without creating intermediate {@code JsonPrimitive}s.
+ */
+@FunctionalInterface
+public interface NumericExpression extends Function<JsonElement, JsonElement> {
+
+  /**
+   * Adapts any compiled node to a numeric one; non-numeric results raise the same
+   * "Number expected" error as the arithmetic functions.
+   */
+  static NumericExpression of(Function<JsonElement, JsonElement> compiled) {
+    if (compiled instanceof NumericExpression numeric) {
+      return numeric;
+    }
+    return data -> JsonQueryFunction.asNumber(compiled.apply(data), "Number expected");
+  }
+
+  double applyAsDouble(JsonElement data);
+
+  @Override
+  default JsonElement apply(JsonElement data) {
+    return JsonQueryFunction.numberValue(applyAsDouble(data));
+  }
+}
@@ -36,6 +36,11 @@ public final class ObjectFunction extends AbstractFunction {
     return "object";
   }
 
+  @Override
+  public boolean isPure() {
+    return true;
+  }
+
   @Override
   public Function<JsonElement, JsonElement> compile(List<JsonElement> rawArgs, JsonQueryCompiler compiler) {
     requireArgCountExact(rawArgs, 1, "1 argument: object({key: expr, ...})");
@@ -0,0 +1,297 @@
+/*
+ *
+ *  Copyright [ 2020 - 2024 ] Matthew Buckton
+ *  Copyright [ 2024 - 2025 ] MapsMessaging B.V.
+ *
+ *  Licensed under the Apache License, Version 2.0 with the Commons Clause
+ *  (the "License"); you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at:
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *      https://commonsclause.com/
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.mapsmessaging.jsonquery.functions;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import io.mapsmessaging.jsonquery.CompilerOptions;
+import io.mapsmessaging.jsonquery.ExecutionContext;
+import io.mapsmessaging.jsonquery.JsonQueryCompiler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+import java.util.function.Predicate;
+
+/**
+ * Element-wise evaluation of large arrays split into chunks on the executor configured through
+ * {@link CompilerOptions#withParallelExecution}. Compiled functions are thread safe (the only
+ * state they keep is selectivity sampling, which tolerates races), so the chunks share them; each
+ * chunk collects its own results and they are joined in input order.
+ */
+final class ParallelArrays {
+
+  // Below this many elements per chunk the hand-off costs more than it saves
+  private static final int MIN_CHUNK_SIZE = 1024;
+  private static final int CHUNKS_PER_THREAD = 4;
+
+  private final Executor executor;
+  private final int threshold;
+  private final int parallelism;
+
+  private ParallelArrays(Executor executor, int threshold) {
+    this.executor = executor;
+    this.threshold = threshold;
+    if (executor instanceof ForkJoinPool pool) {
+      this.parallelism = pool.getParallelism();
+    } else if (executor instanceof ThreadPoolExecutor pool) {
+      this.parallelism = pool.getMaximumPoolSize();
+    } else {
+      this.parallelism = Runtime.getRuntime().availableProcessors();
+    }
+  }
+
+  /**
+   * Returns null when the compiler runs queries sequentially.
+   */
+  static ParallelArrays of(JsonQueryCompiler compiler) {
+    CompilerOptions options = compiler.getOptions();
+    if (options.getParallelExecutor() == null) {
+      return null;
+    }
+    return new ParallelArrays(options.getParallelExecutor(), options.getParallelThreshold());
+  }
+
+  boolean covers(JsonArray array) {
+    return array.size() >= threshold && parallelism > 1;
+  }
+
+  JsonArray map(JsonArray input, Function<JsonElement, JsonElement> mapper) {
+    List<JsonElement[]> chunks = run(input.size(), (from, to) -> {
+      JsonElement[] mapped = new JsonElement[to - from];
+      ExecutionContext budget = ExecutionContext.current();
+      for (int i = from; i < to; i++) {
+        if (budget != null) {
+          budget.step();
+        }
+        mapped[i - from] = mapper.apply(input.get(i));
+        if (budget != null) {
+          budget.emit(mapped[i - from]);
+        }
+      }
+      return mapped;
+    });
+
+    JsonArray output = new JsonArray(input.size());
+    for (JsonElement[] chunk : chunks) {
+      for (JsonElement element : chunk) {
+        output.add(element);
+      }
+    }
+    return output;
+  }
+
+  JsonArray filter(JsonArray input, Predicate<JsonElement> predicate) {
+    List<List<JsonElement>> chunks = run(input.size(), (from, to) -> {
+      List<JsonElement> kept = new ArrayList<>();
+      ExecutionContext budget = ExecutionContext.current();
+      for (int i = from; i < to; i++) {
+        JsonElement element = input.get(i);
+        if (budget != null) {
+          budget.step();
+        }
+        if (predicate.test(element)) {
+          if (budget != null) {
+            budget.emit(element);
+          }
+          kept.add(element);
+        }
+      }
+      return kept;
+    });
+
+    int size = 0;
+    for (List<JsonElement> chunk : chunks) {
+      size += chunk.size();
+    }
+    JsonArray output = new JsonArray(size);
+    for (List<JsonElement> chunk : chunks) {
+      for (JsonElement element : chunk) {
+        output.add(element);
+      }
+    }
+    return output;
+  }
+
+  /**
+   * Stable sort of the element indices by selected key, with the same ordering as
+   * {@link SortKeys#sortedIndices}. Keys are selected and chunks sorted concurrently, then sorted
+   * runs are merged pairwise, each level of merges running concurrently.
+   */
+  int[] sortedIndices(JsonArray array, Function<JsonElement, JsonElement> selector, boolean descending) {
+    int size = array.size();
+    int chunkSize = chunkSize(size);
+    SortKeys keys = new SortKeys(size);
+    int[] order = new int[size];
+    int[] buffer = new int[size];
+
+    invoke(chunkCount(size, chunkSize), chunk -> {
+      int from = chunk * chunkSize;
+      int to = Math.min(size, from + chunkSize);
+      ExecutionContext budget = ExecutionContext.current();
+      for (int i = from; i < to; i++) {
+        SortKeys.poll(budget, i - from);
+        keys.set(i, selector.apply(array.get(i)));
+        order[i] = i;
+      }
+      keys.sort(order, buffer, from, to, descending);
+    });
+
+    int[] source = order;
+    int[] target = buffer;
+    ExecutionContext budget = ExecutionContext.current();
+    for (long width = chunkSize; width < size; width *= 2) {
+      if (budget != null) {
+        budget.checkpoint();
+      }
+      long runWidth = width;
+      long pairWidth = 2 * width;
+      int[] from = source;
+      int[] to = target;
+      invoke(chunkCount(size, pairWidth), pair -> {
+        int start = (int) (pair * pairWidth);
+        int middle = (int) Math.min(start + runWidth, size);
+        int end = (int) Math.min(start + pairWidth, size);
+        keys.merge(from, to, start, middle, end, descending);
+      });
+      source = to;
+      target = from;
+    }
+    return source;
+  }
+
+  private int chunkSize(int size) {
+    int chunkCount = Math.max(1, Math.min(parallelism * CHUNKS_PER_THREAD, size / MIN_CHUNK_SIZE));
+    return (size + chunkCount - 1) / chunkCount;
+  }
+
+  private static int chunkCount(int size, long chunkSize) {
+    return (int) ((size + chunkSize - 1) / chunkSize);
+  }
+
+  private <T> List<T> run(int size, ChunkTask<T> task) {
+    int chunkSize = chunkSize(size);
+    int chunkCount = chunkCount(size, chunkSize);
+    List<T> results = new ArrayList<>(chunkCount);
+    for (int i = 0; i < chunkCount; i++) {
+      results.add(null);
+    }
+    invoke(chunkCount, chunk -> {
+      int from = chunk * chunkSize;
+      results.set(chunk, task.run(from, Math.min(size, from + chunkSize)));
+    });
+    return results;
+  }
+
+  /**
+   * Runs {@code task} for every index in {@code [0, count)} and waits for all of them. Workers and
+   * the caller claim indices from a shared counter, so the caller runs every chunk no worker has
+   * started and only waits for chunks already running. Nested parallel stages, or a query running
+   * on a thread of the same executor, therefore never wait on queued work. Failures are rethrown
+   * in index order.
+   */
+  private void invoke(int count, IntConsumer task) {
+    // Workers run under the caller's execution budget, if any
+    ExecutionContext budget = ExecutionContext.current();
+    Chunks chunks = new Chunks(count, task);
+    Runnable worker = budget == null ? chunks::drain : () -> budget.run(chunks::drain);
+    for (int i = 1; i < count; i++) {
+      try {
+        executor.execute(worker);
+      } catch (RejectedExecutionException e) {
+        // The caller picks up whatever the workers cannot
+        break;
+      }
+    }
+    chunks.drain();
+    chunks.await();
+    chunks.rethrow();
+  }
+
+  private static final class Chunks {
+    private final int count;
+    private final IntConsumer task;
+    private final AtomicInteger next = new AtomicInteger();
+    private final CountDownLatch done;
+    private final Throwable[] failures;
+    private volatile boolean failed;
+
+    private Chunks(int count, IntConsumer task) {
+      this.count = count;
+      this.task = task;
+      this.done = new CountDownLatch(count);
+      this.failures = new Throwable[count];
+    }
+
+    private void drain() {
+      for (int index = next.getAndIncrement(); index < count; index = next.getAndIncrement()) {
+        try {
+          // Lower indices are already claimed, so skipping after a failure keeps the first one
+          if (!failed) {
+            task.accept(index);
+          }
+        } catch (RuntimeException | Error e) {
+          failures[index] = e;
+          failed = true;
+        } finally {
+          done.countDown();
+        }
+      }
+    }
+
+    private void await() {
+      boolean interrupted = false;
+      while (true) {
+        try {
+          done.await();
+          break;
+        } catch (InterruptedException e) {
+          interrupted = true;
+        }
+      }
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    private void rethrow() {
+      for (Throwable failure : failures) {
+        if (failure instanceof RuntimeException runtimeException) {
+          throw runtimeException;
+        }
+        if (failure instanceof Error error) {
+          throw error;
+        }
+      }
+    }
+  }
+
+  @FunctionalInterface
+  private interface ChunkTask<T> {
+    T run(int from, int to);
+  }
+}
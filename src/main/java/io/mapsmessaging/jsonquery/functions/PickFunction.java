@@ -20,13 +20,14 @@
 package io.mapsmessaging.jsonquery.functions;
 
 import com.google.gson.*;
+import io.mapsmessaging.jsonquery.ExecutionContext;
 import io.mapsmessaging.jsonquery.JsonQueryCompiler;
 
 import java.util.ArrayList;
 import java.util.List;
 import java.util.function.Function;
 
-public final class PickFunction implements JsonQueryFunction {
+public final class PickFunction implements ElementWiseFunction {
   private static String tryExtractLiteralGetLeafKey(JsonElement selectorElement) {
     if (selectorElement == null || !selectorElement.isJsonArray()) {
       return null;
@@ -67,7 +68,7 @@ public final class PickFunction implements JsonQueryFunction {
   }
 
   @Override
-  public Function<JsonElement, JsonElement> compile(List<JsonElement> rawArgs, JsonQueryCompiler compiler) {
+  public Function<JsonElement, JsonElement> compileElement(List<JsonElement> rawArgs, JsonQueryCompiler compiler) {
     if (rawArgs.isEmpty()) {
       throw new IllegalArgumentException("pick expects at least one selector");
     }
@@ -88,7 +89,7 @@ public final class PickFunction implements JsonQueryFunction {
       }
     }
 
-    Function<JsonElement, JsonElement> pickOne = element -> {
+    return element -> {
       if (element == null || element.isJsonNull() || !element.isJsonObject()) {
         return JsonNull.INSTANCE;
       }
@@ -124,6 +125,12 @@ public final class PickFunction implements JsonQueryFunction {
 
       return resultObject;
     };
+  }
+
+  @Override
+  public Function<JsonElement, JsonElement> compile(List<JsonElement> rawArgs, JsonQueryCompiler compiler) {
+    Function<JsonElement, JsonElement> pickOne = compileElement(rawArgs, compiler);
+    ParallelArrays parallel = ParallelArrays.of(compiler);
 
     return data -> {
       if (data == null || data.isJsonNull()) {
@@ -132,9 +139,20 @@ public final class PickFunction implements JsonQueryFunction {
 
       if (data.isJsonArray()) {
         JsonArray in = data.getAsJsonArray();
+        if (parallel != null && parallel.covers(in)) {
+          return parallel.map(in, pickOne);
+        }
         JsonArray out = new JsonArray();
+        ExecutionContext budget = ExecutionContext.current();
         for (JsonElement element : in) {
-          out.add(pickOne.apply(element));
+          if (budget != null) {
+            budget.step();
+          }
+          JsonElement picked = pickOne.apply(element);
+          if (budget != null) {
+            budget.emit(picked);
+          }
+          out.add(picked);
         }
         return out;
       }
@@ -19,6 +19,7 @@
 
 package io.mapsmessaging.jsonquery.functions;
 
+import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonNull;
 import io.mapsmessaging.jsonquery.JsonQueryCompiler;
@@ -39,9 +40,21 @@ public final class PipeFunction implements JsonQueryFunction {
       return data -> data == null ? JsonNull.INSTANCE : data;
     }
 
+    // A fused pair goes through compiler.compileFused rather than compile, so constant folding and
+    // bytecode generation never see the pair as a node and a profile shows it as one node; its key,
+    // value and sort expressions are still compiled by the compiler. Flight Recorder events and
+    // metrics time the whole query and so include the fused stage.
     List<Function<JsonElement, JsonElement>> stages = new ArrayList<>(rawArgs.size());
-    for (JsonElement stageExpr : rawArgs) {
-      stages.add(compiler.compile(stageExpr));
+    for (int i = 0; i < rawArgs.size(); i++) {
+      JsonElement stageExpr = rawArgs.get(i);
+      JsonElement nextExpr = i + 1 < rawArgs.size() ? rawArgs.get(i + 1) : null;
+      Function<JsonElement, JsonElement> fused = nextExpr == null ? null : fuse(stageExpr, nextExpr, compiler);
+      if (fused != null) {
+        stages.add(fused);
+        i++;
+      } else {
+        stages.add(compiler.compile(stageExpr));
+      }
     }
 
     return data -> {
@@ -52,4 +65,39 @@ public final class PipeFunction implements JsonQueryFunction {
       return current;
     };
   }
+
+  private static Function<JsonElement, JsonElement> fuse(JsonElement stageExpr, JsonElement nextExpr,
+                                                        JsonQueryCompiler compiler) {
+    if (isSortThenLimit(stageExpr, nextExpr, compiler)) {
+      SortFunction sort = (SortFunction) compiler.functionOf(stageExpr);
+      int limit = LimitFunction.parseCount(argsOf(nextExpr));
+      return compiler.compileFused(List.of(stageExpr, nextExpr),
+          () -> sort.compileTopK(argsOf(stageExpr), compiler, limit));
+    }
+    // groupBy(...) | mapValues(reducer) accumulates per group without building the buckets;
+    // GroupAggregate checks the shape before it compiles anything
+    return GroupAggregate.compile(stageExpr, nextExpr, compiler);
+  }
+
+  // sort(...) | limit(n) runs as a single top-k selection instead of a full sort and copy
+  private static boolean isSortThenLimit(JsonElement sortExpr, JsonElement limitExpr, JsonQueryCompiler compiler) {
+    if (!(compiler.functionOf(sortExpr) instanceof SortFunction)
+        || !(compiler.functionOf(limitExpr) instanceof LimitFunction)) {
+      return false;
+    }
+    JsonArray limit = limitExpr.getAsJsonArray();
+    if (limit.size() != 2 || !limit.get(1).isJsonPrimitive()) {
+      return false;
+    }
+    return limit.get(1).getAsJsonPrimitive().isNumber();
+  }
+
+  private static List<JsonElement> argsOf(JsonElement expr) {
+    JsonArray array = expr.getAsJsonArray();
+    List<JsonElement> args = new ArrayList<>(array.size() - 1);
+    for (int i = 1; i < array.size(); i++) {
+      args.add(array.get(i));
+    }
+    return args;
+  }
 }
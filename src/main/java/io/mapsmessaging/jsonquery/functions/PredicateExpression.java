@@ -0,0 +1,50 @@
+/*
+ *
+ *  Copyright [ 2020 - 2024 ] Matthew Buckton
+ *  Copyright [ 2024 - 2025 ] MapsMessaging B.V.
+ *
+ *  Licensed under the Apache License, Version 2.0 with the Commons Clause
+ *  (the "License"); you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at:
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *      https://commonsclause.com/
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.mapsmessaging.jsonquery.functions;
+
+import com.google.gson.JsonElement;
+
+import java.util.function.Function;
+
+/**
+ * A compiled node whose result is always a boolean. Callers that only need the truth value
+ * (filter, and, or, not, if) call {@link #test} and skip the {@code JsonPrimitive} round trip;
+ * everyone else still sees an ordinary {@code Function} returning a shared TRUE or FALSE.
+ */
+@FunctionalInterface
+public interface PredicateExpression extends Function<JsonElement, JsonElement> {
+
+  /**
+   * Adapts any compiled node to a predicate using the and/or truthiness rules.
+   */
+  static PredicateExpression of(Function<JsonElement, JsonElement> compiled) {
+    if (compiled instanceof PredicateExpression predicate) {
+      return predicate;
+    }
+    return data -> JsonQueryFunction.isTruthy(compiled.apply(data));
+  }
+
+  boolean test(JsonElement data);
+
+  @Override
+  default JsonElement apply(JsonElement data) {
+    return JsonQueryFunction.booleanValue(test(data));
+  }
+}
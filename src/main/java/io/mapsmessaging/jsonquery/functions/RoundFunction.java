@@ -34,6 +34,16 @@ public final class RoundFunction extends AbstractFunction {
     return "round";
   }
 
+  @Override
+  public boolean isPure() {
+    return true;
+  }
+
+  @Override
+  public int cost() {
+    return 1;
+  }
+
   @Override
   public Function<JsonElement, JsonElement> compile(List<JsonElement> rawArgs, JsonQueryCompiler compiler) {
     if (rawArgs.size() != 1 && rawArgs.size() != 2) {
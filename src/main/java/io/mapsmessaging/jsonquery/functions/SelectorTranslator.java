@@ -0,0 +1,539 @@
+/*
+ *
+ *  Copyright [ 2020 - 2024 ] Matthew Buckton
+ *  Copyright [ 2024 - 2025 ] MapsMessaging B.V.
+ *
+ *  Licensed under the Apache License, Version 2.0 with the Commons Clause
+ *  (the "License"); you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at:
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *      https://commonsclause.com/
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.mapsmessaging.jsonquery.functions;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonPrimitive;
+import io.mapsmessaging.jsonquery.JsonQueryCompiler;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.DoublePredicate;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * Rewrites the common subset of JMS selectors into engine predicates, so selector filters get
+ * pre-resolved {@code get} paths and typed comparisons instead of the selector library's generic
+ * field resolution.
+ * <p>
+ * Supported: dotted identifiers compared with a string, numeric or boolean literal,
+ * {@code [NOT] BETWEEN}, {@code [NOT] IN} with string literals, {@code [NOT] LIKE} with an
+ * optional {@code ESCAPE}, {@code IS [NOT] NULL}, boolean identifiers and {@code AND}, {@code OR},
+ * {@code NOT} with parentheses. Evaluation follows the JMS three-valued logic: a missing or
+ * differently typed value makes a comparison unknown, and only a true selector keeps an element.
+ * Anything else (arithmetic, identifier to identifier comparisons, ...) returns null and the
+ * caller keeps the selector executor.
+ */
+final class SelectorTranslator {
+
+  private static final int FALSE = 0;
+  private static final int TRUE = 1;
+  private static final int UNKNOWN = 2;
+
+  private final List<String> tokens;
+  private final JsonQueryCompiler compiler;
+  private int position;
+
+  private SelectorTranslator(List<String> tokens, JsonQueryCompiler compiler) {
+    this.tokens = tokens;
+    this.compiler = compiler;
+  }
+
+  /**
+   * Returns the selector as a predicate over one message, or null when it uses a construct that
+   * is not translated.
+   */
+  static PredicateExpression translate(String selector, JsonQueryCompiler compiler) {
+    List<String> tokens = tokenize(selector);
+    if (tokens == null || tokens.isEmpty()) {
+      return null;
+    }
+    SelectorTranslator translator = new SelectorTranslator(tokens, compiler);
+    Condition condition = translator.or();
+    if (condition == null || translator.position != tokens.size()) {
+      return null;
+    }
+    return data -> condition.evaluate(data) == TRUE;
+  }
+
+  // ---- parsing; every method returns null when the input is not in the supported subset ----
+
+  private Condition or() {
+    Condition left = and();
+    while (left != null && accept("OR")) {
+      Condition l = left;
+      Condition r = and();
+      if (r == null) {
+        return null;
+      }
+      left = data -> {
+        int a = l.evaluate(data);
+        if (a == TRUE) {
+          return TRUE;
+        }
+        int b = r.evaluate(data);
+        if (b == TRUE) {
+          return TRUE;
+        }
+        return a == FALSE && b == FALSE ? FALSE : UNKNOWN;
+      };
+    }
+    return left;
+  }
+
+  private Condition and() {
+    Condition left = not();
+    while (left != null && accept("AND")) {
+      Condition l = left;
+      Condition r = not();
+      if (r == null) {
+        return null;
+      }
+      left = data -> {
+        int a = l.evaluate(data);
+        if (a == FALSE) {
+          return FALSE;
+        }
+        int b = r.evaluate(data);
+        if (b == FALSE) {
+          return FALSE;
+        }
+        return a == TRUE && b == TRUE ? TRUE : UNKNOWN;
+      };
+    }
+    return left;
+  }
+
+  private Condition not() {
+    if (accept("NOT")) {
+      Condition operand = not();
+      return operand == null ? null : negate(operand);
+    }
+    return predicate();
+  }
+
+  private Condition predicate() {
+    if (accept("(")) {
+      Condition inner = or();
+      return inner != null && accept(")") ? inner : null;
+    }
+    if (accept("TRUE")) {
+      return data -> TRUE;
+    }
+    if (accept("FALSE")) {
+      return data -> FALSE;
+    }
+
+    // a literal on the left is turned round
+    Object literal = literal();
+    if (literal != null) {
+      String operator = comparisonOperator();
+      Function<JsonElement, JsonElement> value = identifier();
+      return operator == null || value == null ? null : comparison(value, mirror(operator), literal);
+    }
+
+    Function<JsonElement, JsonElement> value = identifier();
+    if (value == null) {
+      return null;
+    }
+    if (accept("IS")) {
+      boolean negated = accept("NOT");
+      if (!accept("NULL")) {
+        return null;
+      }
+      Condition isNull = data -> JsonQueryFunction.isNull(value.apply(data)) ? TRUE : FALSE;
+      return negated ? negate(isNull) : isNull;
+    }
+    boolean negated = accept("NOT");
+    Condition condition;
+    if (accept("BETWEEN")) {
+      condition = between(value);
+    } else if (accept("IN")) {
+      condition = in(value);
+    } else if (accept("LIKE")) {
+      condition = like(value);
+    } else if (negated) {
+      return null;
+    } else {
+      String operator = comparisonOperator();
+      if (operator == null) {
+        // a bare identifier is a boolean condition
+        return truth(value);
+      }
+      Object right = literal();
+      return right == null ? null : comparison(value, operator, right);
+    }
+    return condition == null || !negated ? condition : negate(condition);
+  }
+
+  private Condition between(Function<JsonElement, JsonElement> value) {
+    Object low = literal();
+    if (!(low instanceof Double) || !accept("AND")) {
+      return null;
+    }
+    Object high = literal();
+    if (!(high instanceof Double)) {
+      return null;
+    }
+    double from = (Double) low;
+    double to = (Double) high;
+    return data -> {
+      JsonElement element = value.apply(data);
+      if (!isNumber(element)) {
+        return UNKNOWN;
+      }
+      double number = element.getAsDouble();
+      return number >= from && number <= to ? TRUE : FALSE;
+    };
+  }
+
+  private Condition in(Function<JsonElement, JsonElement> value) {
+    if (!accept("(")) {
+      return null;
+    }
+    Set<String> values = new HashSet<>();
+    do {
+      Object literal = literal();
+      if (!(literal instanceof String text)) {
+        return null;
+      }
+      values.add(text);
+    } while (accept(","));
+    if (!accept(")")) {
+      return null;
+    }
+    return data -> {
+      JsonElement element = value.apply(data);
+      if (!isString(element)) {
+        return UNKNOWN;
+      }
+      return values.contains(element.getAsString()) ? TRUE : FALSE;
+    };
+  }
+
+  private Condition like(Function<JsonElement, JsonElement> value) {
+    Object pattern = literal();
+    if (!(pattern instanceof String text)) {
+      return null;
+    }
+    char escape = 0;
+    if (accept("ESCAPE")) {
+      Object escapeLiteral = literal();
+      if (!(escapeLiteral instanceof String escapeText) || escapeText.length() != 1) {
+        return null;
+      }
+      escape = escapeText.charAt(0);
+    }
+    Pattern regex = likePattern(text, escape);
+    if (regex == null) {
+      return null;
+    }
+    return data -> {
+      JsonElement element = value.apply(data);
+      if (!isString(element)) {
+        return UNKNOWN;
+      }
+      return regex.matcher(element.getAsString()).matches() ? TRUE : FALSE;
+    };
+  }
+
+  private static Condition truth(Function<JsonElement, JsonElement> value) {
+    return data -> {
+      JsonElement element = value.apply(data);
+      if (element instanceof JsonPrimitive primitive && primitive.isBoolean()) {
+        return primitive.getAsBoolean() ? TRUE : FALSE;
+      }
+      return UNKNOWN;
+    };
+  }
+
+  private static Condition comparison(Function<JsonElement, JsonElement> value, String operator, Object literal) {
+    if (literal instanceof Double number) {
+      DoublePredicate test = numericTest(operator, number);
+      return data -> {
+        JsonElement element = value.apply(data);
+        if (!isNumber(element)) {
+          return UNKNOWN;
+        }
+        return test.test(element.getAsDouble()) ? TRUE : FALSE;
+      };
+    }
+    // strings and booleans only support equality
+    boolean equal = "=".equals(operator);
+    if (!equal && !"<>".equals(operator)) {
+      return null;
+    }
+    if (literal instanceof String text) {
+      return data -> {
+        JsonElement element = value.apply(data);
+        if (!isString(element)) {
+          return UNKNOWN;
+        }
+        return element.getAsString().equals(text) == equal ? TRUE : FALSE;
+      };
+    }
+    boolean expected = (Boolean) literal;
+    return data -> {
+      JsonElement element = value.apply(data);
+      if (!(element instanceof JsonPrimitive primitive) || !primitive.isBoolean()) {
+        return UNKNOWN;
+      }
+      return (primitive.getAsBoolean() == expected) == equal ? TRUE : FALSE;
+    };
+  }
+
+  private static DoublePredicate numericTest(String operator, double expected) {
+    switch (operator) {
+      case "=":
+        return number -> number == expected;
+      case "<>":
+        return number -> number != expected;
+      case "<":
+        return number -> number < expected;
+      case "<=":
+        return number -> number <= expected;
+      case ">":
+        return number -> number > expected;
+      default:
+        return number -> number >= expected;
+    }
+  }
+
+  private static Condition negate(Condition condition) {
+    return data -> {
+      int result = condition.evaluate(data);
+      return result == UNKNOWN ? UNKNOWN : TRUE - result;
+    };
+  }
+
+  private static String mirror(String operator) {
+    switch (operator) {
+      case "<":
+        return ">";
+      case "<=":
+        return ">=";
+      case ">":
+        return "<";
+      case ">=":
+        return "<=";
+      default:
+        return operator;
+    }
+  }
+
+  private static boolean isNumber(JsonElement element) {
+    return element instanceof JsonPrimitive primitive && primitive.isNumber();
+  }
+
+  private static boolean isString(JsonElement element) {
+    return element instanceof JsonPrimitive primitive && primitive.isString();
+  }
+
+  private static Pattern likePattern(String pattern, char escape) {
+    StringBuilder regex = new StringBuilder();
+    for (int i = 0; i < pattern.length(); i++) {
+      char c = pattern.charAt(i);
+      if (escape != 0 && c == escape) {
+        if (++i == pattern.length()) {
+          return null;
+        }
+        regex.append(Pattern.quote(String.valueOf(pattern.charAt(i))));
+      } else if (c == '%') {
+        regex.append(".*");
+      } else if (c == '_') {
+        regex.append('.');
+      } else {
+        regex.append(Pattern.quote(String.valueOf(c)));
+      }
+    }
+    return Pattern.compile(regex.toString(), Pattern.DOTALL);
+  }
+
+  private String comparisonOperator() {
+    for (String operator : new String[]{"=", "<>", "<", "<=", ">", ">="}) {
+      if (accept(operator)) {
+        return operator;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Returns a String, Double or Boolean literal, or null when the next token is not one.
+   */
+  private Object literal() {
+    if (position >= tokens.size()) {
+      return null;
+    }
+    String token = tokens.get(position);
+    if (token.startsWith("'")) {
+      position++;
+      return token.substring(1);
+    }
+    boolean negative = "-".equals(token) && position + 1 < tokens.size() && isNumeric(tokens.get(position + 1));
+    if (negative) {
+      token = tokens.get(position + 1);
+    }
+    if (isNumeric(token)) {
+      position += negative ? 2 : 1;
+      double value = Double.parseDouble(token);
+      return negative ? -value : value;
+    }
+    if (accept("TRUE")) {
+      return Boolean.TRUE;
+    }
+    if (accept("FALSE")) {
+      return Boolean.FALSE;
+    }
+    return null;
+  }
+
+  private Function<JsonElement, JsonElement> identifier() {
+    if (position >= tokens.size()) {
+      return null;
+    }
+    String token = tokens.get(position);
+    if (!Character.isJavaIdentifierStart(token.charAt(0)) || isKeyword(token)) {
+      return null;
+    }
+    JsonArray get = new JsonArray();
+    get.add("get");
+    for (String segment : token.split("\\.", -1)) {
+      if (segment.isEmpty()) {
+        return null;
+      }
+      get.add(segment);
+    }
+    position++;
+    return compiler.compile(get);
+  }
+
+  private boolean accept(String expected) {
+    if (position < tokens.size() && tokens.get(position).equalsIgnoreCase(expected)
+        && !tokens.get(position).startsWith("'")) {
+      position++;
+      return true;
+    }
+    return false;
+  }
+
+  private static boolean isKeyword(String token) {
+    switch (token.toUpperCase(Locale.ROOT)) {
+      case "AND", "OR", "NOT", "BETWEEN", "IN", "LIKE", "ESCAPE", "IS", "NULL", "TRUE", "FALSE":
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  private static boolean isNumeric(String token) {
+    return !token.isEmpty() && (Character.isDigit(token.charAt(0)) || token.charAt(0) == '.');
+  }
+
+  /**
+   * Splits a selector into identifiers and keywords, quoted strings (kept with their leading
+   * quote), numbers and operators. Returns null on anything it does not recognise.
+   */
+  private static List<String> tokenize(String selector) {
+    List<String> tokens = new ArrayList<>();
+    int i = 0;
+    while (i < selector.length()) {
+      char c = selector.charAt(i);
+      if (Character.isWhitespace(c)) {
+        i++;
+      } else if (c == '\'') {
+        StringBuilder text = new StringBuilder("'");
+        i++;
+        while (true) {
+          if (i >= selector.length()) {
+            return null;
+          }
+          char next = selector.charAt(i++);
+          if (next == '\'') {
+            if (i < selector.length() && selector.charAt(i) == '\'') {
+              text.append('\'');
+              i++;
+            } else {
+              break;
+            }
+          } else {
+            text.append(next);
+          }
+        }
+        tokens.add(text.toString());
+      } else if (Character.isJavaIdentifierStart(c)) {
+        int start = i;
+        while (i < selector.length() && (Character.isJavaIdentifierPart(selector.charAt(i)) || selector.charAt(i) == '.')) {
+          i++;
+        }
+        tokens.add(selector.substring(start, i));
+      } else if (Character.isDigit(c) || (c == '.' && i + 1 < selector.length() && Character.isDigit(selector.charAt(i + 1)))) {
+        int start = i;
+        while (i < selector.length() && (Character.isDigit(selector.charAt(i)) || selector.charAt(i) == '.')) {
+          i++;
+        }
+        if (i < selector.length() && (selector.charAt(i) == 'e' || selector.charAt(i) == 'E')) {
+          i++;
+          if (i < selector.length() && (selector.charAt(i) == '+' || selector.charAt(i) == '-')) {
+            i++;
+          }
+          while (i < selector.length() && Character.isDigit(selector.charAt(i))) {
+            i++;
+          }
+        }
+        String number = selector.substring(start, i);
+        if (i < selector.length() && Character.isJavaIdentifierPart(selector.charAt(i))) {
+          // type suffixes, hex and octal literals are left to the selector library
+          return null;
+        }
+        try {
+          Double.parseDouble(number);
+        } catch (NumberFormatException e) {
+          return null;
+        }
+        tokens.add(number);
+      } else if (c == '<' || c == '>') {
+        if (i + 1 < selector.length() && (selector.charAt(i + 1) == '=' || (c == '<' && selector.charAt(i + 1) == '>'))) {
+          tokens.add(selector.substring(i, i + 2));
+          i += 2;
+        } else {
+          tokens.add(String.valueOf(c));
+          i++;
+        }
+      } else if ("=(),-".indexOf(c) >= 0) {
+        tokens.add(String.valueOf(c));
+        i++;
+      } else {
+        return null;
+      }
+    }
+    return tokens;
+  }
+
+  @FunctionalInterface
+  private interface Condition {
+    int evaluate(JsonElement data);
+  }
+}
@@ -35,6 +35,11 @@ public final class SizeFunction implements JsonQueryFunction {
     return "size";
   }
 
+  @Override
+  public int cost() {
+    return 1;
+  }
+
   @Override
   public Function<JsonElement, JsonElement> compile(List<JsonElement> rawArgs,
                                                     JsonQueryCompiler compiler) {
@@ -45,27 +50,27 @@ public final class SizeFunction implements JsonQueryFunction {
 
     return data -> {
       if (data == null || data.isJsonNull()) {
-        return new JsonPrimitive(0);
+        return JsonQueryGson.integerValue(0);
       }
 
       if (data.isJsonArray()) {
         JsonArray array = data.getAsJsonArray();
-        return new JsonPrimitive(array.size());
+        return JsonQueryGson.integerValue(array.size());
       }
 
       if (data.isJsonObject()) {
         JsonObject object = data.getAsJsonObject();
-        return new JsonPrimitive(object.size());
+        return JsonQueryGson.integerValue(object.size());
       }
 
       if (data.isJsonPrimitive()) {
         JsonPrimitive primitive = data.getAsJsonPrimitive();
         if (primitive.isString()) {
-          return new JsonPrimitive(primitive.getAsString().length());
+          return JsonQueryGson.integerValue(primitive.getAsString().length());
         }
       }
 
-      return new JsonPrimitive(0);
+      return JsonQueryGson.integerValue(0);
     };
   }
 }
@@ -23,10 +23,9 @@ import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonNull;
 import com.google.gson.JsonPrimitive;
+import io.mapsmessaging.jsonquery.ExecutionContext;
 import io.mapsmessaging.jsonquery.JsonQueryCompiler;
 
-import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.List;
 import java.util.function.Function;
 
@@ -171,6 +170,97 @@ public final class SortFunction extends AbstractFunction implements JsonQueryFun
 
   @Override
   public Function<JsonElement, JsonElement> compile(List<JsonElement> rawArgs, JsonQueryCompiler compiler) {
+    SortSpec sortSpec = parseArgs(rawArgs, compiler);
+    ParallelArrays parallel = ParallelArrays.of(compiler);
+
+    return data -> {
+      if (data == null || data.isJsonNull()) {
+        return JsonNull.INSTANCE;
+      }
+      if (!data.isJsonArray()) {
+        throw new IllegalArgumentException("Array expected");
+      }
+
+      JsonArray array = data.getAsJsonArray();
+      int size = array.size();
+      JsonArray out = new JsonArray(size);
+      ExecutionContext budget = ExecutionContext.current();
+      if (budget != null) {
+        budget.steps(size);
+      }
+      if (size <= 1) {
+        // A single element is never compared, so the selector is never evaluated
+        for (JsonElement element : array) {
+          if (budget != null) {
+            budget.emit(element);
+          }
+          out.add(element);
+        }
+        return out;
+      }
+
+      // Decorate-sort-undecorate: each key is selected and classified exactly once
+      int[] order = parallel != null && parallel.covers(array)
+          ? parallel.sortedIndices(array, sortSpec.selector, sortSpec.descending)
+          : SortKeys.of(array, sortSpec.selector).sortedIndices(sortSpec.descending);
+      for (int index : order) {
+        JsonElement element = array.get(index);
+        if (budget != null) {
+          budget.emit(element);
+        }
+        out.add(element);
+      }
+      return out;
+    };
+  }
+
+  /**
+   * Compiles {@code sort(args) | limit(limit)} as a single stage. A bounded heap keeps the best
+   * {@code limit} elements, ordered by key and then by input position, so the result is exactly
+   * the first {@code limit} elements of the stable sort without sorting or copying the rest.
+   */
+  Function<JsonElement, JsonElement> compileTopK(List<JsonElement> rawArgs, JsonQueryCompiler compiler, int limit) {
+    SortSpec sortSpec = parseArgs(rawArgs, compiler);
+    int k = Math.max(0, limit);
+
+    return data -> {
+      if (data == null || data.isJsonNull()) {
+        return JsonNull.INSTANCE;
+      }
+      if (!data.isJsonArray()) {
+        throw new IllegalArgumentException("Array expected");
+      }
+
+      JsonArray array = data.getAsJsonArray();
+      JsonArray out = new JsonArray();
+      ExecutionContext budget = ExecutionContext.current();
+      if (budget != null) {
+        budget.steps(array.size());
+      }
+      if (array.size() <= 1) {
+        // A single element is never compared, so the selector is never evaluated
+        if (k > 0 && !array.isEmpty()) {
+          out.add(array.get(0));
+        }
+      } else {
+        TopK topK = new TopK(Math.min(k, array.size()), sortSpec.descending);
+        int index = 0;
+        for (JsonElement element : array) {
+          SortKeys.poll(budget, index);
+          topK.offer(element, safe(sortSpec.selector.apply(element)), index++);
+        }
+        topK.drainTo(out);
+      }
+      if (budget != null) {
+        for (JsonElement element : out) {
+          budget.emit(element);
+        }
+      }
+      return out;
+    };
+  }
+
+  private SortSpec parseArgs(List<JsonElement> rawArgs, JsonQueryCompiler compiler) {
     if (rawArgs.size() > 2) {
       throw new IllegalArgumentException("sort expects 0..2 arguments");
     }
@@ -193,41 +283,110 @@ public final class SortFunction extends AbstractFunction implements JsonQueryFun
       }
       descending = isDesc(dir.getAsString());
     }
+    return new SortSpec(selector, descending);
+  }
 
-    Function<JsonElement, JsonElement> selected = selector;
-    Comparator<JsonElement> comparator = (left, right) -> {
-      JsonElement leftKey = safe(selected.apply(left));
-      JsonElement rightKey = safe(selected.apply(right));
-      return compareJson(leftKey, rightKey);
-    };
+  private record SortSpec(Function<JsonElement, JsonElement> selector, boolean descending) {
+  }
 
-    if (descending) {
-      comparator = comparator.reversed();
-    }
+  /**
+   * Max-heap of the best {@code capacity} entries seen so far; the root is the entry that would
+   * be dropped next. Entries are offered in input order, so a later element only displaces the
+   * root when its key is strictly better.
+   */
+  private static final class TopK {
+    private final JsonElement[] elements;
+    private final JsonElement[] keys;
+    private final int[] positions;
+    private final boolean descending;
+    private int size;
 
-    Comparator<JsonElement> finalComparator = comparator;
+    private TopK(int capacity, boolean descending) {
+      this.elements = new JsonElement[capacity];
+      this.keys = new JsonElement[capacity];
+      this.positions = new int[capacity];
+      this.descending = descending;
+    }
 
-    return data -> {
-      if (data == null || data.isJsonNull()) {
-        return JsonNull.INSTANCE;
+    private void offer(JsonElement element, JsonElement key, int position) {
+      if (size < elements.length) {
+        set(size, element, key, position);
+        siftUp(size++);
+        return;
       }
-      if (!data.isJsonArray()) {
-        throw new IllegalArgumentException("Array expected");
+      if (size == 0 || compareKeys(key, keys[0]) >= 0) {
+        return;
       }
+      set(0, element, key, position);
+      siftDown(0);
+    }
 
-      JsonArray array = data.getAsJsonArray();
-      List<JsonElement> list = new ArrayList<>(array.size());
-      for (JsonElement element : array) {
-        list.add(element);
+    private void drainTo(JsonArray out) {
+      int count = size;
+      JsonElement[] sorted = new JsonElement[count];
+      while (size > 0) {
+        sorted[size - 1] = elements[0];
+        size--;
+        set(0, elements[size], keys[size], positions[size]);
+        siftDown(0);
       }
+      for (JsonElement element : sorted) {
+        out.add(element);
+      }
+    }
 
-      list.sort(finalComparator);
+    private int compareKeys(JsonElement left, JsonElement right) {
+      int result = compareJson(left, right);
+      return descending ? -result : result;
+    }
 
-      JsonArray out = new JsonArray();
-      for (JsonElement element : list) {
-        out.add(element);
+    private int compare(int left, int right) {
+      int result = compareKeys(keys[left], keys[right]);
+      return result != 0 ? result : Integer.compare(positions[left], positions[right]);
+    }
+
+    private void siftUp(int slot) {
+      while (slot > 0) {
+        int parent = (slot - 1) >>> 1;
+        if (compare(slot, parent) <= 0) {
+          return;
+        }
+        swap(slot, parent);
+        slot = parent;
       }
-      return out;
-    };
+    }
+
+    private void siftDown(int slot) {
+      while (true) {
+        int largest = slot;
+        int left = 2 * slot + 1;
+        int right = left + 1;
+        if (left < size && compare(left, largest) > 0) {
+          largest = left;
+        }
+        if (right < size && compare(right, largest) > 0) {
+          largest = right;
+        }
+        if (largest == slot) {
+          return;
+        }
+        swap(slot, largest);
+        slot = largest;
+      }
+    }
+
+    private void set(int slot, JsonElement element, JsonElement key, int position) {
+      elements[slot] = element;
+      keys[slot] = key;
+      positions[slot] = position;
+    }
+
+    private void swap(int a, int b) {
+      JsonElement element = elements[a];
+      JsonElement key = keys[a];
+      int position = positions[a];
+      set(a, elements[b], keys[b], positions[b]);
+      set(b, element, key, position);
+    }
   }
 }
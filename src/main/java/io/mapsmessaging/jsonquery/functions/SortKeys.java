@@ -0,0 +1,221 @@
+/*
+ *
+ *  Copyright [ 2020 - 2024 ] Matthew Buckton
+ *  Copyright [ 2024 - 2025 ] MapsMessaging B.V.
+ *
+ *  Licensed under the Apache License, Version 2.0 with the Commons Clause
+ *  (the "License"); you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at:
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *      https://commonsclause.com/
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.mapsmessaging.jsonquery.functions;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonPrimitive;
+import io.mapsmessaging.jsonquery.ExecutionContext;
+
+import java.util.function.Function;
+
+/**
+ * Sort keys evaluated once per element and packed into primitive arrays: a bucket rank
+ * (null < boolean < number < string < non-scalar) plus a double for booleans and numbers or a
+ * String for strings. Comparisons then never touch the selector or the Gson tree again.
+ * <p>
+ * Sort charges its steps before it starts, so selecting keys and sorting poll the current
+ * {@link ExecutionContext} for its deadline and cancellation every {@link
+ * ExecutionContext#CHECK_INTERVAL} elements and once per merge pass.
+ */
+final class SortKeys {
+
+  static final int NULL_RANK = 0;
+  static final int BOOLEAN_RANK = 1;
+  static final int NUMBER_RANK = 2;
+  static final int STRING_RANK = 3;
+  static final int OTHER_RANK = 4;
+
+  // Runs up to this length are insertion sorted before merging
+  private static final int INSERTION_THRESHOLD = 32;
+
+  private final byte[] ranks;
+  private final double[] numbers;
+  private final String[] strings;
+
+  SortKeys(int size) {
+    this.ranks = new byte[size];
+    this.numbers = new double[size];
+    this.strings = new String[size];
+  }
+
+  static SortKeys of(JsonArray array, Function<JsonElement, JsonElement> selector) {
+    SortKeys keys = new SortKeys(array.size());
+    ExecutionContext budget = ExecutionContext.current();
+    int index = 0;
+    for (JsonElement element : array) {
+      poll(budget, index);
+      keys.set(index++, selector.apply(element));
+    }
+    return keys;
+  }
+
+  /**
+   * Checks the deadline and cancellation at every {@link ExecutionContext#CHECK_INTERVAL}th index.
+   */
+  static void poll(ExecutionContext budget, int index) {
+    if (budget != null && index % ExecutionContext.CHECK_INTERVAL == 0) {
+      budget.checkpoint();
+    }
+  }
+
+  int size() {
+    return ranks.length;
+  }
+
+  void set(int index, JsonElement key) {
+    if (key == null || key.isJsonNull()) {
+      ranks[index] = NULL_RANK;
+      return;
+    }
+    if (!key.isJsonPrimitive()) {
+      ranks[index] = OTHER_RANK;
+      return;
+    }
+    JsonPrimitive primitive = key.getAsJsonPrimitive();
+    if (primitive.isBoolean()) {
+      ranks[index] = BOOLEAN_RANK;
+      numbers[index] = primitive.getAsBoolean() ? 1.0 : 0.0;
+    } else if (primitive.isNumber()) {
+      ranks[index] = NUMBER_RANK;
+      numbers[index] = primitive.getAsDouble();
+    } else {
+      ranks[index] = STRING_RANK;
+      strings[index] = primitive.getAsString();
+    }
+  }
+
+  /**
+   * Same ordering as {@code SortFunction.compareJson}: values in different buckets order by
+   * bucket, nulls and non-scalars are all equal within their bucket.
+   */
+  int compare(int left, int right) {
+    int leftRank = ranks[left];
+    int rightRank = ranks[right];
+    if (leftRank != rightRank) {
+      return Integer.compare(leftRank, rightRank);
+    }
+    switch (leftRank) {
+      case BOOLEAN_RANK:
+      case NUMBER_RANK:
+        return Double.compare(numbers[left], numbers[right]);
+      case STRING_RANK:
+        return strings[left].compareTo(strings[right]);
+      default:
+        return 0;
+    }
+  }
+
+  /**
+   * Returns the element indices in stable sorted order. Descending only reverses the key
+   * comparison, so equal keys keep their input order either way.
+   */
+  int[] sortedIndices(boolean descending) {
+    int size = ranks.length;
+    int[] order = new int[size];
+    for (int i = 0; i < size; i++) {
+      order[i] = i;
+    }
+    sort(order, 0, size, descending);
+    return order;
+  }
+
+  /**
+   * Stable merge sort of {@code order[from, to)}.
+   */
+  void sort(int[] order, int from, int to, boolean descending) {
+    sort(order, new int[order.length], from, to, descending);
+  }
+
+  /**
+   * As {@link #sort(int[], int, int, boolean)}, using {@code buffer[from, to)} as scratch space so
+   * that disjoint ranges can be sorted concurrently.
+   */
+  void sort(int[] order, int[] buffer, int from, int to, boolean descending) {
+    ExecutionContext budget = ExecutionContext.current();
+    for (int start = from; start < to; start += INSERTION_THRESHOLD) {
+      poll(budget, start - from);
+      insertionSort(order, start, Math.min(start + INSERTION_THRESHOLD, to), descending);
+    }
+    if (to - from <= INSERTION_THRESHOLD) {
+      return;
+    }
+
+    int[] source = order;
+    int[] target = buffer;
+    for (int width = INSERTION_THRESHOLD; width < to - from; width *= 2) {
+      if (budget != null) {
+        budget.checkpoint();
+      }
+      for (int start = from; start < to; start += 2 * width) {
+        int middle = Math.min(start + width, to);
+        int end = Math.min(start + 2 * width, to);
+        merge(source, target, start, middle, end, descending);
+      }
+      int[] swap = source;
+      source = target;
+      target = swap;
+    }
+    if (source != order) {
+      System.arraycopy(source, from, order, from, to - from);
+    }
+  }
+
+  void merge(int[] source, int[] target, int from, int middle, int to, boolean descending) {
+    int left = from;
+    int right = middle;
+    int out = from;
+    if (middle < to && middle > from && directed(source[middle - 1], source[middle], descending) <= 0) {
+      // Already ordered across the boundary
+      System.arraycopy(source, from, target, from, to - from);
+      return;
+    }
+    while (left < middle && right < to) {
+      if (directed(source[right], source[left], descending) < 0) {
+        target[out++] = source[right++];
+      } else {
+        target[out++] = source[left++];
+      }
+    }
+    while (left < middle) {
+      target[out++] = source[left++];
+    }
+    while (right < to) {
+      target[out++] = source[right++];
+    }
+  }
+
+  private void insertionSort(int[] order, int from, int to, boolean descending) {
+    for (int i = from + 1; i < to; i++) {
+      int current = order[i];
+      int j = i - 1;
+      while (j >= from && directed(order[j], current, descending) > 0) {
+        order[j + 1] = order[j];
+        j--;
+      }
+      order[j + 1] = current;
+    }
+  }
+
+  private int directed(int left, int right, boolean descending) {
+    int result = compare(left, right);
+    return descending ? -result : result;
+  }
+}
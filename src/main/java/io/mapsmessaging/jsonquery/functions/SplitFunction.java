@@ -36,6 +36,11 @@ public final class SplitFunction implements JsonQueryFunction {
     return "split";
   }
 
+  @Override
+  public boolean isPure() {
+    return true;
+  }
+
   @Override
   public Function<JsonElement, JsonElement> compile(List<JsonElement> rawArgs,
                                                     JsonQueryCompiler compiler) {
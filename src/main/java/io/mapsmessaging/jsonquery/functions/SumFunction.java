@@ -35,6 +35,11 @@ public final class SumFunction implements JsonQueryFunction {
     return "sum";
   }
 
+  @Override
+  public int cost() {
+    return 10;
+  }
+
   @Override
   public Function<JsonElement, JsonElement> compile(List<JsonElement> rawArgs, JsonQueryCompiler compiler) {
     if (!rawArgs.isEmpty()) {
@@ -52,7 +57,7 @@ public final class SumFunction implements JsonQueryFunction {
 
       JsonArray array = data.getAsJsonArray();
       if (array.isEmpty()) {
-        return new JsonPrimitive(0);
+        return JsonQueryGson.integerValue(0);
       }
 
       double sum = 0.0;
@@ -67,7 +72,7 @@ public final class SumFunction implements JsonQueryFunction {
       }
 
       if (sum == Math.rint(sum)) {
-        return new JsonPrimitive((long) sum);
+        return JsonQueryGson.integerValue((long) sum);
       }
       return new JsonPrimitive(sum);
     };
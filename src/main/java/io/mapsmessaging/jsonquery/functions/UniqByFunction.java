@@ -22,11 +22,10 @@ package io.mapsmessaging.jsonquery.functions;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonNull;
+import io.mapsmessaging.jsonquery.ExecutionContext;
 import io.mapsmessaging.jsonquery.JsonQueryCompiler;
 
-import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Set;
 import java.util.function.Function;
 
 public final class UniqByFunction implements JsonQueryFunction {
@@ -56,14 +55,21 @@ public final class UniqByFunction implements JsonQueryFunction {
 
       JsonArray input = data.getAsJsonArray();
       JsonArray result = new JsonArray();
-      Set<JsonElement> seenKeys = new LinkedHashSet<>();
+      GroupingTable seenKeys = new GroupingTable();
+      ExecutionContext budget = ExecutionContext.current();
 
       for (JsonElement element : input) {
+        if (budget != null) {
+          budget.step();
+        }
         JsonElement key = keySelector.apply(element);
         if (key == null || key.isJsonNull()) {
           continue;
         }
-        if (seenKeys.add(key)) {
+        if (seenKeys.add(key) == result.size()) {
+          if (budget != null) {
+            budget.emit(element);
+          }
           result.add(element);
         }
       }
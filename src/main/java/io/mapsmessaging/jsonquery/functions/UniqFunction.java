@@ -24,9 +24,7 @@ import com.google.gson.JsonElement;
 import com.google.gson.JsonNull;
 import io.mapsmessaging.jsonquery.JsonQueryCompiler;
 
-import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Set;
 import java.util.function.Function;
 
 public final class UniqFunction implements JsonQueryFunction {
@@ -53,15 +51,13 @@ public final class UniqFunction implements JsonQueryFunction {
       }
 
       JsonArray input = data.getAsJsonArray();
-      Set<JsonElement> seen = new LinkedHashSet<>();
+      GroupingTable seen = new GroupingTable();
+      JsonArray result = new JsonArray();
 
       for (JsonElement element : input) {
-        seen.add(element);
-      }
-
-      JsonArray result = new JsonArray();
-      for (JsonElement element : seen) {
-        result.add(element);
+        if (seen.add(element) == result.size()) {
+          result.add(element);
+        }
       }
 
       return result;
@@ -23,6 +23,7 @@ import com.google.gson.JsonElement;
 import com.google.gson.JsonPrimitive;
 import io.mapsmessaging.jsonquery.JsonQueryCompiler;
 import io.mapsmessaging.jsonquery.functions.JsonQueryFunction;
+import io.mapsmessaging.jsonquery.functions.PredicateExpression;
 
 import java.util.List;
 import java.util.function.BiPredicate;
@@ -66,6 +67,21 @@ public abstract class AbstractBinaryPredicateFunction implements JsonQueryFuncti
 
   protected abstract BiPredicate<JsonElement, JsonElement> predicate();
 
+  @Override
+  public boolean isPure() {
+    return true;
+  }
+
+  @Override
+  public int cost() {
+    return 1;
+  }
+
+  @Override
+  public boolean isInfallible(List<JsonElement> rawArgs, JsonQueryCompiler compiler) {
+    return true;
+  }
+
   @Override
   public final Function<JsonElement, JsonElement> compile(List<JsonElement> rawArgs, JsonQueryCompiler compiler) {
     if (rawArgs.size() != 2) {
@@ -76,7 +92,7 @@ public abstract class AbstractBinaryPredicateFunction implements JsonQueryFuncti
     Function<JsonElement, JsonElement> rightExpression = compiler.compile(rawArgs.get(1));
     BiPredicate<JsonElement, JsonElement> binaryPredicate = predicate();
 
-    return data -> {
+    return (PredicateExpression) data -> {
       JsonElement leftValue = leftExpression.apply(data);
       JsonElement rightValue = rightExpression.apply(data);
 
@@ -84,14 +100,13 @@ public abstract class AbstractBinaryPredicateFunction implements JsonQueryFuncti
       boolean rightIsNull = (rightValue == null || rightValue.isJsonNull());
 
       if (leftIsNull && rightIsNull) {
-        return new JsonPrimitive(true);
+        return true;
       }
       if (leftIsNull || rightIsNull) {
-        return new JsonPrimitive(false);
+        return false;
       }
 
-      boolean result = binaryPredicate.test(leftValue, rightValue);
-      return new JsonPrimitive(result);
+      return binaryPredicate.test(leftValue, rightValue);
     };
   }
 
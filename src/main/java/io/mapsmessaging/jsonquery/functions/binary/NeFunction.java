@@ -23,6 +23,7 @@ import com.google.gson.JsonElement;
 import com.google.gson.JsonPrimitive;
 import io.mapsmessaging.jsonquery.JsonQueryCompiler;
 import io.mapsmessaging.jsonquery.functions.JsonQueryFunction;
+import io.mapsmessaging.jsonquery.functions.PredicateExpression;
 
 import java.util.List;
 import java.util.function.Function;
@@ -89,6 +90,21 @@ public final class NeFunction implements JsonQueryFunction {
     return "ne";
   }
 
+  @Override
+  public boolean isPure() {
+    return true;
+  }
+
+  @Override
+  public int cost() {
+    return 1;
+  }
+
+  @Override
+  public boolean isInfallible(List<JsonElement> rawArgs, JsonQueryCompiler compiler) {
+    return true;
+  }
+
   @Override
   public Function<JsonElement, JsonElement> compile(List<JsonElement> rawArgs, JsonQueryCompiler compiler) {
     if (rawArgs.size() != 2) {
@@ -98,7 +114,7 @@ public final class NeFunction implements JsonQueryFunction {
     Function<JsonElement, JsonElement> leftExpression = compiler.compile(rawArgs.get(0));
     Function<JsonElement, JsonElement> rightExpression = compiler.compile(rawArgs.get(1));
 
-    return data -> {
+    return (PredicateExpression) data -> {
       JsonElement leftValue = leftExpression.apply(data);
       JsonElement rightValue = rightExpression.apply(data);
 
@@ -107,27 +123,27 @@ public final class NeFunction implements JsonQueryFunction {
 
       // ne(null, null) = false
       if (leftIsNull && rightIsNull) {
-        return new JsonPrimitive(false);
+        return false;
       }
 
       // ne(null, x) = true, ne(x, null) = true
       if (leftIsNull || rightIsNull) {
-        return new JsonPrimitive(true);
+        return true;
       }
 
       // Same-type primitives: normal inequality
       if (isNumber(leftValue) && isNumber(rightValue)) {
-        return new JsonPrimitive(Double.compare(leftValue.getAsDouble(), rightValue.getAsDouble()) != 0);
+        return Double.compare(leftValue.getAsDouble(), rightValue.getAsDouble()) != 0;
       }
       if (isString(leftValue) && isString(rightValue)) {
-        return new JsonPrimitive(!leftValue.getAsString().equals(rightValue.getAsString()));
+        return !leftValue.getAsString().equals(rightValue.getAsString());
       }
       if (isBoolean(leftValue) && isBoolean(rightValue)) {
-        return new JsonPrimitive(leftValue.getAsBoolean() != rightValue.getAsBoolean());
+        return leftValue.getAsBoolean() != rightValue.getAsBoolean();
       }
 
       // For arrays/objects (and any other non-primitive combos):
-      return new JsonPrimitive(!deepEquals(leftValue, rightValue));
+      return !deepEquals(leftValue, rightValue);
 
     };
   }
@@ -0,0 +1,96 @@
+/*
+ *
+ *  Copyright [ 2020 - 2024 ] Matthew Buckton
+ *  Copyright [ 2024 - 2025 ] MapsMessaging B.V.
+ *
+ *  Licensed under the Apache License, Version 2.0 with the Commons Clause
+ *  (the "License"); you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at:
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *      https://commonsclause.com/
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.mapsmessaging.jsonquery.functions.logic;
+
+import com.google.gson.JsonElement;
+import io.mapsmessaging.jsonquery.functions.JsonQueryFunction;
+import io.mapsmessaging.jsonquery.functions.PredicateExpression;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@code and}/{@code or} operands that record, over the first evaluations, how often each one
+ * decides the result. Once enough samples are in, every run of movable operands is ordered by
+ * cost divided by the chance of deciding, so cheap operands that usually settle the result go
+ * first. The order is then fixed for the life of the compiled query.
+ */
+final class AdaptiveOperands implements PredicateExpression {
+
+  private final PredicateExpression[] operands;
+  private final int[] costs;
+  private final boolean decisive;
+  private final int samples;
+
+  // Updated without synchronisation: a lost increment under contention only blurs the estimate
+  private final int[] evaluated;
+  private final int[] decided;
+  private final AtomicInteger observed = new AtomicInteger();
+  private volatile PredicateExpression[] settled;
+
+  AdaptiveOperands(PredicateExpression[] operands, int[] costs, boolean decisive, int samples) {
+    this.operands = operands;
+    this.costs = costs;
+    this.decisive = decisive;
+    this.samples = samples;
+    this.evaluated = new int[operands.length];
+    this.decided = new int[operands.length];
+  }
+
+  @Override
+  public boolean test(JsonElement data) {
+    PredicateExpression[] order = settled;
+    if (order != null) {
+      return OperandOrder.evaluate(order, data, decisive);
+    }
+    boolean result = sample(data);
+    if (observed.incrementAndGet() == samples) {
+      settle();
+    }
+    return result;
+  }
+
+  private boolean sample(JsonElement data) {
+    for (int i = 0; i < operands.length; i++) {
+      evaluated[i]++;
+      if (operands[i].test(data) == decisive) {
+        decided[i]++;
+        return decisive;
+      }
+    }
+    return !decisive;
+  }
+
+  private void settle() {
+    double[] rank = new double[operands.length];
+    for (int i = 0; i < operands.length; i++) {
+      if (costs[i] != JsonQueryFunction.UNKNOWN_COST) {
+        // Laplace smoothing keeps operands that were never reached in the middle of the range
+        double chance = (decided[i] + 1.0) / (evaluated[i] + 2.0);
+        rank[i] = (costs[i] + 1) / chance;
+      }
+    }
+    int[] order = OperandOrder.sortRuns(costs, rank);
+    PredicateExpression[] reordered = new PredicateExpression[operands.length];
+    for (int i = 0; i < order.length; i++) {
+      reordered[i] = operands[order[i]];
+    }
+    settled = reordered;
+  }
+}
@@ -0,0 +1,146 @@
+/*
+ *
+ *  Copyright [ 2020 - 2024 ] Matthew Buckton
+ *  Copyright [ 2024 - 2025 ] MapsMessaging B.V.
+ *
+ *  Licensed under the Apache License, Version 2.0 with the Commons Clause
+ *  (the "License"); you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at:
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *      https://commonsclause.com/
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.mapsmessaging.jsonquery.functions.logic;
+
+import com.google.gson.JsonElement;
+import io.mapsmessaging.jsonquery.JsonQueryCompiler;
+import io.mapsmessaging.jsonquery.functions.JsonQueryFunction;
+import io.mapsmessaging.jsonquery.functions.PredicateExpression;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Evaluation order of {@code and} and {@code or} operands. With operand reordering enabled, each
+ * run of movable operands is sorted cheapest first. An operand is movable when its cost is known
+ * and it is {@link JsonQueryCompiler#isInfallible infallible}; any other operand stays where it
+ * was written and nothing moves across it, so a guard written before an operand that can throw
+ * still runs first.
+ */
+public final class OperandOrder {
+
+  private OperandOrder() {
+  }
+
+  /**
+   * Returns the operands in the order they should be evaluated, or {@code rawArgs} itself when
+   * reordering is off or nothing moves.
+   */
+  public static List<JsonElement> reorder(List<JsonElement> rawArgs, JsonQueryCompiler compiler) {
+    if (!compiler.getOptions().isOperandReordering() || rawArgs.size() < 2) {
+      return rawArgs;
+    }
+    int[] costs = costs(rawArgs, compiler);
+    double[] rank = new double[costs.length];
+    for (int i = 0; i < costs.length; i++) {
+      rank[i] = costs[i];
+    }
+    int[] order = sortRuns(costs, rank);
+    List<JsonElement> ordered = new ArrayList<>(rawArgs.size());
+    boolean moved = false;
+    for (int i = 0; i < order.length; i++) {
+      ordered.add(rawArgs.get(order[i]));
+      moved |= order[i] != i;
+    }
+    return moved ? ordered : rawArgs;
+  }
+
+  /**
+   * Compiles the operands into one predicate that stops at the first operand testing
+   * {@code decisive} and returns it, or returns {@code !decisive} when none does.
+   */
+  static PredicateExpression compile(List<JsonElement> rawArgs, JsonQueryCompiler compiler, boolean decisive) {
+    List<JsonElement> ordered = reorder(rawArgs, compiler);
+    PredicateExpression[] operands = new PredicateExpression[ordered.size()];
+    for (int i = 0; i < operands.length; i++) {
+      operands[i] = PredicateExpression.of(JsonQueryFunction.compileArg(ordered.get(i), compiler));
+    }
+
+    int samples = compiler.getOptions().getSelectivitySamples();
+    if (samples > 0) {
+      int[] costs = costs(ordered, compiler);
+      if (hasMovableRun(costs)) {
+        return new AdaptiveOperands(operands, costs, decisive, samples);
+      }
+    }
+    return data -> evaluate(operands, data, decisive);
+  }
+
+  static boolean evaluate(PredicateExpression[] operands, JsonElement data, boolean decisive) {
+    for (PredicateExpression operand : operands) {
+      if (operand.test(data) == decisive) {
+        return decisive;
+      }
+    }
+    return !decisive;
+  }
+
+  /**
+   * Returns the operand indexes with every run of movable operands stably sorted by rank.
+   */
+  static int[] sortRuns(int[] costs, double[] rank) {
+    Integer[] order = new Integer[costs.length];
+    for (int i = 0; i < order.length; i++) {
+      order[i] = i;
+    }
+    int start = 0;
+    while (start < costs.length) {
+      if (costs[start] == JsonQueryFunction.UNKNOWN_COST) {
+        start++;
+        continue;
+      }
+      int end = start;
+      while (end < costs.length && costs[end] != JsonQueryFunction.UNKNOWN_COST) {
+        end++;
+      }
+      Arrays.sort(order, start, end, Comparator.comparingDouble(index -> rank[index]));
+      start = end;
+    }
+    int[] result = new int[order.length];
+    for (int i = 0; i < order.length; i++) {
+      result[i] = order[i];
+    }
+    return result;
+  }
+
+  /**
+   * Cost of each operand, or {@link JsonQueryFunction#UNKNOWN_COST} for operands that must keep
+   * their position.
+   */
+  private static int[] costs(List<JsonElement> rawArgs, JsonQueryCompiler compiler) {
+    int[] costs = new int[rawArgs.size()];
+    for (int i = 0; i < costs.length; i++) {
+      JsonElement rawArg = rawArgs.get(i);
+      costs[i] = compiler.isInfallible(rawArg) ? compiler.estimateCost(rawArg) : JsonQueryFunction.UNKNOWN_COST;
+    }
+    return costs;
+  }
+
+  private static boolean hasMovableRun(int[] costs) {
+    for (int i = 1; i < costs.length; i++) {
+      if (costs[i - 1] != JsonQueryFunction.UNKNOWN_COST && costs[i] != JsonQueryFunction.UNKNOWN_COST) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
@@ -21,12 +21,9 @@ package io.mapsmessaging.jsonquery.functions.logic;
 
 import com.google.gson.JsonElement;
 import com.google.gson.JsonNull;
-import com.google.gson.JsonPrimitive;
 import io.mapsmessaging.jsonquery.JsonQueryCompiler;
 import io.mapsmessaging.jsonquery.functions.AbstractFunction;
-import io.mapsmessaging.jsonquery.functions.JsonQueryFunction;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.function.Function;
 
@@ -37,6 +34,21 @@ public final class OrFunction extends AbstractFunction {
     return "or";
   }
 
+  @Override
+  public boolean isPure() {
+    return true;
+  }
+
+  @Override
+  public int cost() {
+    return 1;
+  }
+
+  @Override
+  public boolean isInfallible(List<JsonElement> rawArgs, JsonQueryCompiler compiler) {
+    return true;
+  }
+
   @Override
   public Function<JsonElement, JsonElement> compile(List<JsonElement> rawArgs, JsonQueryCompiler compiler) {
 
@@ -45,19 +57,6 @@ public final class OrFunction extends AbstractFunction {
       return data -> (data == null ? JsonNull.INSTANCE : data);
     }
 
-    List<Function<JsonElement, JsonElement>> expressions = new ArrayList<>();
-    for (JsonElement arg : rawArgs) {
-      expressions.add(compileArg(arg, compiler));
-    }
-
-    return data -> {
-      for (Function<JsonElement, JsonElement> expr : expressions) {
-        JsonElement value = expr.apply(data);
-        if (JsonQueryFunction.isTruthy(value)) {
-          return new JsonPrimitive(true);
-        }
-      }
-      return new JsonPrimitive(false);
-    };
+    return OperandOrder.compile(rawArgs, compiler, true);
   }
 }
@@ -0,0 +1,57 @@
+/*
+ *
+ *  Copyright [ 2020 - 2024 ] Matthew Buckton
+ *  Copyright [ 2024 - 2025 ] MapsMessaging B.V.
+ *
+ *  Licensed under the Apache License, Version 2.0 with the Commons Clause
+ *  (the "License"); you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at:
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *      https://commonsclause.com/
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.mapsmessaging.jsonquery.functions.matcher;
+
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * A compiled pattern together with the named groups declared in its source text. The groups are
+ * only parsed when first asked for, since {@code regex} never uses them.
+ */
+public final class CompiledRegex {
+
+  private final String patternText;
+  private final Pattern pattern;
+  // Racy single-check: every thread computes the same immutable list
+  private List<String> namedGroups;
+
+  public CompiledRegex(String patternText, int flags) {
+    this.patternText = patternText;
+    this.pattern = Pattern.compile(patternText, flags);
+  }
+
+  public Pattern getPattern() {
+    return pattern;
+  }
+
+  public List<String> getNamedGroups() {
+    List<String> groups = namedGroups;
+    if (groups == null) {
+      groups = List.copyOf(NamedGroupParser.parse(patternText));
+      namedGroups = groups;
+    }
+    return groups;
+  }
+
+  boolean hasParsedNamedGroups() {
+    return namedGroups != null;
+  }
+}
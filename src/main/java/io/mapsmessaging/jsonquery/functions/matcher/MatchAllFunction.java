@@ -20,6 +20,7 @@
 package io.mapsmessaging.jsonquery.functions.matcher;
 
 import com.google.gson.*;
+import io.mapsmessaging.jsonquery.ExecutionContext;
 import io.mapsmessaging.jsonquery.JsonQueryCompiler;
 import io.mapsmessaging.jsonquery.functions.AbstractFunction;
 import io.mapsmessaging.jsonquery.functions.JsonQueryFunction;
@@ -27,7 +28,6 @@ import io.mapsmessaging.jsonquery.functions.JsonQueryFunction;
 import java.util.List;
 import java.util.function.Function;
 import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 public final class MatchAllFunction extends AbstractFunction {
 
@@ -36,6 +36,16 @@ public final class MatchAllFunction extends AbstractFunction {
     return "matchAll";
   }
 
+  @Override
+  public boolean isPure() {
+    return true;
+  }
+
+  @Override
+  public int cost() {
+    return 25;
+  }
+
   @Override
   public Function<JsonElement, JsonElement> compile(List<JsonElement> rawArgs, JsonQueryCompiler compiler) {
     if (rawArgs.size() != 2 && rawArgs.size() != 3) {
@@ -43,26 +53,22 @@ public final class MatchAllFunction extends AbstractFunction {
     }
 
     Function<JsonElement, JsonElement> textExpr = compileArg(rawArgs.get(0), compiler);
-    Function<JsonElement, JsonElement> patternExpr = compileArg(rawArgs.get(1), compiler);
-    Function<JsonElement, JsonElement> flagsExpr = (rawArgs.size() == 3) ? compileArg(rawArgs.get(2), compiler) : null;
+    Function<JsonElement, CompiledRegex> regexExpr =
+        RegexArguments.compile(rawArgs.get(1), (rawArgs.size() == 3) ? rawArgs.get(2) : null, compiler);
 
     return data -> {
       String text = JsonQueryFunction.asString(textExpr.apply(data), "String expected");
-      String patternText = JsonQueryFunction.asString(patternExpr.apply(data), "String expected");
-
-      int flags = 0;
-      if (flagsExpr != null) {
-        String flagText = JsonQueryFunction.asString(flagsExpr.apply(data), "String expected");
-        flags = RegexFunctionFlags.parseFlags(flagText);
-      }
+      CompiledRegex regex = regexExpr.apply(data);
+      Matcher matcher = regex.getPattern().matcher(ExecutionContext.guard(text));
 
-      Pattern pattern = Pattern.compile(patternText, flags);
-      Matcher matcher = pattern.matcher(text);
-
-      List<String> namedGroupNames = NamedGroupParser.parse(patternText);
+      List<String> namedGroupNames = regex.getNamedGroups();
 
       JsonArray matches = new JsonArray();
+      ExecutionContext budget = ExecutionContext.current();
       while (matcher.find()) {
+        if (budget != null) {
+          budget.step();
+        }
         JsonObject result = new JsonObject();
         result.add("value", new JsonPrimitive(matcher.group(0)));
 
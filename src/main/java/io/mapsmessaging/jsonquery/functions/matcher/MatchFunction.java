@@ -20,6 +20,7 @@
 package io.mapsmessaging.jsonquery.functions.matcher;
 
 import com.google.gson.*;
+import io.mapsmessaging.jsonquery.ExecutionContext;
 import io.mapsmessaging.jsonquery.JsonQueryCompiler;
 import io.mapsmessaging.jsonquery.functions.AbstractFunction;
 import io.mapsmessaging.jsonquery.functions.JsonQueryFunction;
@@ -27,14 +28,12 @@ import io.mapsmessaging.jsonquery.functions.JsonQueryFunction;
 import java.util.List;
 import java.util.function.Function;
 import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 public final class MatchFunction extends AbstractFunction {
 
   // Minimal named-group support: parse (?<name>...) occurrences.
   // This is enough for the conformance suite cases you showed.
-  private static JsonObject extractNamedGroups(String patternText, Matcher matcher) {
-    List<String> names = NamedGroupParser.parse(patternText);
+  private static JsonObject extractNamedGroups(List<String> names, Matcher matcher) {
     if (names.isEmpty()) {
       return null;
     }
@@ -60,6 +59,16 @@ public final class MatchFunction extends AbstractFunction {
     return "match";
   }
 
+  @Override
+  public boolean isPure() {
+    return true;
+  }
+
+  @Override
+  public int cost() {
+    return 25;
+  }
+
   @Override
   public Function<JsonElement, JsonElement> compile(List<JsonElement> rawArgs, JsonQueryCompiler compiler) {
     if (rawArgs.size() != 2 && rawArgs.size() != 3) {
@@ -67,21 +76,13 @@ public final class MatchFunction extends AbstractFunction {
     }
 
     Function<JsonElement, JsonElement> textExpr = compileArg(rawArgs.get(0), compiler);
-    Function<JsonElement, JsonElement> patternExpr = compileArg(rawArgs.get(1), compiler);
-    Function<JsonElement, JsonElement> flagsExpr = (rawArgs.size() == 3) ? compileArg(rawArgs.get(2), compiler) : null;
+    Function<JsonElement, CompiledRegex> regexExpr =
+        RegexArguments.compile(rawArgs.get(1), (rawArgs.size() == 3) ? rawArgs.get(2) : null, compiler);
 
     return data -> {
       String text = JsonQueryFunction.asString(textExpr.apply(data), "String expected");
-      String patternText = JsonQueryFunction.asString(patternExpr.apply(data), "String expected");
-
-      int flags = 0;
-      if (flagsExpr != null) {
-        String flagText = JsonQueryFunction.asString(flagsExpr.apply(data), "String expected");
-        flags = RegexFunctionFlags.parseFlags(flagText);
-      }
-
-      Pattern pattern = Pattern.compile(patternText, flags);
-      Matcher matcher = pattern.matcher(text);
+      CompiledRegex regex = regexExpr.apply(data);
+      Matcher matcher = regex.getPattern().matcher(ExecutionContext.guard(text));
 
       if (!matcher.find()) {
         return JsonNull.INSTANCE;
@@ -104,7 +105,7 @@ public final class MatchFunction extends AbstractFunction {
         result.add("groups", groups);
       }
 
-      JsonObject namedGroups = extractNamedGroups(patternText, matcher);
+      JsonObject namedGroups = extractNamedGroups(regex.getNamedGroups(), matcher);
       if (namedGroups != null) {
         result.add("namedGroups", namedGroups);
       }
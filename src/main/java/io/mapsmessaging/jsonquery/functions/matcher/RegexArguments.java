@@ -0,0 +1,78 @@
+/*
+ *
+ *  Copyright [ 2020 - 2024 ] Matthew Buckton
+ *  Copyright [ 2024 - 2025 ] MapsMessaging B.V.
+ *
+ *  Licensed under the Apache License, Version 2.0 with the Commons Clause
+ *  (the "License"); you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at:
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *      https://commonsclause.com/
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.mapsmessaging.jsonquery.functions.matcher;
+
+import com.google.gson.JsonElement;
+import io.mapsmessaging.jsonquery.JsonQueryCompiler;
+import io.mapsmessaging.jsonquery.functions.JsonQueryFunction;
+import io.mapsmessaging.jsonquery.functions.JsonQueryGson;
+
+import java.util.function.Function;
+
+/**
+ * Resolves the (pattern, [flags]) arguments shared by regex, match and matchAll.
+ * <p>
+ * When both are string literals the pattern is compiled once here and bound into the closure.
+ * Otherwise they are evaluated per call and looked up in the shared {@link RegexPatternCache}.
+ */
+public final class RegexArguments {
+
+  private RegexArguments() {
+  }
+
+  public static Function<JsonElement, CompiledRegex> compile(JsonElement rawPattern,
+                                                             JsonElement rawFlags,
+                                                             JsonQueryCompiler compiler) {
+    CompiledRegex literal = tryCompileLiteral(rawPattern, rawFlags);
+    if (literal != null) {
+      return data -> literal;
+    }
+
+    Function<JsonElement, JsonElement> patternExpr = JsonQueryFunction.compileArg(rawPattern, compiler);
+    Function<JsonElement, JsonElement> flagsExpr = (rawFlags != null) ? JsonQueryFunction.compileArg(rawFlags, compiler) : null;
+
+    return data -> {
+      String patternText = JsonQueryFunction.asString(patternExpr.apply(data), "String expected");
+      int flags = 0;
+      if (flagsExpr != null) {
+        String flagText = JsonQueryFunction.asString(flagsExpr.apply(data), "String expected");
+        flags = RegexFunctionFlags.parseFlags(flagText);
+      }
+      return RegexPatternCache.get(patternText, flags);
+    };
+  }
+
+  private static CompiledRegex tryCompileLiteral(JsonElement rawPattern, JsonElement rawFlags) {
+    if (!JsonQueryGson.isString(rawPattern)) {
+      return null;
+    }
+    if (rawFlags != null && !JsonQueryGson.isString(rawFlags)) {
+      return null;
+    }
+    try {
+      int flags = (rawFlags != null) ? RegexFunctionFlags.parseFlags(rawFlags.getAsString()) : 0;
+      return new CompiledRegex(rawPattern.getAsString(), flags);
+    } catch (IllegalArgumentException e) {
+      // Invalid literal pattern or flags (PatternSyntaxException is an IllegalArgumentException):
+      // leave the error to evaluation time so it surfaces in the same order as before.
+      return null;
+    }
+  }
+}
@@ -0,0 +1,100 @@
+/*
+ *
+ *  Copyright [ 2020 - 2024 ] Matthew Buckton
+ *  Copyright [ 2024 - 2025 ] MapsMessaging B.V.
+ *
+ *  Licensed under the Apache License, Version 2.0 with the Commons Clause
+ *  (the "License"); you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at:
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *      https://commonsclause.com/
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.mapsmessaging.jsonquery.functions.matcher;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bounded, shared cache of compiled patterns for regex arguments that are only known at
+ * evaluation time. Literal patterns are compiled once by {@link RegexArguments} and never
+ * reach this cache.
+ */
+public final class RegexPatternCache {
+
+  static final int MAXIMUM_SIZE = 512;
+
+  private static final Map<Key, CompiledRegex> CACHE = new ConcurrentHashMap<>();
+
+  private RegexPatternCache() {
+  }
+
+  public static CompiledRegex get(String patternText, int flags) {
+    Key key = new Key(patternText, flags);
+    CompiledRegex compiled = CACHE.get(key);
+    if (compiled != null) {
+      return compiled;
+    }
+    compiled = new CompiledRegex(patternText, flags);
+    if (CACHE.size() >= MAXIMUM_SIZE) {
+      // Cheap approximate eviction: drop whichever entry the iterator yields first
+      Iterator<Key> iterator = CACHE.keySet().iterator();
+      if (iterator.hasNext()) {
+        iterator.next();
+        iterator.remove();
+      }
+    }
+    CompiledRegex existing = CACHE.putIfAbsent(key, compiled);
+    return existing != null ? existing : compiled;
+  }
+
+  static int size() {
+    return CACHE.size();
+  }
+
+  static boolean contains(String patternText, int flags) {
+    return CACHE.containsKey(new Key(patternText, flags));
+  }
+
+  static void clear() {
+    CACHE.clear();
+  }
+
+  private static final class Key {
+    private final String patternText;
+    private final int flags;
+    private final int hash;
+
+    private Key(String patternText, int flags) {
+      this.patternText = patternText;
+      this.flags = flags;
+      this.hash = 31 * patternText.hashCode() + flags;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      if (this == other) {
+        return true;
+      }
+      if (!(other instanceof Key)) {
+        return false;
+      }
+      Key key = (Key) other;
+      return flags == key.flags && Objects.equals(patternText, key.patternText);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+  }
+}
@@ -24,6 +24,7 @@ import com.google.gson.JsonNull;
 import com.google.gson.JsonPrimitive;
 import io.mapsmessaging.jsonquery.JsonQueryCompiler;
 import io.mapsmessaging.jsonquery.functions.JsonQueryFunction;
+import io.mapsmessaging.jsonquery.functions.JsonQueryGson;
 
 import java.util.List;
 import java.util.function.Function;
@@ -35,6 +36,16 @@ public final class AbsFunction implements JsonQueryFunction {
     return "abs";
   }
 
+  @Override
+  public boolean isPure() {
+    return true;
+  }
+
+  @Override
+  public int cost() {
+    return 1;
+  }
+
   @Override
   public Function<JsonElement, JsonElement> compile(List<JsonElement> rawArgs, JsonQueryCompiler compiler) {
     if (rawArgs.size() > 1) {
@@ -60,7 +71,7 @@ public final class AbsFunction implements JsonQueryFunction {
 
       // Preserve integer-ness when possible
       if (Math.floor(abs) == abs) {
-        return new JsonPrimitive((long) abs);
+        return JsonQueryGson.integerValue((long) abs);
       }
 
       return new JsonPrimitive(abs);
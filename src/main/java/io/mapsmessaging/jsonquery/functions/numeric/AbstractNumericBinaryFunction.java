@@ -23,6 +23,7 @@ import com.google.gson.JsonElement;
 import io.mapsmessaging.jsonquery.JsonQueryCompiler;
 import io.mapsmessaging.jsonquery.functions.AbstractFunction;
 import io.mapsmessaging.jsonquery.functions.JsonQueryFunction;
+import io.mapsmessaging.jsonquery.functions.NumericExpression;
 
 import java.util.List;
 import java.util.function.Function;
@@ -33,17 +34,24 @@ public abstract class AbstractNumericBinaryFunction extends AbstractFunction {
 
   protected abstract String symbol();
 
+  @Override
+  public boolean isPure() {
+    return true;
+  }
+
+  @Override
+  public int cost() {
+    return 1;
+  }
+
   @Override
   public final Function<JsonElement, JsonElement> compile(List<JsonElement> rawArgs, JsonQueryCompiler compiler) {
     requireArgCountExact(rawArgs, 2, "2 arguments: " + getName() + "(a,b)");
-    Function<JsonElement, JsonElement> leftExpr = compileArg(rawArgs.get(0), compiler);
-    Function<JsonElement, JsonElement> rightExpr = compileArg(rawArgs.get(1), compiler);
-
-    return data -> {
-      double leftValue = JsonQueryFunction.asNumber(leftExpr.apply(data), "Number expected");
-      double rightValue = JsonQueryFunction.asNumber(rightExpr.apply(data), "Number expected");
-      double result = apply(leftValue, rightValue);
-      return JsonQueryFunction.numberValue(result);
-    };
+    NumericExpression leftExpr = NumericExpression.of(compileArg(rawArgs.get(0), compiler));
+    NumericExpression rightExpr = NumericExpression.of(compileArg(rawArgs.get(1), compiler));
+
+    // Nested arithmetic stays in doubles; only the outermost node boxes the result
+    return (NumericExpression) data -> JsonQueryFunction.numberRoundTrip(
+        apply(leftExpr.applyAsDouble(data), rightExpr.applyAsDouble(data)));
   }
 }
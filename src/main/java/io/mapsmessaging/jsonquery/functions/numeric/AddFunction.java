@@ -25,6 +25,7 @@ import com.google.gson.JsonPrimitive;
 import io.mapsmessaging.jsonquery.JsonQueryCompiler;
 import io.mapsmessaging.jsonquery.functions.AbstractFunction;
 import io.mapsmessaging.jsonquery.functions.JsonQueryFunction;
+import io.mapsmessaging.jsonquery.functions.NumericExpression;
 
 import java.util.List;
 import java.util.function.Function;
@@ -61,12 +62,28 @@ public final class AddFunction extends AbstractFunction {
     return "add";
   }
 
+  @Override
+  public boolean isPure() {
+    return true;
+  }
+
+  @Override
+  public int cost() {
+    return 1;
+  }
+
   @Override
   public Function<JsonElement, JsonElement> compile(List<JsonElement> rawArgs, JsonQueryCompiler compiler) {
     requireArgCountExact(rawArgs, 2, "2 arguments: add(a,b)");
     Function<JsonElement, JsonElement> leftExpr = compileArg(rawArgs.get(0), compiler);
     Function<JsonElement, JsonElement> rightExpr = compileArg(rawArgs.get(1), compiler);
 
+    // Two arithmetic operands can never produce null or a string, so stay numeric
+    if (leftExpr instanceof NumericExpression left && rightExpr instanceof NumericExpression right) {
+      return (NumericExpression) data ->
+          JsonQueryFunction.numberRoundTrip(left.applyAsDouble(data) + right.applyAsDouble(data));
+    }
+
     return data -> {
       JsonElement left = leftExpr.apply(data);
       JsonElement right = rightExpr.apply(data);
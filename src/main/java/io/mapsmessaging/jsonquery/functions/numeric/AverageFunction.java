@@ -25,6 +25,7 @@ import com.google.gson.JsonNull;
 import com.google.gson.JsonPrimitive;
 import io.mapsmessaging.jsonquery.JsonQueryCompiler;
 import io.mapsmessaging.jsonquery.functions.JsonQueryFunction;
+import io.mapsmessaging.jsonquery.functions.JsonQueryGson;
 
 import java.util.List;
 import java.util.function.Function;
@@ -36,6 +37,11 @@ public final class AverageFunction implements JsonQueryFunction {
     return "average";
   }
 
+  @Override
+  public int cost() {
+    return 10;
+  }
+
   @Override
   public Function<JsonElement, JsonElement> compile(List<JsonElement> rawArgs, JsonQueryCompiler compiler) {
     if (!rawArgs.isEmpty()) {
@@ -76,7 +82,7 @@ public final class AverageFunction implements JsonQueryFunction {
       double avg = sum / (double) count;
 
       if (avg == Math.rint(avg)) {
-        return new JsonPrimitive((long) avg);
+        return JsonQueryGson.integerValue((long) avg);
       }
       return new JsonPrimitive(avg);
     };
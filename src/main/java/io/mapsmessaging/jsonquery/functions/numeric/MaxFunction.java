@@ -36,6 +36,11 @@ public final class MaxFunction implements JsonQueryFunction {
     return "max";
   }
 
+  @Override
+  public int cost() {
+    return 10;
+  }
+
   @Override
   public Function<JsonElement, JsonElement> compile(List<JsonElement> rawArgs,
                                                     JsonQueryCompiler compiler) {
@@ -36,6 +36,11 @@ public final class MinFunction implements JsonQueryFunction {
     return "min";
   }
 
+  @Override
+  public int cost() {
+    return 10;
+  }
+
   @Override
   public Function<JsonElement, JsonElement> compile(List<JsonElement> rawArgs, JsonQueryCompiler compiler) {
     if (!rawArgs.isEmpty()) {
@@ -25,6 +25,7 @@ import com.google.gson.JsonNull;
 import com.google.gson.JsonPrimitive;
 import io.mapsmessaging.jsonquery.JsonQueryCompiler;
 import io.mapsmessaging.jsonquery.functions.JsonQueryFunction;
+import io.mapsmessaging.jsonquery.functions.JsonQueryGson;
 
 import java.util.List;
 import java.util.function.Function;
@@ -36,6 +37,11 @@ public final class ProdFunction implements JsonQueryFunction {
     return "prod";
   }
 
+  @Override
+  public int cost() {
+    return 10;
+  }
+
   @Override
   public Function<JsonElement, JsonElement> compile(List<JsonElement> rawArgs, JsonQueryCompiler compiler) {
     if (!rawArgs.isEmpty()) {
@@ -74,7 +80,7 @@ public final class ProdFunction implements JsonQueryFunction {
       }
 
       if (product == Math.rint(product)) {
-        return new JsonPrimitive((long) product);
+        return JsonQueryGson.integerValue((long) product);
       }
       return new JsonPrimitive(product);
     };
@@ -0,0 +1,94 @@
+/*
+ *
+ *  Copyright [ 2020 - 2024 ] Matthew Buckton
+ *  Copyright [ 2024 - 2025 ] MapsMessaging B.V.
+ *
+ *  Licensed under the Apache License, Version 2.0 with the Commons Clause
+ *  (the "License"); you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at:
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *      https://commonsclause.com/
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.mapsmessaging.jsonquery.index;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonPrimitive;
+
+import java.util.Set;
+
+/**
+ * One indexable comparison between a {@code get} path and a constant.
+ * <p>
+ * {@code EQUAL} atoms carry a single {@link #equalityKey} (a null constant is stored as
+ * {@link #NULL_KEY}, which is how every comparison against null behaves), {@code IN} atoms carry
+ * the {@link #membershipKey}s of their constant array and range atoms carry the scalar threshold.
+ */
+record Atom(String pathKey, JsonElement path, Kind kind, Object key, Set<Object> keys, JsonPrimitive threshold) {
+
+  static final Object NULL_KEY = new Object();
+
+  enum Kind {
+    EQUAL,
+    IN,
+    GREATER,
+    GREATER_OR_EQUAL,
+    LESS,
+    LESS_OR_EQUAL;
+
+    Kind flip() {
+      switch (this) {
+        case GREATER:
+          return LESS;
+        case GREATER_OR_EQUAL:
+          return LESS_OR_EQUAL;
+        case LESS:
+          return GREATER;
+        case LESS_OR_EQUAL:
+          return GREATER_OR_EQUAL;
+        default:
+          return this;
+      }
+    }
+  }
+
+  /**
+   * Key under which {@code eq} considers two scalars equal: numbers by {@link Double#compare},
+   * strings and booleans by value. Returns null for arrays and objects.
+   */
+  static Object equalityKey(JsonElement value) {
+    if (value == null || value.isJsonNull()) {
+      return NULL_KEY;
+    }
+    if (!value.isJsonPrimitive()) {
+      return null;
+    }
+    JsonPrimitive primitive = value.getAsJsonPrimitive();
+    if (primitive.isNumber()) {
+      return Double.doubleToLongBits(primitive.getAsDouble());
+    }
+    if (primitive.isBoolean()) {
+      return primitive.getAsBoolean();
+    }
+    return primitive.getAsString();
+  }
+
+  /**
+   * Key under which {@code in} over a constant array considers two scalars equal; as
+   * {@link #equalityKey} except that 0.0 and -0.0 match.
+   */
+  static Object membershipKey(JsonElement value) {
+    if (value != null && value.isJsonPrimitive() && value.getAsJsonPrimitive().isNumber()) {
+      double number = value.getAsDouble();
+      return Double.doubleToLongBits(number == 0.0d ? 0.0d : number);
+    }
+    return equalityKey(value);
+  }
+}
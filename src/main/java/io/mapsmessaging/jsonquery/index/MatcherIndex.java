@@ -0,0 +1,251 @@
+/*
+ *
+ *  Copyright [ 2020 - 2024 ] Matthew Buckton
+ *  Copyright [ 2024 - 2025 ] MapsMessaging B.V.
+ *
+ *  Licensed under the Apache License, Version 2.0 with the Commons Clause
+ *  (the "License"); you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at:
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *      https://commonsclause.com/
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.mapsmessaging.jsonquery.index;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonPrimitive;
+import io.mapsmessaging.jsonquery.JsonQueryCompiler;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+import java.util.function.Predicate;
+
+/**
+ * Immutable snapshot of all subscriptions, built by {@link SubscriptionMatcher} whenever the
+ * subscription set changes.
+ * <p>
+ * Every distinct {@code get} path is evaluated once per message. Its value is looked up in the
+ * path's equality and membership hash maps and stabbed into the sorted range thresholds for its
+ * type, and each hit bumps a per-conjunction counter. A conjunction becomes a candidate once all
+ * of its atoms have been counted, and matches if its residual (if any) also accepts the message.
+ */
+final class MatcherIndex<K> {
+
+  private static final int[] NONE = new int[0];
+
+  private final List<K> ids;
+  private final int[] owners;
+  private final int[] required;
+  private final List<Predicate<JsonElement>> residuals;
+  private final int[] unconditional;
+  private final PathIndex[] paths;
+
+  MatcherIndex(JsonQueryCompiler compiler, Map<K, List<Conjunction>> subscriptions) {
+    this.ids = new ArrayList<>(subscriptions.keySet());
+
+    List<Conjunction> conjunctions = new ArrayList<>();
+    List<Integer> ownerList = new ArrayList<>();
+    int owner = 0;
+    for (List<Conjunction> list : subscriptions.values()) {
+      for (Conjunction conjunction : list) {
+        conjunctions.add(conjunction);
+        ownerList.add(owner);
+      }
+      owner++;
+    }
+
+    int count = conjunctions.size();
+    this.owners = new int[count];
+    this.required = new int[count];
+    this.residuals = new ArrayList<>(count);
+    List<Integer> unconditionalList = new ArrayList<>();
+    Map<String, PathIndex.Builder> pathBuilders = new LinkedHashMap<>();
+
+    for (int c = 0; c < count; c++) {
+      Conjunction conjunction = conjunctions.get(c);
+      owners[c] = ownerList.get(c);
+      required[c] = conjunction.atoms().size();
+      residuals.add(conjunction.residual());
+      if (required[c] == 0) {
+        unconditionalList.add(c);
+      }
+      for (Atom atom : conjunction.atoms()) {
+        pathBuilders.computeIfAbsent(atom.pathKey(), key -> new PathIndex.Builder(compiler.compile(atom.path())))
+            .add(atom, c);
+      }
+    }
+
+    this.unconditional = toArray(unconditionalList);
+    this.paths = new PathIndex[pathBuilders.size()];
+    int index = 0;
+    for (PathIndex.Builder builder : pathBuilders.values()) {
+      paths[index++] = builder.build();
+    }
+  }
+
+  private static int[] toArray(List<Integer> values) {
+    if (values.isEmpty()) {
+      return NONE;
+    }
+    int[] array = new int[values.size()];
+    for (int i = 0; i < array.length; i++) {
+      array[i] = values.get(i);
+    }
+    return array;
+  }
+
+  int pathCount() {
+    return paths.length;
+  }
+
+  List<K> match(JsonElement message) {
+    Match state = new Match(required.length);
+    for (PathIndex path : paths) {
+      path.probe(message, state);
+    }
+    for (int conjunction : unconditional) {
+      state.candidates[state.candidateCount++] = conjunction;
+    }
+
+    List<K> matched = new ArrayList<>();
+    boolean[] seen = new boolean[ids.size()];
+    for (int i = 0; i < state.candidateCount; i++) {
+      int conjunction = state.candidates[i];
+      int owner = owners[conjunction];
+      if (seen[owner]) {
+        continue;
+      }
+      Predicate<JsonElement> residual = residuals.get(conjunction);
+      if (residual == null || residual.test(message)) {
+        seen[owner] = true;
+        matched.add(ids.get(owner));
+      }
+    }
+    return matched;
+  }
+
+  private final class Match implements IntConsumer {
+    private final int[] counts;
+    private final int[] candidates;
+    private int candidateCount;
+
+    private Match(int conjunctions) {
+      this.counts = new int[conjunctions];
+      this.candidates = new int[conjunctions];
+    }
+
+    @Override
+    public void accept(int conjunction) {
+      if (++counts[conjunction] == required[conjunction]) {
+        candidates[candidateCount++] = conjunction;
+      }
+    }
+  }
+
+  private static final class PathIndex {
+    private final Function<JsonElement, JsonElement> getter;
+    private final Map<Object, int[]> equal;
+    private final Map<Object, int[]> member;
+    private final Thresholds<Double> numbers;
+    private final Thresholds<String> strings;
+    private final Thresholds<Boolean> booleans;
+
+    private PathIndex(Builder builder) {
+      this.getter = builder.getter;
+      this.equal = freeze(builder.equal);
+      this.member = freeze(builder.member);
+      this.numbers = builder.numbers.build();
+      this.strings = builder.strings.build();
+      this.booleans = builder.booleans.build();
+    }
+
+    private static Map<Object, int[]> freeze(Map<Object, List<Integer>> postings) {
+      Map<Object, int[]> frozen = new HashMap<>(Math.max(4, postings.size() * 2));
+      for (Map.Entry<Object, List<Integer>> entry : postings.entrySet()) {
+        frozen.put(entry.getKey(), toArray(entry.getValue()));
+      }
+      return frozen;
+    }
+
+    private static void hitAll(int[] conjunctions, IntConsumer hit) {
+      if (conjunctions != null) {
+        for (int conjunction : conjunctions) {
+          hit.accept(conjunction);
+        }
+      }
+    }
+
+    private void probe(JsonElement message, IntConsumer hit) {
+      JsonElement value = getter.apply(message);
+      if (!equal.isEmpty()) {
+        hitAll(equal.get(Atom.equalityKey(value)), hit);
+      }
+      if (!member.isEmpty()) {
+        hitAll(member.get(Atom.membershipKey(value)), hit);
+      }
+      if (value == null || !value.isJsonPrimitive()) {
+        return;
+      }
+      JsonPrimitive primitive = value.getAsJsonPrimitive();
+      if (primitive.isNumber()) {
+        numbers.stab(primitive.getAsDouble(), hit);
+      } else if (primitive.isString()) {
+        strings.stab(primitive.getAsString(), hit);
+      } else if (primitive.isBoolean()) {
+        booleans.stab(primitive.getAsBoolean(), hit);
+      }
+    }
+
+    private static final class Builder {
+      private final Function<JsonElement, JsonElement> getter;
+      private final Map<Object, List<Integer>> equal = new HashMap<>();
+      private final Map<Object, List<Integer>> member = new HashMap<>();
+      private final Thresholds.Builder<Double> numbers = new Thresholds.Builder<>();
+      private final Thresholds.Builder<String> strings = new Thresholds.Builder<>();
+      private final Thresholds.Builder<Boolean> booleans = new Thresholds.Builder<>();
+
+      private Builder(Function<JsonElement, JsonElement> getter) {
+        this.getter = getter;
+      }
+
+      private void add(Atom atom, int conjunction) {
+        switch (atom.kind()) {
+          case EQUAL:
+            equal.computeIfAbsent(atom.key(), key -> new ArrayList<>()).add(conjunction);
+            break;
+          case IN:
+            for (Object key : atom.keys()) {
+              member.computeIfAbsent(key, ignored -> new ArrayList<>()).add(conjunction);
+            }
+            break;
+          default:
+            JsonPrimitive threshold = atom.threshold();
+            if (threshold.isNumber()) {
+              numbers.add(atom.kind(), threshold.getAsDouble(), conjunction);
+            } else if (threshold.isString()) {
+              strings.add(atom.kind(), threshold.getAsString(), conjunction);
+            } else {
+              booleans.add(atom.kind(), threshold.getAsBoolean(), conjunction);
+            }
+            break;
+        }
+      }
+
+      private PathIndex build() {
+        return new PathIndex(this);
+      }
+    }
+  }
+}
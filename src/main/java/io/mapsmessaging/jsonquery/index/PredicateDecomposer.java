@@ -0,0 +1,249 @@
+/*
+ *
+ *  Copyright [ 2020 - 2024 ] Matthew Buckton
+ *  Copyright [ 2024 - 2025 ] MapsMessaging B.V.
+ *
+ *  Licensed under the Apache License, Version 2.0 with the Commons Clause
+ *  (the "License"); you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at:
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *      https://commonsclause.com/
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.mapsmessaging.jsonquery.index;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonPrimitive;
+import io.mapsmessaging.jsonquery.JsonQueryCompiler;
+import io.mapsmessaging.jsonquery.functions.FilterFunction;
+import io.mapsmessaging.jsonquery.functions.FilterSelectorFunction;
+import io.mapsmessaging.jsonquery.functions.GetFunction;
+import io.mapsmessaging.jsonquery.functions.InFunction;
+import io.mapsmessaging.jsonquery.functions.JsonQueryFunction;
+import io.mapsmessaging.jsonquery.functions.binary.EqFunction;
+import io.mapsmessaging.jsonquery.functions.binary.GtFunction;
+import io.mapsmessaging.jsonquery.functions.binary.GteFunction;
+import io.mapsmessaging.jsonquery.functions.binary.LtFunction;
+import io.mapsmessaging.jsonquery.functions.binary.LteFunction;
+import io.mapsmessaging.jsonquery.functions.logic.AndFunction;
+import io.mapsmessaging.jsonquery.functions.logic.OrFunction;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Splits a subscription query into conjunctions of indexable atoms.
+ * <p>
+ * A {@code filter} query contributes its predicate and any other query is itself treated as
+ * the predicate, except {@code selector}, which is run against {@code [message]} and matches
+ * when the message is kept. A top level {@code or} becomes one conjunction per operand, an {@code and} becomes
+ * one conjunction whose {@code eq}, {@code in}, {@code gt}, {@code gte}, {@code lt} and
+ * {@code lte} operands comparing a {@code get} path against a constant are indexed, and whatever
+ * is left over is evaluated as a residual with the same truthiness rules as the original call.
+ */
+final class PredicateDecomposer {
+
+  private final JsonQueryCompiler compiler;
+
+  PredicateDecomposer(JsonQueryCompiler compiler) {
+    this.compiler = compiler;
+  }
+
+  private static List<JsonElement> argsOf(JsonElement expression) {
+    JsonArray array = expression.getAsJsonArray();
+    List<JsonElement> args = new ArrayList<>(array.size() - 1);
+    for (int i = 1; i < array.size(); i++) {
+      args.add(array.get(i));
+    }
+    return args;
+  }
+
+  // Mirrors FilterFunction: strings, including the empty string, keep the element
+  private static boolean isFilterTruthy(JsonElement value) {
+    if (value == null || value.isJsonNull()) {
+      return false;
+    }
+    if (value.isJsonPrimitive()) {
+      JsonPrimitive primitive = value.getAsJsonPrimitive();
+      if (primitive.isBoolean()) {
+        return primitive.getAsBoolean();
+      }
+      if (primitive.isNumber()) {
+        return primitive.getAsDouble() != 0.0d;
+      }
+    }
+    return true;
+  }
+
+  // Mirrors JsonQueryFunction.isTruthy as used by and/or: the empty string is false
+  private static boolean isLogicTruthy(JsonElement value) {
+    if (value != null && value.isJsonPrimitive() && value.getAsJsonPrimitive().isString()) {
+      return !value.getAsString().isEmpty();
+    }
+    return isFilterTruthy(value);
+  }
+
+  List<Conjunction> decompose(JsonElement query) {
+    JsonQueryFunction function = compiler.functionOf(query);
+    if (function instanceof FilterFunction && argsOf(query).size() == 1) {
+      return decomposeRoot(argsOf(query).get(0));
+    }
+    if (!(function instanceof FilterSelectorFunction)) {
+      return decomposeRoot(query);
+    }
+    Function<JsonElement, JsonElement> compiled = compiler.compile(query);
+    Predicate<JsonElement> keeps = message -> {
+      JsonArray single = new JsonArray(1);
+      single.add(message);
+      JsonElement result = compiled.apply(single);
+      return result != null && result.isJsonArray() && !result.getAsJsonArray().isEmpty();
+    };
+    return List.of(new Conjunction(List.of(), keeps));
+  }
+
+  private List<Conjunction> decomposeRoot(JsonElement predicate) {
+    if (compiler.functionOf(predicate) instanceof OrFunction) {
+      List<JsonElement> operands = argsOf(predicate);
+      if (!operands.isEmpty()) {
+        List<Conjunction> conjunctions = new ArrayList<>(operands.size());
+        for (JsonElement operand : operands) {
+          conjunctions.add(decomposeAnd(operand, true));
+        }
+        return conjunctions;
+      }
+    }
+    return List.of(decomposeAnd(predicate, false));
+  }
+
+  private Conjunction decomposeAnd(JsonElement expression, boolean logicTruthiness) {
+    boolean isAnd = compiler.functionOf(expression) instanceof AndFunction && !argsOf(expression).isEmpty();
+    List<JsonElement> operands = isAnd ? argsOf(expression) : List.of(expression);
+
+    List<Atom> atoms = new ArrayList<>();
+    List<Function<JsonElement, JsonElement>> residuals = new ArrayList<>();
+    for (JsonElement operand : operands) {
+      Atom atom = toAtom(operand);
+      if (atom != null) {
+        atoms.add(atom);
+      } else {
+        residuals.add(compiler.compile(operand));
+      }
+    }
+    if (residuals.isEmpty()) {
+      return new Conjunction(List.copyOf(atoms), null);
+    }
+
+    // Operands of and/or use the logic truthiness, a bare root predicate the filter truthiness
+    boolean logic = isAnd || logicTruthiness;
+    List<Function<JsonElement, JsonElement>> parts = List.copyOf(residuals);
+    Predicate<JsonElement> residual = message -> {
+      for (Function<JsonElement, JsonElement> part : parts) {
+        JsonElement value = part.apply(message);
+        if (logic ? !isLogicTruthy(value) : !isFilterTruthy(value)) {
+          return false;
+        }
+      }
+      return true;
+    };
+    return new Conjunction(List.copyOf(atoms), residual);
+  }
+
+  private Atom toAtom(JsonElement expression) {
+    JsonQueryFunction function = compiler.functionOf(expression);
+    Atom.Kind kind = kindOf(function);
+    if (kind == null) {
+      return null;
+    }
+    List<JsonElement> args = argsOf(expression);
+    if (args.size() != 2) {
+      return null;
+    }
+
+    JsonElement path = args.get(0);
+    JsonElement operand = args.get(1);
+    if (!isPath(path) && kind != Atom.Kind.IN && isPath(operand)) {
+      path = args.get(1);
+      operand = args.get(0);
+      kind = kind.flip();
+    }
+    if (!isPath(path) || !compiler.isConstant(operand)) {
+      return null;
+    }
+
+    JsonElement constant;
+    try {
+      constant = compiler.compile(operand).apply(JsonNull.INSTANCE);
+    } catch (RuntimeException e) {
+      return null;
+    }
+    String pathKey = path.toString();
+
+    if (kind == Atom.Kind.IN) {
+      return membership(pathKey, path, constant);
+    }
+    if (constant == null || constant.isJsonNull()) {
+      // Every comparison against null is true exactly when the path is null too
+      return new Atom(pathKey, path, Atom.Kind.EQUAL, Atom.NULL_KEY, null, null);
+    }
+    if (!constant.isJsonPrimitive()) {
+      return null;
+    }
+    if (kind == Atom.Kind.EQUAL) {
+      return new Atom(pathKey, path, kind, Atom.equalityKey(constant), null, null);
+    }
+    return new Atom(pathKey, path, kind, null, null, constant.getAsJsonPrimitive());
+  }
+
+  private Atom membership(String pathKey, JsonElement path, JsonElement constant) {
+    if (constant == null || !constant.isJsonArray()) {
+      return null;
+    }
+    Set<Object> keys = new HashSet<>();
+    for (JsonElement element : constant.getAsJsonArray()) {
+      if (element != null && !element.isJsonNull() && !element.isJsonPrimitive()) {
+        return null;
+      }
+      keys.add(Atom.membershipKey(element));
+    }
+    return new Atom(pathKey, path, Atom.Kind.IN, null, Set.copyOf(keys), null);
+  }
+
+  private boolean isPath(JsonElement expression) {
+    return compiler.functionOf(expression) instanceof GetFunction;
+  }
+
+  private static Atom.Kind kindOf(JsonQueryFunction function) {
+    if (function instanceof EqFunction) {
+      return Atom.Kind.EQUAL;
+    }
+    if (function instanceof InFunction) {
+      return Atom.Kind.IN;
+    }
+    if (function instanceof GtFunction) {
+      return Atom.Kind.GREATER;
+    }
+    if (function instanceof GteFunction) {
+      return Atom.Kind.GREATER_OR_EQUAL;
+    }
+    if (function instanceof LtFunction) {
+      return Atom.Kind.LESS;
+    }
+    if (function instanceof LteFunction) {
+      return Atom.Kind.LESS_OR_EQUAL;
+    }
+    return null;
+  }
+}
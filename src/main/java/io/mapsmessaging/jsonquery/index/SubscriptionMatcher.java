@@ -0,0 +1,126 @@
+/*
+ *
+ *  Copyright [ 2020 - 2024 ] Matthew Buckton
+ *  Copyright [ 2024 - 2025 ] MapsMessaging B.V.
+ *
+ *  Licensed under the Apache License, Version 2.0 with the Commons Clause
+ *  (the "License"); you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at:
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *      https://commonsclause.com/
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.mapsmessaging.jsonquery.index;
+
+import com.google.gson.JsonElement;
+import io.mapsmessaging.jsonquery.JsonQueryCompiler;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Matches one message against many subscription queries at once.
+ * <p>
+ * Each subscription is a filter query, e.g. {@code ["filter", ["and", ["eq", ["get","state"],
+ * "Alaska"], ["gt", ["get","age"], 21]]]}, a {@code selector} query, or a bare predicate (treated
+ * as {@code ["filter", predicate]}). A message matches a subscription when running the query
+ * over {@code [message]} would keep the message.
+ * <p>
+ * Comparisons of {@code get} paths against constants are shared between subscriptions in per-path
+ * hash and threshold indexes, so each referenced path is read once per message no matter how many
+ * subscriptions use it; everything else is evaluated per candidate subscription only.
+ * <p>
+ * Subscriptions may be added and removed at any time. The index is rebuilt lazily on the next
+ * {@link #match} after a change, and matching itself is lock free and safe for concurrent use.
+ */
+public final class SubscriptionMatcher<K> {
+
+  private final JsonQueryCompiler compiler;
+  private final PredicateDecomposer decomposer;
+  private final Map<K, List<Conjunction>> subscriptions = new LinkedHashMap<>();
+  private volatile MatcherIndex<K> index;
+
+  public SubscriptionMatcher(JsonQueryCompiler compiler) {
+    if (compiler == null) {
+      throw new IllegalArgumentException("compiler cannot be null");
+    }
+    this.compiler = compiler;
+    this.decomposer = new PredicateDecomposer(compiler);
+  }
+
+  public static <K> SubscriptionMatcher<K> createDefault() {
+    return new SubscriptionMatcher<>(JsonQueryCompiler.createDefault());
+  }
+
+  /**
+   * Adds a subscription, replacing any existing one with the same id.
+   *
+   * @throws IllegalArgumentException if the query does not compile
+   */
+  public void add(K id, JsonElement query) {
+    if (id == null) {
+      throw new IllegalArgumentException("id cannot be null");
+    }
+    if (query == null || query.isJsonNull()) {
+      throw new IllegalArgumentException("query cannot be null");
+    }
+    // Surface compile errors for the whole query, not only for the parts that end up residual
+    compiler.compile(query);
+    List<Conjunction> conjunctions = decomposer.decompose(query);
+    synchronized (subscriptions) {
+      subscriptions.put(id, conjunctions);
+      index = null;
+    }
+  }
+
+  public boolean remove(K id) {
+    synchronized (subscriptions) {
+      if (subscriptions.remove(id) == null) {
+        return false;
+      }
+      index = null;
+      return true;
+    }
+  }
+
+  public int size() {
+    synchronized (subscriptions) {
+      return subscriptions.size();
+    }
+  }
+
+  /**
+   * Returns the number of distinct {@code get} paths evaluated per message.
+   */
+  public int getIndexedPathCount() {
+    return current().pathCount();
+  }
+
+  /**
+   * Returns the ids of all subscriptions matching the message, each at most once.
+   */
+  public List<K> match(JsonElement message) {
+    return current().match(message);
+  }
+
+  private MatcherIndex<K> current() {
+    MatcherIndex<K> snapshot = index;
+    if (snapshot != null) {
+      return snapshot;
+    }
+    synchronized (subscriptions) {
+      if (index == null) {
+        index = new MatcherIndex<>(compiler, subscriptions);
+      }
+      return index;
+    }
+  }
+}
@@ -0,0 +1,156 @@
+/*
+ *
+ *  Copyright [ 2020 - 2024 ] Matthew Buckton
+ *  Copyright [ 2024 - 2025 ] MapsMessaging B.V.
+ *
+ *  Licensed under the Apache License, Version 2.0 with the Commons Clause
+ *  (the "License"); you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at:
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *      https://commonsclause.com/
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.mapsmessaging.jsonquery.index;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+/**
+ * Range atoms on one path and one value type. Thresholds for each comparison are kept sorted, so
+ * the atoms satisfied by a value are always a prefix or suffix found with one binary search.
+ */
+final class Thresholds<T extends Comparable<? super T>> {
+
+  private final Bound<T> greater;
+  private final Bound<T> greaterOrEqual;
+  private final Bound<T> less;
+  private final Bound<T> lessOrEqual;
+
+  private Thresholds(Builder<T> builder) {
+    this.greater = Bound.of(builder.greater);
+    this.greaterOrEqual = Bound.of(builder.greaterOrEqual);
+    this.less = Bound.of(builder.less);
+    this.lessOrEqual = Bound.of(builder.lessOrEqual);
+  }
+
+  void stab(T value, IntConsumer hit) {
+    // value > c  <=>  c < value
+    greater.prefix(greater.lowerBound(value), hit);
+    // value >= c  <=>  c <= value
+    greaterOrEqual.prefix(greaterOrEqual.upperBound(value), hit);
+    // value < c  <=>  c > value
+    less.suffix(less.upperBound(value), hit);
+    // value <= c  <=>  c >= value
+    lessOrEqual.suffix(lessOrEqual.lowerBound(value), hit);
+  }
+
+  static final class Builder<T extends Comparable<? super T>> {
+    private final List<Entry<T>> greater = new ArrayList<>();
+    private final List<Entry<T>> greaterOrEqual = new ArrayList<>();
+    private final List<Entry<T>> less = new ArrayList<>();
+    private final List<Entry<T>> lessOrEqual = new ArrayList<>();
+
+    void add(Atom.Kind kind, T threshold, int conjunction) {
+      Entry<T> entry = new Entry<>(threshold, conjunction);
+      switch (kind) {
+        case GREATER:
+          greater.add(entry);
+          break;
+        case GREATER_OR_EQUAL:
+          greaterOrEqual.add(entry);
+          break;
+        case LESS:
+          less.add(entry);
+          break;
+        case LESS_OR_EQUAL:
+          lessOrEqual.add(entry);
+          break;
+        default:
+          throw new IllegalArgumentException("Not a range atom: " + kind);
+      }
+    }
+
+    Thresholds<T> build() {
+      return new Thresholds<>(this);
+    }
+  }
+
+  private record Entry<T>(T threshold, int conjunction) {
+  }
+
+  private static final class Bound<T extends Comparable<? super T>> {
+    private final Object[] thresholds;
+    private final int[] conjunctions;
+
+    private Bound(Object[] thresholds, int[] conjunctions) {
+      this.thresholds = thresholds;
+      this.conjunctions = conjunctions;
+    }
+
+    private static <T extends Comparable<? super T>> Bound<T> of(List<Entry<T>> entries) {
+      entries.sort((left, right) -> left.threshold().compareTo(right.threshold()));
+      Object[] thresholds = new Object[entries.size()];
+      int[] conjunctions = new int[entries.size()];
+      for (int i = 0; i < thresholds.length; i++) {
+        thresholds[i] = entries.get(i).threshold();
+        conjunctions[i] = entries.get(i).conjunction();
+      }
+      return new Bound<>(thresholds, conjunctions);
+    }
+
+    // First index whose threshold is >= value
+    private int lowerBound(T value) {
+      int low = 0;
+      int high = thresholds.length;
+      while (low < high) {
+        int mid = (low + high) >>> 1;
+        if (threshold(mid).compareTo(value) < 0) {
+          low = mid + 1;
+        } else {
+          high = mid;
+        }
+      }
+      return low;
+    }
+
+    // First index whose threshold is > value
+    private int upperBound(T value) {
+      int low = 0;
+      int high = thresholds.length;
+      while (low < high) {
+        int mid = (low + high) >>> 1;
+        if (threshold(mid).compareTo(value) <= 0) {
+          low = mid + 1;
+        } else {
+          high = mid;
+        }
+      }
+      return low;
+    }
+
+    @SuppressWarnings("unchecked")
+    private T threshold(int index) {
+      return (T) thresholds[index];
+    }
+
+    private void prefix(int end, IntConsumer hit) {
+      for (int i = 0; i < end; i++) {
+        hit.accept(conjunctions[i]);
+      }
+    }
+
+    private void suffix(int start, IntConsumer hit) {
+      for (int i = start; i < conjunctions.length; i++) {
+        hit.accept(conjunctions[i]);
+      }
+    }
+  }
+}
@@ -0,0 +1,229 @@
+/*
+ *
+ *  Copyright [ 2020 - 2024 ] Matthew Buckton
+ *  Copyright [ 2024 - 2025 ] MapsMessaging B.V.
+ *
+ *  Licensed under the Apache License, Version 2.0 with the Commons Clause
+ *  (the "License"); you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at:
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *      https://commonsclause.com/
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.mapsmessaging.jsonquery.jfr;
+
+import com.google.gson.JsonElement;
+import io.mapsmessaging.jsonquery.functions.NumericExpression;
+import io.mapsmessaging.jsonquery.functions.PredicateExpression;
+
+import java.util.function.Function;
+
+/**
+ * Emits the JDK Flight Recorder events of this package. On a runtime without the {@code jdk.jfr}
+ * module every method simply runs the wrapped work, and the event classes are never loaded.
+ * <p>
+ * Parse and compile events are always emitted; execution is only traced for queries compiled with
+ * {@link io.mapsmessaging.jsonquery.CompilerOptions#withFlightRecorderEvents(boolean)}. Of those,
+ * {@link ExecuteEvent} is disabled by default and has to be enabled in the recording settings, while
+ * {@link SlowQueryEvent} records every execution above its threshold (100 ms unless configured).
+ * Query texts longer than {@value #MAX_QUERY_LENGTH} characters are truncated; the hash always
+ * covers the full text.
+ */
+public final class QueryEvents {
+
+  public static final int MAX_QUERY_LENGTH = 4096;
+
+  private static final boolean AVAILABLE = isFlightRecorderPresent();
+
+  private QueryEvents() {
+  }
+
+  private static boolean isFlightRecorderPresent() {
+    try {
+      Class.forName("jdk.jfr.Event", false, QueryEvents.class.getClassLoader());
+      return true;
+    } catch (ClassNotFoundException | LinkageError e) {
+      return false;
+    }
+  }
+
+  public static boolean isAvailable() {
+    return AVAILABLE;
+  }
+
+  public static JsonElement parse(String text, Function<String, JsonElement> parser) {
+    if (!AVAILABLE) {
+      return parser.apply(text);
+    }
+    ParseEvent event = new ParseEvent();
+    event.begin();
+    RuntimeException error = null;
+    try {
+      return parser.apply(text);
+    } catch (RuntimeException e) {
+      error = e;
+      throw e;
+    } finally {
+      event.end();
+      if (event.shouldCommit()) {
+        String queryText = text == null ? "" : text;
+        event.query = truncate(queryText);
+        event.queryHash = queryText.hashCode();
+        event.textLength = queryText.length();
+        event.error = errorName(error);
+        event.commit();
+      }
+    }
+  }
+
+  public static Function<JsonElement, JsonElement> compile(JsonElement query,
+                                                           Function<JsonElement, Function<JsonElement, JsonElement>> compiler) {
+    if (!AVAILABLE) {
+      return compiler.apply(query);
+    }
+    CompileEvent event = new CompileEvent();
+    event.begin();
+    RuntimeException error = null;
+    try {
+      return compiler.apply(query);
+    } catch (RuntimeException e) {
+      error = e;
+      throw e;
+    } finally {
+      event.end();
+      if (event.shouldCommit()) {
+        String queryText = String.valueOf(query);
+        event.query = truncate(queryText);
+        event.queryHash = queryText.hashCode();
+        event.error = errorName(error);
+        event.commit();
+      }
+    }
+  }
+
+  /**
+   * Wraps a compiled query so that each execution can emit an {@link ExecuteEvent} and a
+   * {@link SlowQueryEvent}. Predicate and numeric queries keep their specialised interface.
+   */
+  public static Function<JsonElement, JsonElement> trace(JsonElement query, Function<JsonElement, JsonElement> compiled) {
+    if (!AVAILABLE) {
+      return compiled;
+    }
+    Trace trace = new Trace(query);
+    if (compiled instanceof PredicateExpression predicate) {
+      return (PredicateExpression) data -> {
+        ExecuteEvent execute = new ExecuteEvent();
+        SlowQueryEvent slow = new SlowQueryEvent();
+        execute.begin();
+        slow.begin();
+        RuntimeException error = null;
+        try {
+          return predicate.test(data);
+        } catch (RuntimeException e) {
+          error = e;
+          throw e;
+        } finally {
+          trace.finish(execute, slow, data, error == null ? 1 : 0, error);
+        }
+      };
+    }
+    if (compiled instanceof NumericExpression numeric) {
+      return (NumericExpression) data -> {
+        ExecuteEvent execute = new ExecuteEvent();
+        SlowQueryEvent slow = new SlowQueryEvent();
+        execute.begin();
+        slow.begin();
+        RuntimeException error = null;
+        try {
+          return numeric.applyAsDouble(data);
+        } catch (RuntimeException e) {
+          error = e;
+          throw e;
+        } finally {
+          trace.finish(execute, slow, data, error == null ? 1 : 0, error);
+        }
+      };
+    }
+    return data -> {
+      ExecuteEvent execute = new ExecuteEvent();
+      SlowQueryEvent slow = new SlowQueryEvent();
+      execute.begin();
+      slow.begin();
+      JsonElement result = null;
+      RuntimeException error = null;
+      try {
+        result = compiled.apply(data);
+        return result;
+      } catch (RuntimeException e) {
+        error = e;
+        throw e;
+      } finally {
+        trace.finish(execute, slow, data, sizeOf(result), error);
+      }
+    };
+  }
+
+  private static int sizeOf(JsonElement element) {
+    if (element == null || element.isJsonNull()) {
+      return 0;
+    }
+    return element.isJsonArray() ? element.getAsJsonArray().size() : 1;
+  }
+
+  private static String truncate(String text) {
+    return text.length() <= MAX_QUERY_LENGTH ? text : text.substring(0, MAX_QUERY_LENGTH);
+  }
+
+  private static String errorName(RuntimeException error) {
+    return error == null ? null : error.getClass().getName();
+  }
+
+  private static final class Trace {
+
+    private final JsonElement query;
+    // Rendered on the first committed event; racing threads produce the same text
+    private String text;
+
+    private Trace(JsonElement query) {
+      this.query = query;
+    }
+
+    private String text() {
+      String rendered = text;
+      if (rendered == null) {
+        rendered = String.valueOf(query);
+        text = rendered;
+      }
+      return rendered;
+    }
+
+    private void finish(ExecuteEvent execute, SlowQueryEvent slow, JsonElement data, int resultSize,
+                        RuntimeException error) {
+      execute.end();
+      slow.end();
+      if (execute.shouldCommit()) {
+        execute.queryHash = text().hashCode();
+        execute.inputElements = sizeOf(data);
+        execute.resultElements = resultSize;
+        execute.error = errorName(error);
+        execute.commit();
+      }
+      if (slow.shouldCommit()) {
+        String queryText = text();
+        slow.query = truncate(queryText);
+        slow.queryHash = queryText.hashCode();
+        slow.inputElements = sizeOf(data);
+        slow.resultElements = resultSize;
+        slow.error = errorName(error);
+        slow.commit();
+      }
+    }
+  }
+}
@@ -0,0 +1,52 @@
+/*
+ *
+ *  Copyright [ 2020 - 2024 ] Matthew Buckton
+ *  Copyright [ 2024 - 2025 ] MapsMessaging B.V.
+ *
+ *  Licensed under the Apache License, Version 2.0 with the Commons Clause
+ *  (the "License"); you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at:
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *      https://commonsclause.com/
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.mapsmessaging.jsonquery.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+@Name("io.mapsmessaging.jsonquery.SlowQuery")
+@Label("Slow JSON Query")
+@Category({"MAPS Messaging", "JSON Query"})
+@Description("Execution of a compiled query that took longer than the threshold")
+@Threshold("100 ms")
+public final class SlowQueryEvent extends Event {
+
+  @Label("Query")
+  String query;
+
+  @Label("Query Hash")
+  @Description("Hash of the full query text, the same on every event for a query")
+  int queryHash;
+
+  @Label("Input Elements")
+  int inputElements;
+
+  @Label("Result Elements")
+  int resultElements;
+
+  @Label("Error")
+  @Description("Exception class when the call failed")
+  String error;
+}
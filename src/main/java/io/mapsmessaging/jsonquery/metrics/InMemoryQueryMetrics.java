@@ -0,0 +1,79 @@
+/*
+ *
+ *  Copyright [ 2020 - 2024 ] Matthew Buckton
+ *  Copyright [ 2024 - 2025 ] MapsMessaging B.V.
+ *
+ *  Licensed under the Apache License, Version 2.0 with the Commons Clause
+ *  (the "License"); you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at:
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *      https://commonsclause.com/
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.mapsmessaging.jsonquery.metrics;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * {@link QueryMetrics} that keeps {@link QueryStatistics} per query id in memory, for callers that
+ * poll the figures themselves (a JMX bean, a status endpoint) instead of using a metrics library.
+ * Statistics stay until {@link #remove(String)} is called, e.g. when a subscription closes.
+ */
+public final class InMemoryQueryMetrics implements QueryMetrics {
+
+  private final ConcurrentMap<String, QueryStatistics> statistics = new ConcurrentHashMap<>();
+
+  private QueryStatistics of(String queryId) {
+    QueryStatistics existing = statistics.get(queryId);
+    return existing != null ? existing : statistics.computeIfAbsent(queryId, id -> new QueryStatistics());
+  }
+
+  @Override
+  public void compiled(String queryId, long nanos) {
+    of(queryId).compiled(nanos);
+  }
+
+  @Override
+  public void executed(String queryId, long nanos, int inputSize, int resultSize) {
+    of(queryId).executed(nanos, inputSize, resultSize);
+  }
+
+  @Override
+  public void failed(String queryId, long nanos, RuntimeException error) {
+    of(queryId).failed(nanos, error);
+  }
+
+  @Override
+  public void cacheHit(String queryId) {
+    of(queryId).cacheHit();
+  }
+
+  @Override
+  public void cacheMiss(String queryId) {
+    of(queryId).cacheMiss();
+  }
+
+  /**
+   * Returns the statistics recorded for the query id, or null when nothing was recorded.
+   */
+  public QueryStatistics get(String queryId) {
+    return statistics.get(queryId);
+  }
+
+  public Set<String> getQueryIds() {
+    return Set.copyOf(statistics.keySet());
+  }
+
+  public QueryStatistics remove(String queryId) {
+    return statistics.remove(queryId);
+  }
+}
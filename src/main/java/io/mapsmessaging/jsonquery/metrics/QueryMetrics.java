@@ -0,0 +1,50 @@
+/*
+ *
+ *  Copyright [ 2020 - 2024 ] Matthew Buckton
+ *  Copyright [ 2024 - 2025 ] MapsMessaging B.V.
+ *
+ *  Licensed under the Apache License, Version 2.0 with the Commons Clause
+ *  (the "License"); you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at:
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *      https://commonsclause.com/
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.mapsmessaging.jsonquery.metrics;
+
+/**
+ * Receives measurements of queries compiled with a query id, for example to feed a Micrometer
+ * registry or the built-in {@link InMemoryQueryMetrics}. Install an implementation with
+ * {@link io.mapsmessaging.jsonquery.CompilerOptions#withMetrics(QueryMetrics)}; every method has a
+ * no-op default, so implementations only override what they record.
+ * <p>
+ * Methods are called on the thread running the query and must be thread safe and cheap. Sizes count
+ * the elements of an array, 1 for any other value and 0 for null.
+ */
+public interface QueryMetrics {
+
+  QueryMetrics NONE = new QueryMetrics() {
+  };
+
+  default void compiled(String queryId, long nanos) {
+  }
+
+  default void executed(String queryId, long nanos, int inputSize, int resultSize) {
+  }
+
+  default void failed(String queryId, long nanos, RuntimeException error) {
+  }
+
+  default void cacheHit(String queryId) {
+  }
+
+  default void cacheMiss(String queryId) {
+  }
+}
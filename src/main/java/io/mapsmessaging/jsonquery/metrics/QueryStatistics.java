@@ -0,0 +1,115 @@
+/*
+ *
+ *  Copyright [ 2020 - 2024 ] Matthew Buckton
+ *  Copyright [ 2024 - 2025 ] MapsMessaging B.V.
+ *
+ *  Licensed under the Apache License, Version 2.0 with the Commons Clause
+ *  (the "License"); you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at:
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *      https://commonsclause.com/
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.mapsmessaging.jsonquery.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Everything {@link InMemoryQueryMetrics} recorded for one query id.
+ */
+public final class QueryStatistics {
+
+  private final LatencyHistogram latency = new LatencyHistogram();
+  private final LatencyHistogram compileTime = new LatencyHistogram();
+  private final Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+  private final LongAdder inputElements = new LongAdder();
+  private final LongAdder resultElements = new LongAdder();
+  private final LongAdder cacheHits = new LongAdder();
+  private final LongAdder cacheMisses = new LongAdder();
+
+  QueryStatistics() {
+  }
+
+  void executed(long nanos, int inputSize, int resultSize) {
+    latency.record(nanos);
+    inputElements.add(inputSize);
+    resultElements.add(resultSize);
+  }
+
+  void failed(long nanos, RuntimeException error) {
+    latency.record(nanos);
+    errors.computeIfAbsent(error.getClass().getName(), type -> new LongAdder()).increment();
+  }
+
+  void compiled(long nanos) {
+    compileTime.record(nanos);
+  }
+
+  void cacheHit() {
+    cacheHits.increment();
+  }
+
+  void cacheMiss() {
+    cacheMisses.increment();
+  }
+
+  /**
+   * Execution latency in nanoseconds, of successful and failed runs alike.
+   */
+  public LatencyHistogram getLatency() {
+    return latency;
+  }
+
+  public LatencyHistogram getCompileTime() {
+    return compileTime;
+  }
+
+  /**
+   * Failed executions keyed by exception class name.
+   */
+  public Map<String, Long> getErrorCounts() {
+    Map<String, Long> counts = new TreeMap<>();
+    errors.forEach((type, count) -> counts.put(type, count.sum()));
+    return counts;
+  }
+
+  public long getErrorCount() {
+    long total = 0;
+    for (LongAdder count : errors.values()) {
+      total += count.sum();
+    }
+    return total;
+  }
+
+  public long getInputElements() {
+    return inputElements.sum();
+  }
+
+  public long getResultElements() {
+    return resultElements.sum();
+  }
+
+  public long getCacheHitCount() {
+    return cacheHits.sum();
+  }
+
+  public long getCacheMissCount() {
+    return cacheMisses.sum();
+  }
+
+  public double getCacheHitRatio() {
+    long hits = cacheHits.sum();
+    long lookups = hits + cacheMisses.sum();
+    return lookups == 0 ? 0.0 : (double) hits / lookups;
+  }
+}
@@ -0,0 +1,144 @@
+/*
+ *
+ *  Copyright [ 2020 - 2024 ] Matthew Buckton
+ *  Copyright [ 2024 - 2025 ] MapsMessaging B.V.
+ *
+ *  Licensed under the Apache License, Version 2.0 with the Commons Clause
+ *  (the "License"); you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at:
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *      https://commonsclause.com/
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.mapsmessaging.jsonquery.projection;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.Strictness;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import io.mapsmessaging.jsonquery.JsonQueryCompiler;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Function;
+
+/**
+ * A compiled query that also accepts UTF-8 payloads straight from a message.
+ * <p>
+ * The bytes are decoded as they are parsed, without first copying them into a String, and the
+ * tree is built only for the parts of the document the query can observe: members it never
+ * reaches are skipped by the reader. Results are the same as parsing the payload with
+ * {@link com.google.gson.JsonParser#parseString(String)} and applying the query to the full tree.
+ * Values the query returns as they are (for example the elements kept by a bare {@code filter})
+ * are still read in full.
+ */
+public final class CompiledQuery implements Function<JsonElement, JsonElement> {
+
+  private final Function<JsonElement, JsonElement> function;
+  private final PathTrie paths;
+
+  private CompiledQuery(Function<JsonElement, JsonElement> function, PathTrie paths) {
+    this.function = function;
+    this.paths = paths;
+  }
+
+  public static CompiledQuery compile(JsonQueryCompiler compiler, JsonElement query) {
+    if (compiler == null) {
+      throw new IllegalArgumentException("compiler cannot be null");
+    }
+    return new CompiledQuery(compiler.compile(query), PathAnalyzer.analyse(compiler, query));
+  }
+
+  /**
+   * Returns the parts of the input the query can observe.
+   */
+  public PathTrie getPaths() {
+    return paths;
+  }
+
+  @Override
+  public JsonElement apply(JsonElement input) {
+    return function.apply(input);
+  }
+
+  public JsonElement apply(byte[] payload) {
+    return apply(payload, 0, payload.length);
+  }
+
+  public JsonElement apply(byte[] payload, int offset, int length) {
+    return function.apply(parse(new ByteArrayInputStream(payload, offset, length)));
+  }
+
+  /**
+   * Reads the remaining bytes of the buffer; its position is left unchanged.
+   */
+  public JsonElement apply(ByteBuffer payload) {
+    if (payload.hasArray()) {
+      return apply(payload.array(), payload.arrayOffset() + payload.position(), payload.remaining());
+    }
+    return function.apply(parse(new ByteBufferInputStream(payload.duplicate())));
+  }
+
+  private JsonElement parse(InputStream in) {
+    JsonReader reader = new JsonReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+    reader.setStrictness(Strictness.LENIENT);
+    try {
+      try {
+        if (reader.peek() == JsonToken.END_DOCUMENT) {
+          return JsonNull.INSTANCE;
+        }
+      } catch (EOFException e) {
+        // An empty payload, as JsonParser treats it
+        return JsonNull.INSTANCE;
+      }
+      JsonElement element = PrunedReader.read(reader, paths);
+      if (!element.isJsonNull() && reader.peek() != JsonToken.END_DOCUMENT) {
+        throw new JsonSyntaxException("Did not consume the entire document.");
+      }
+      return element;
+    } catch (IOException e) {
+      throw new JsonSyntaxException(e);
+    }
+  }
+
+  private static final class ByteBufferInputStream extends InputStream {
+
+    private final ByteBuffer buffer;
+
+    private ByteBufferInputStream(ByteBuffer buffer) {
+      this.buffer = buffer;
+    }
+
+    @Override
+    public int read() {
+      return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) {
+      if (length == 0) {
+        return 0;
+      }
+      if (!buffer.hasRemaining()) {
+        return -1;
+      }
+      int count = Math.min(length, buffer.remaining());
+      buffer.get(bytes, offset, count);
+      return count;
+    }
+  }
+}
@@ -0,0 +1,313 @@
+/*
+ *
+ *  Copyright [ 2020 - 2024 ] Matthew Buckton
+ *  Copyright [ 2024 - 2025 ] MapsMessaging B.V.
+ *
+ *  Licensed under the Apache License, Version 2.0 with the Commons Clause
+ *  (the "License"); you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at:
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *      https://commonsclause.com/
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.mapsmessaging.jsonquery.projection;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import io.mapsmessaging.jsonquery.JsonQueryCompiler;
+import io.mapsmessaging.jsonquery.functions.ArrayFunction;
+import io.mapsmessaging.jsonquery.functions.ExistsFunction;
+import io.mapsmessaging.jsonquery.functions.FilterFunction;
+import io.mapsmessaging.jsonquery.functions.GetFunction;
+import io.mapsmessaging.jsonquery.functions.GroupByFunction;
+import io.mapsmessaging.jsonquery.functions.IfFunction;
+import io.mapsmessaging.jsonquery.functions.InFunction;
+import io.mapsmessaging.jsonquery.functions.JsonQueryFunction;
+import io.mapsmessaging.jsonquery.functions.KeyByFunction;
+import io.mapsmessaging.jsonquery.functions.LimitFunction;
+import io.mapsmessaging.jsonquery.functions.MapFunction;
+import io.mapsmessaging.jsonquery.functions.MapValuesFunction;
+import io.mapsmessaging.jsonquery.functions.NotFunction;
+import io.mapsmessaging.jsonquery.functions.NotInFunction;
+import io.mapsmessaging.jsonquery.functions.NumberFunction;
+import io.mapsmessaging.jsonquery.functions.ObjectFunction;
+import io.mapsmessaging.jsonquery.functions.PickFunction;
+import io.mapsmessaging.jsonquery.functions.PipeFunction;
+import io.mapsmessaging.jsonquery.functions.RegexFunction;
+import io.mapsmessaging.jsonquery.functions.ReverseFunction;
+import io.mapsmessaging.jsonquery.functions.RoundFunction;
+import io.mapsmessaging.jsonquery.functions.SizeFunction;
+import io.mapsmessaging.jsonquery.functions.SortFunction;
+import io.mapsmessaging.jsonquery.functions.SplitFunction;
+import io.mapsmessaging.jsonquery.functions.StringFunction;
+import io.mapsmessaging.jsonquery.functions.SubstringFunction;
+import io.mapsmessaging.jsonquery.functions.SumFunction;
+import io.mapsmessaging.jsonquery.functions.UniqByFunction;
+import io.mapsmessaging.jsonquery.functions.binary.AbstractBinaryPredicateFunction;
+import io.mapsmessaging.jsonquery.functions.binary.NeFunction;
+import io.mapsmessaging.jsonquery.functions.logic.AndFunction;
+import io.mapsmessaging.jsonquery.functions.logic.OrFunction;
+import io.mapsmessaging.jsonquery.functions.matcher.MatchAllFunction;
+import io.mapsmessaging.jsonquery.functions.matcher.MatchFunction;
+import io.mapsmessaging.jsonquery.functions.numeric.AbsFunction;
+import io.mapsmessaging.jsonquery.functions.numeric.AbstractNumericBinaryFunction;
+import io.mapsmessaging.jsonquery.functions.numeric.AddFunction;
+import io.mapsmessaging.jsonquery.functions.numeric.AverageFunction;
+import io.mapsmessaging.jsonquery.functions.numeric.MaxFunction;
+import io.mapsmessaging.jsonquery.functions.numeric.MinFunction;
+import io.mapsmessaging.jsonquery.functions.numeric.ProdFunction;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Works out from a query AST which parts of the input it can observe.
+ * <p>
+ * Each expression is analysed against the node of the value it runs on and reports the node its
+ * result aliases, or null when it builds a new value. Whatever a result is handed to as a whole
+ * (a comparison operand, a {@code map} output, the final result) is marked whole. Functions the
+ * analysis does not know about, including custom ones, mark their entire input as needed.
+ */
+final class PathAnalyzer {
+
+  private final JsonQueryCompiler compiler;
+
+  private PathAnalyzer(JsonQueryCompiler compiler) {
+    this.compiler = compiler;
+  }
+
+  static PathTrie analyse(JsonQueryCompiler compiler, JsonElement query) {
+    PathTrie root = new PathTrie();
+    markWhole(new PathAnalyzer(compiler).expression(query, root));
+    return root;
+  }
+
+  private static void markWhole(PathTrie result) {
+    if (result != null) {
+      result.markWhole();
+    }
+  }
+
+  private static List<JsonElement> argsOf(JsonArray call) {
+    List<JsonElement> args = new ArrayList<>(call.size() - 1);
+    for (int i = 1; i < call.size(); i++) {
+      args.add(call.get(i));
+    }
+    return args;
+  }
+
+  private PathTrie expression(JsonElement expression, PathTrie input) {
+    if (expression == null || expression.isJsonNull() || expression.isJsonPrimitive()) {
+      return null;
+    }
+    if (expression.isJsonObject()) {
+      // object templates hold an expression per field
+      for (Map.Entry<String, JsonElement> entry : expression.getAsJsonObject().entrySet()) {
+        markWhole(expression(entry.getValue(), input));
+      }
+      return null;
+    }
+    JsonQueryFunction function = compiler.functionOf(expression);
+    if (function == null) {
+      input.markWhole();
+      return null;
+    }
+    if (compiler.isConstant(expression)) {
+      return null;
+    }
+    return call(function, argsOf(expression.getAsJsonArray()), input);
+  }
+
+  private PathTrie call(JsonQueryFunction function, List<JsonElement> args, PathTrie input) {
+    if (function instanceof GetFunction) {
+      return get(args, input);
+    }
+    if (function instanceof PipeFunction) {
+      PathTrie current = input;
+      for (int i = 0; i < args.size(); i++) {
+        PathTrie stageInput = current == null ? new PathTrie() : current;
+        if (i + 1 < args.size() && groupAggregate(args.get(i), args.get(i + 1), stageInput)) {
+          current = null;
+          i++;
+        } else {
+          current = expression(args.get(i), stageInput);
+        }
+      }
+      return current;
+    }
+    if (function instanceof LimitFunction || function instanceof ReverseFunction) {
+      return input;
+    }
+    if (function instanceof FilterFunction && args.size() == 1 && args.get(0).isJsonArray()) {
+      markWhole(expression(args.get(0), input.addElements()));
+      return input;
+    }
+    if (function instanceof SortFunction) {
+      JsonElement key = args.isEmpty() || args.get(0).isJsonPrimitive() ? null : args.get(0);
+      if (key == null) {
+        input.addElements().markWhole();
+      } else {
+        markWhole(expression(key, input.addElements()));
+      }
+      return input;
+    }
+    if (function instanceof MapFunction && args.size() == 1) {
+      input.markWholeUnlessArray();
+      markWhole(expression(args.get(0), input.addElements()));
+      return null;
+    }
+    if (function instanceof PickFunction) {
+      pick(args, input);
+      pick(args, input.addElements());
+      return null;
+    }
+    if ((function instanceof GroupByFunction || function instanceof KeyByFunction
+        || function instanceof UniqByFunction) && args.size() == 1) {
+      // the groups hold the elements themselves
+      markWhole(expression(args.get(0), input.addElements()));
+      input.addElements().markWhole();
+      return null;
+    }
+    if (function instanceof ExistsFunction && args.size() == 1 && isLiteralObjectPath(args.get(0))) {
+      get(argsOf(args.get(0).getAsJsonArray()), input).markPresence();
+      return null;
+    }
+    if (function instanceof SizeFunction) {
+      input.markAllMembers();
+      return null;
+    }
+    if (readsArguments(function, args)) {
+      for (JsonElement arg : args) {
+        markWhole(expression(arg, input));
+      }
+      return null;
+    }
+    input.markWhole();
+    return null;
+  }
+
+  /**
+   * {@code groupBy(key) | mapValues(reducer)} only reads the key and the reduced values of each
+   * element, the same shapes the pipe fuses into one pass.
+   */
+  private boolean groupAggregate(JsonElement groupBy, JsonElement mapValues, PathTrie input) {
+    if (!(compiler.functionOf(groupBy) instanceof GroupByFunction)
+        || !(compiler.functionOf(mapValues) instanceof MapValuesFunction)
+        || groupBy.getAsJsonArray().size() != 2 || mapValues.getAsJsonArray().size() != 2) {
+      return false;
+    }
+    JsonElement body = mapValues.getAsJsonArray().get(1);
+    JsonElement value = null;
+    if (compiler.functionOf(body) instanceof PipeFunction && body.getAsJsonArray().size() == 3) {
+      JsonElement map = body.getAsJsonArray().get(1);
+      if (!(compiler.functionOf(map) instanceof MapFunction) || map.getAsJsonArray().size() != 2) {
+        return false;
+      }
+      value = map.getAsJsonArray().get(1);
+      body = body.getAsJsonArray().get(2);
+    }
+    JsonQueryFunction reducer = compiler.functionOf(body);
+    if (!(reducer instanceof SumFunction || reducer instanceof AverageFunction || reducer instanceof MinFunction
+        || reducer instanceof MaxFunction || reducer instanceof ProdFunction || reducer instanceof SizeFunction)
+        || body.getAsJsonArray().size() != 1) {
+      return false;
+    }
+
+    PathTrie element = input.addElements();
+    markWhole(expression(groupBy.getAsJsonArray().get(1), element));
+    if (value != null) {
+      markWhole(expression(value, element));
+    } else if (!(reducer instanceof SizeFunction)) {
+      element.markWhole();
+    }
+    return true;
+  }
+
+  // exists(get(...)) with string segments only checks that the last member is present
+  private boolean isLiteralObjectPath(JsonElement expression) {
+    if (!(compiler.functionOf(expression) instanceof GetFunction) || expression.getAsJsonArray().size() < 2) {
+      return false;
+    }
+    for (JsonElement segment : argsOf(expression.getAsJsonArray())) {
+      if (!segment.isJsonPrimitive() || !segment.getAsJsonPrimitive().isString()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static PathTrie get(List<JsonElement> args, PathTrie input) {
+    PathTrie current = input;
+    for (JsonElement segment : args) {
+      if (segment.isJsonPrimitive() && segment.getAsJsonPrimitive().isNumber()) {
+        current = current.addElements();
+      } else if (segment.isJsonPrimitive()) {
+        current = current.addMember(segment.getAsString());
+      } else {
+        // Rejected when the query is compiled; keep everything meanwhile
+        input.markWhole();
+        return null;
+      }
+    }
+    return current;
+  }
+
+  private void pick(List<JsonElement> args, PathTrie input) {
+    // As in pick itself, a single array argument is the list of selectors
+    List<JsonElement> selectors = args.size() == 1 && args.get(0).isJsonArray()
+        ? args.get(0).getAsJsonArray().asList()
+        : args;
+    for (JsonElement selector : selectors) {
+      if (selector.isJsonPrimitive()) {
+        // a literal key is looked up directly
+        input.addMember(selector.getAsString()).markWhole();
+      } else if (compiler.functionOf(selector) instanceof GetFunction) {
+        markWhole(expression(selector, input));
+      } else {
+        // any other selector yields a key that is looked up at run time
+        markWhole(expression(selector, input));
+        input.markAllMembers();
+      }
+    }
+  }
+
+  /**
+   * Functions that evaluate each argument against their own input and only use the results.
+   * Called without a value argument, several of them read the input itself instead.
+   */
+  private static boolean readsArguments(JsonQueryFunction function, List<JsonElement> args) {
+    if (args.isEmpty() || (function instanceof SubstringFunction && args.size() == 1)) {
+      return false;
+    }
+    return function instanceof AbstractBinaryPredicateFunction
+        || function instanceof NeFunction
+        || function instanceof AndFunction
+        || function instanceof OrFunction
+        || function instanceof NotFunction
+        || function instanceof InFunction
+        || function instanceof NotInFunction
+        || function instanceof ExistsFunction
+        || function instanceof RegexFunction
+        || function instanceof MatchFunction
+        || function instanceof MatchAllFunction
+        || function instanceof AbstractNumericBinaryFunction
+        || function instanceof AddFunction
+        || function instanceof AbsFunction
+        || function instanceof RoundFunction
+        || function instanceof NumberFunction
+        || function instanceof StringFunction
+        || function instanceof SplitFunction
+        || function instanceof SubstringFunction
+        || function instanceof IfFunction
+        || function instanceof ObjectFunction
+        || function instanceof ArrayFunction;
+  }
+}
@@ -0,0 +1,196 @@
+/*
+ *
+ *  Copyright [ 2020 - 2024 ] Matthew Buckton
+ *  Copyright [ 2024 - 2025 ] MapsMessaging B.V.
+ *
+ *  Licensed under the Apache License, Version 2.0 with the Commons Clause
+ *  (the "License"); you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at:
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *      https://commonsclause.com/
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.mapsmessaging.jsonquery.projection;
+
+import com.google.gson.JsonElement;
+import io.mapsmessaging.jsonquery.JsonQueryCompiler;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The parts of a JSON document a query can observe. Each node stands for one value: named
+ * members lead into objects, a single element node covers every entry of an array, and a
+ * {@code whole} node needs its value in full. Array lengths and scalar values are always kept,
+ * so a value whose node has no children still reads as an empty object.
+ * <p>
+ * Use {@link #of(JsonQueryCompiler, JsonElement)} to analyse a query, then walk the trie to decide
+ * which fields to deserialise, or ask {@link #mayAffect(List)} whether a change to a message can
+ * change the result.
+ */
+public final class PathTrie {
+
+  private static final PathTrie WHOLE = new PathTrie();
+
+  static {
+    WHOLE.whole = true;
+  }
+
+  private final Map<String, PathTrie> members = new LinkedHashMap<>();
+  private PathTrie elements;
+  private boolean whole;
+  private boolean allMembers;
+  private boolean wholeUnlessArray;
+  private boolean presence;
+
+  PathTrie() {
+  }
+
+  /**
+   * Analyses a query AST. Functions the analysis does not know about, including custom ones,
+   * are assumed to need their entire input.
+   */
+  public static PathTrie of(JsonQueryCompiler compiler, JsonElement query) {
+    if (compiler == null) {
+      throw new IllegalArgumentException("compiler cannot be null");
+    }
+    return PathAnalyzer.analyse(compiler, query);
+  }
+
+  PathTrie addMember(String name) {
+    return members.computeIfAbsent(name, ignored -> new PathTrie());
+  }
+
+  PathTrie addElements() {
+    if (elements == null) {
+      elements = new PathTrie();
+    }
+    return elements;
+  }
+
+  void markWhole() {
+    whole = true;
+  }
+
+  void markAllMembers() {
+    allMembers = true;
+  }
+
+  void markWholeUnlessArray() {
+    wholeUnlessArray = true;
+  }
+
+  void markPresence() {
+    presence = true;
+  }
+
+  /**
+   * Returns the members the query reads by name; other members are skipped unless
+   * {@link #isAllMembers()} is set.
+   */
+  public Map<String, PathTrie> getMembers() {
+    return Collections.unmodifiableMap(members);
+  }
+
+  /**
+   * Returns the node covering every array element, or null when no element content is read.
+   */
+  public PathTrie getElements() {
+    return elements;
+  }
+
+  public boolean isWhole() {
+    return whole;
+  }
+
+  /**
+   * Every member of an object is needed in full, e.g. to count or list them; arrays still go
+   * through the element node.
+   */
+  public boolean isAllMembers() {
+    return allMembers;
+  }
+
+  /**
+   * The value is needed in full unless it turns out to be an array, as for the input of
+   * {@code map}, which hands anything else back unchanged.
+   */
+  public boolean isWholeUnlessArray() {
+    return wholeUnlessArray;
+  }
+
+  /**
+   * Only whether the value is present is read (a literal {@code exists} path), not the value.
+   */
+  public boolean isPresenceOnly() {
+    return presence && !whole && !allMembers && !wholeUnlessArray && members.isEmpty() && elements == null;
+  }
+
+  /**
+   * Returns the node for a member, or null when the member can be skipped.
+   */
+  public PathTrie find(String name) {
+    PathTrie member = members.get(name);
+    return member == null && allMembers ? WHOLE : member;
+  }
+
+  /**
+   * Returns false when the value at {@code path} (member names as strings, array indexes as
+   * numbers) cannot influence the result, so a message that differs only there gives the same
+   * answer. Inserting or removing array elements should be reported as a change to the array.
+   */
+  public boolean mayAffect(List<?> path) {
+    PathTrie node = this;
+    for (Object segment : path) {
+      if (node.whole) {
+        return true;
+      }
+      if (segment instanceof Number) {
+        node = node.elements;
+      } else if (segment instanceof String name) {
+        if (node.wholeUnlessArray) {
+          return true;
+        }
+        node = node.find(name);
+      } else {
+        throw new IllegalArgumentException("path segments must be strings or numbers");
+      }
+      if (node == null) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder builder = new StringBuilder();
+    if (whole) {
+      builder.append('*');
+    } else if (isPresenceOnly()) {
+      builder.append('?');
+    }
+    if (allMembers) {
+      builder.append("{*}");
+    }
+    if (wholeUnlessArray) {
+      builder.append("*[]");
+    }
+    if (!members.isEmpty()) {
+      builder.append(members);
+    }
+    if (elements != null) {
+      builder.append('[').append(elements).append(']');
+    }
+    return builder.toString();
+  }
+}
@@ -0,0 +1,81 @@
+/*
+ *
+ *  Copyright [ 2020 - 2024 ] Matthew Buckton
+ *  Copyright [ 2024 - 2025 ] MapsMessaging B.V.
+ *
+ *  Licensed under the Apache License, Version 2.0 with the Commons Clause
+ *  (the "License"); you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at:
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *      https://commonsclause.com/
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.mapsmessaging.jsonquery.projection;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+
+/**
+ * Builds a Gson tree from a {@link JsonReader}, keeping only what a {@link PathTrie} marks as
+ * needed. Skipped members are stepped over by the reader without creating any elements.
+ */
+final class PrunedReader {
+
+  private static final PathTrie EMPTY = new PathTrie();
+
+  private PrunedReader() {
+  }
+
+  static JsonElement read(JsonReader in, PathTrie node) throws IOException {
+    JsonToken token = in.peek();
+    if (node.isWhole() || (node.isWholeUnlessArray() && token != JsonToken.BEGIN_ARRAY)) {
+      return JsonParser.parseReader(in);
+    }
+    if (node.isPresenceOnly()) {
+      // only has(name) is asked of it, so any value will do
+      in.skipValue();
+      return JsonNull.INSTANCE;
+    }
+    switch (token) {
+      case BEGIN_OBJECT:
+        JsonObject object = new JsonObject();
+        in.beginObject();
+        while (in.hasNext()) {
+          String name = in.nextName();
+          PathTrie member = node.find(name);
+          if (member == null) {
+            in.skipValue();
+          } else {
+            object.add(name, read(in, member));
+          }
+        }
+        in.endObject();
+        return object;
+      case BEGIN_ARRAY:
+        PathTrie elements = node.getElements() == null ? EMPTY : node.getElements();
+        JsonArray array = new JsonArray();
+        in.beginArray();
+        while (in.hasNext()) {
+          array.add(read(in, elements));
+        }
+        in.endArray();
+        return array;
+      default:
+        return JsonParser.parseReader(in);
+    }
+  }
+}
@@ -0,0 +1,292 @@
+/*
+ *
+ *  Copyright [ 2020 - 2024 ] Matthew Buckton
+ *  Copyright [ 2024 - 2025 ] MapsMessaging B.V.
+ *
+ *  Licensed under the Apache License, Version 2.0 with the Commons Clause
+ *  (the "License"); you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at:
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *      https://commonsclause.com/
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.mapsmessaging.jsonquery.stream;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import io.mapsmessaging.jsonquery.ExecutionContext;
+import io.mapsmessaging.jsonquery.JsonQueryCompiler;
+import io.mapsmessaging.jsonquery.functions.ElementWiseFunction;
+import io.mapsmessaging.jsonquery.functions.GetFunction;
+import io.mapsmessaging.jsonquery.functions.JsonQueryFunction;
+import io.mapsmessaging.jsonquery.functions.JsonQueryGson;
+import io.mapsmessaging.jsonquery.functions.LimitFunction;
+import io.mapsmessaging.jsonquery.functions.PipeFunction;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Executes a query directly against a {@link JsonReader} without materialising the whole input.
+ * <p>
+ * The query is split into three parts:
+ * <ul>
+ *   <li>leading {@code get} stages with string segments, which navigate the reader to the array
+ *   being queried and skip everything else,</li>
+ *   <li>element-wise stages ({@code filter}, {@code selector}, {@code map}, {@code pick},
+ *   {@code limit}) which run on one array element at a time,</li>
+ *   <li>the remaining stages (e.g. {@code sort}, {@code groupBy}) which only see the elements that
+ *   survived the element-wise prefix.</li>
+ * </ul>
+ * Once a {@code limit} is satisfied no further input is read, so the reader may be left positioned
+ * inside the document. If the located value is not an array, it is read as a tree and the query is
+ * applied as usual.
+ */
+public final class StreamingQuery {
+
+  private static final Gson GSON = new GsonBuilder().serializeNulls().disableHtmlEscaping().create();
+
+  private final List<String> rootPath;
+  private final List<Function<JsonElement, JsonElement>> elementStages;
+  private final int[] limits;
+  private final Function<JsonElement, JsonElement> tail;
+  private final Function<JsonElement, JsonElement> whole;
+
+  private StreamingQuery(List<String> rootPath,
+                         List<Function<JsonElement, JsonElement>> elementStages,
+                         int[] limits,
+                         Function<JsonElement, JsonElement> tail,
+                         Function<JsonElement, JsonElement> whole) {
+    this.rootPath = rootPath;
+    this.elementStages = elementStages;
+    this.limits = limits;
+    this.tail = tail;
+    this.whole = whole;
+  }
+
+  public static StreamingQuery compile(JsonQueryCompiler compiler, JsonElement query) {
+    List<JsonElement> stages = splitStages(compiler, query);
+
+    int index = 0;
+    List<String> rootPath = new ArrayList<>();
+    while (index < stages.size()) {
+      List<String> segments = literalGetPath(compiler, stages.get(index));
+      if (segments == null) {
+        break;
+      }
+      rootPath.addAll(segments);
+      index++;
+    }
+    Function<JsonElement, JsonElement> whole = compiler.compile(pipeOf(stages.subList(index, stages.size())));
+
+    List<Function<JsonElement, JsonElement>> elementStages = new ArrayList<>();
+    List<Integer> limits = new ArrayList<>();
+    while (index < stages.size()) {
+      JsonElement stage = stages.get(index);
+      JsonQueryFunction function = compiler.functionOf(stage);
+      List<JsonElement> args = stage.getAsJsonArray().asList();
+      if (function instanceof LimitFunction) {
+        elementStages.add(null);
+        limits.add(LimitFunction.parseCount(args.subList(1, args.size())));
+      } else if (function instanceof ElementWiseFunction elementWise) {
+        elementStages.add(elementWise.compileElement(args.subList(1, args.size()), compiler));
+        limits.add(-1);
+      } else {
+        break;
+      }
+      index++;
+    }
+
+    Function<JsonElement, JsonElement> tail = null;
+    if (index < stages.size()) {
+      tail = compiler.compile(pipeOf(stages.subList(index, stages.size())));
+    }
+
+    int[] limitArray = new int[limits.size()];
+    for (int i = 0; i < limitArray.length; i++) {
+      limitArray[i] = limits.get(i);
+    }
+    return new StreamingQuery(List.copyOf(rootPath), elementStages, limitArray, tail, whole);
+  }
+
+  private static List<JsonElement> splitStages(JsonQueryCompiler compiler, JsonElement query) {
+    List<JsonElement> stages = new ArrayList<>();
+    if (query != null && compiler.functionOf(query) instanceof PipeFunction) {
+      JsonArray pipe = query.getAsJsonArray();
+      for (int i = 1; i < pipe.size(); i++) {
+        stages.add(pipe.get(i));
+      }
+    } else {
+      stages.add(query);
+    }
+    return stages;
+  }
+
+  private static JsonElement pipeOf(List<JsonElement> stages) {
+    JsonArray pipe = new JsonArray();
+    pipe.add("pipe");
+    for (JsonElement stage : stages) {
+      pipe.add(stage);
+    }
+    return pipe;
+  }
+
+  private static List<String> literalGetPath(JsonQueryCompiler compiler, JsonElement stage) {
+    if (!(compiler.functionOf(stage) instanceof GetFunction)) {
+      return null;
+    }
+    JsonArray array = stage.getAsJsonArray();
+    if (array.size() < 2) {
+      return null;
+    }
+    List<String> segments = new ArrayList<>();
+    for (int i = 1; i < array.size(); i++) {
+      if (!JsonQueryGson.isString(array.get(i))) {
+        return null;
+      }
+      segments.add(array.get(i).getAsString());
+    }
+    return segments;
+  }
+
+  /**
+   * Runs the query and returns the result as a tree. Only the elements that survive the
+   * element-wise stages are buffered.
+   */
+  public JsonElement execute(JsonReader reader) throws IOException {
+    JsonElement located = locate(reader);
+    if (located != null) {
+      return whole.apply(located);
+    }
+    JsonArray results = new JsonArray();
+    streamElements(reader, results::add);
+    return tail == null ? results : tail.apply(results);
+  }
+
+  /**
+   * Runs the query and writes the result to the writer. When the query has no stages after the
+   * element-wise prefix, each result element is written as soon as it is produced.
+   */
+  public void execute(JsonReader reader, JsonWriter writer) throws IOException {
+    if (tail != null) {
+      write(execute(reader), writer);
+      return;
+    }
+    JsonElement located = locate(reader);
+    if (located != null) {
+      write(whole.apply(located), writer);
+      return;
+    }
+    writer.beginArray();
+    streamElements(reader, element -> write(element, writer));
+    writer.endArray();
+  }
+
+  private static void write(JsonElement element, JsonWriter writer) throws IOException {
+    GSON.toJson(JsonQueryGson.nullToJsonNull(element), writer);
+  }
+
+  /**
+   * Moves the reader to the value addressed by the leading get path. Returns null when the reader
+   * is positioned on an array ready to stream, otherwise the located value as a tree (JsonNull
+   * when the path does not exist).
+   */
+  private JsonElement locate(JsonReader reader) throws IOException {
+    for (String segment : rootPath) {
+      if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+        reader.skipValue();
+        return JsonNull.INSTANCE;
+      }
+      reader.beginObject();
+      boolean found = false;
+      while (reader.hasNext()) {
+        if (reader.nextName().equals(segment)) {
+          found = true;
+          break;
+        }
+        reader.skipValue();
+      }
+      if (!found) {
+        reader.endObject();
+        return JsonNull.INSTANCE;
+      }
+    }
+    if (reader.peek() == JsonToken.BEGIN_ARRAY) {
+      return null;
+    }
+    return JsonParser.parseReader(reader);
+  }
+
+  private void streamElements(JsonReader reader, ElementSink sink) throws IOException {
+    int stageCount = elementStages.size();
+    int[] counts = new int[stageCount];
+    if (isSaturated(counts)) {
+      return;
+    }
+
+    // Charged as the array stages would charge a one element array
+    ExecutionContext budget = ExecutionContext.current();
+    reader.beginArray();
+    while (reader.hasNext()) {
+      JsonElement current = JsonParser.parseReader(reader);
+      boolean alive = true;
+      for (int stage = 0; stage < stageCount && alive; stage++) {
+        if (limits[stage] >= 0) {
+          if (counts[stage] >= limits[stage]) {
+            alive = false;
+          } else {
+            counts[stage]++;
+          }
+          continue;
+        }
+        if (budget != null) {
+          budget.step();
+        }
+        current = elementStages.get(stage).apply(current);
+        if (current == null) {
+          alive = false;
+        } else if (budget != null) {
+          budget.emit(current);
+        }
+      }
+      if (alive) {
+        sink.accept(current);
+      }
+      if (isSaturated(counts)) {
+        // Nothing further can reach the output, stop reading
+        return;
+      }
+    }
+    reader.endArray();
+  }
+
+  private boolean isSaturated(int[] counts) {
+    for (int stage = 0; stage < limits.length; stage++) {
+      if (limits[stage] >= 0 && counts[stage] >= limits[stage]) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @FunctionalInterface
+  private interface ElementSink {
+    void accept(JsonElement element) throws IOException;
+  }
+}
@@ -0,0 +1,92 @@
+/*
+ *
+ *  Copyright [ 2020 - 2024 ] Matthew Buckton
+ *  Copyright [ 2024 - 2025 ] MapsMessaging B.V.
+ *
+ *  Licensed under the Apache License, Version 2.0 with the Commons Clause
+ *  (the "License"); you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at:
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *      https://commonsclause.com/
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.mapsmessaging.jsonquery;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.function.Function;
+
+class CachingJsonQueryCompilerTest {
+
+  @Test
+  void sameAstReturnsSameCompiledFunction() {
+    CachingJsonQueryCompiler compiler = CachingJsonQueryCompiler.createDefault();
+
+    Function<JsonElement, JsonElement> first = compiler.compile(JsonParser.parseString("""
+        ["map", ["get","age"]]
+        """));
+    Function<JsonElement, JsonElement> second = compiler.compile(JsonParser.parseString("""
+        [ "map",  [ "get", "age" ] ]
+        """));
+
+    Assertions.assertSame(first, second);
+    Assertions.assertEquals(1, compiler.getMissCount());
+    Assertions.assertEquals(1, compiler.getHitCount());
+
+    JsonElement result = second.apply(JsonParser.parseString("""
+        [{"age":1},{"age":2}]
+        """));
+    Assertions.assertEquals(JsonParser.parseString("[1,2]"), result);
+  }
+
+  @Test
+  void queryTextIsCached() {
+    CachingJsonQueryCompiler compiler = CachingJsonQueryCompiler.createDefault();
+
+    Function<JsonElement, JsonElement> first = compiler.compile(".age");
+    Function<JsonElement, JsonElement> second = compiler.compile(".age");
+
+    Assertions.assertSame(first, second);
+    Assertions.assertEquals(1, compiler.getHitCount());
+    Assertions.assertEquals(JsonParser.parseString("23"), first.apply(JsonParser.parseString("""
+        {"age":23}
+        """)));
+  }
+
+  @Test
+  void leastRecentlyUsedEntryIsEvicted() {
+    CachingJsonQueryCompiler compiler =
+        new CachingJsonQueryCompiler(JsonQueryCompiler.createDefault(), 1, CachingJsonQueryCompiler.DEFAULT_MAXIMUM_WEIGHT);
+
+    compiler.compile(".a");
+    compiler.compile(".b");
+    compiler.compile(".a");
+
+    Assertions.assertEquals(1, compiler.size());
+    Assertions.assertEquals(2, compiler.getEvictionCount());
+    Assertions.assertEquals(3, compiler.getMissCount());
+  }
+
+  @Test
+  void weightLimitBoundsCache() {
+    CachingJsonQueryCompiler compiler =
+        new CachingJsonQueryCompiler(JsonQueryCompiler.createDefault(), 100, 1000);
+
+    for (int i = 0; i < 50; i++) {
+      compiler.compile(".field" + i);
+    }
+
+    Assertions.assertTrue(compiler.weight() <= 1000);
+    Assertions.assertTrue(compiler.getEvictionCount() > 0);
+  }
+}
@@ -0,0 +1,224 @@
+/*
+ *
+ *  Copyright [ 2020 - 2024 ] Matthew Buckton
+ *  Copyright [ 2024 - 2025 ] MapsMessaging B.V.
+ *
+ *  Licensed under the Apache License, Version 2.0 with the Commons Clause
+ *  (the "License"); you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at:
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *      https://commonsclause.com/
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.mapsmessaging.jsonquery;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import io.mapsmessaging.jsonquery.functions.FunctionRegistry;
+import io.mapsmessaging.jsonquery.functions.JsonQueryFunction;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+class ExecutionContextTest {
+
+  private final JsonQueryCompiler compiler = JsonQueryCompiler.createDefault();
+
+  private static JsonArray numbers(int count) {
+    JsonArray array = new JsonArray(count);
+    for (int i = 0; i < count; i++) {
+      array.add(i);
+    }
+    return array;
+  }
+
+  private Function<JsonElement, JsonElement> compile(String query) {
+    return compiler.compile(JsonParser.parseString(query));
+  }
+
+  private static QueryBudgetExceededException.Reason failure(ExecutionContext context,
+                                                             Function<JsonElement, JsonElement> query,
+                                                             JsonElement data) {
+    return Assertions.assertThrows(QueryBudgetExceededException.class, () -> context.execute(query, data)).getReason();
+  }
+
+  @Test
+  void stepsAndOutputAreCharged() {
+    Function<JsonElement, JsonElement> query = compile("""
+        ["pipe", ["filter", ["gte", ["get"], 5]], ["sort"]]
+        """);
+    ExecutionContext context = new ExecutionContext(ExecutionLimits.unlimited());
+
+    Assertions.assertEquals(5, context.execute(query, numbers(10)).getAsJsonArray().size());
+    Assertions.assertEquals(15, context.getSteps());
+    Assertions.assertEquals(10, context.getOutputElements());
+    Assertions.assertNull(ExecutionContext.current());
+
+    ExecutionContext limited = new ExecutionContext(ExecutionLimits.unlimited().withMaxSteps(100));
+    Assertions.assertEquals(QueryBudgetExceededException.Reason.STEPS, failure(limited, query, numbers(1000)));
+    Assertions.assertNull(ExecutionContext.current());
+  }
+
+  @Test
+  void fusedAndKeyedStagesAreCharged() {
+    JsonArray records = new JsonArray();
+    for (int i = 0; i < 100_000; i++) {
+      JsonObject record = new JsonObject();
+      record.addProperty("v", i);
+      record.addProperty("g", i % 10);
+      records.add(record);
+    }
+    String[] queries = {
+        """
+        ["pipe", ["sort", ["get","v"]], ["limit", 1]]
+        """,
+        """
+        ["pipe", ["groupBy", ["get","g"]], ["mapValues", ["size"]]]
+        """,
+        """
+        ["groupBy", ["get","g"]]
+        """,
+        """
+        ["pick", ["get","v"]]
+        """,
+        """
+        ["uniqBy", ["get","g"]]
+        """,
+        """
+        ["keyBy", ["get","v"]]
+        """
+    };
+    for (String query : queries) {
+      ExecutionContext limited = new ExecutionContext(ExecutionLimits.unlimited().withMaxSteps(1000));
+      Assertions.assertEquals(QueryBudgetExceededException.Reason.STEPS, failure(limited, compile(query), records), query);
+    }
+
+    ExecutionContext context = new ExecutionContext(ExecutionLimits.unlimited());
+    JsonArray ten = new JsonArray();
+    for (int i = 0; i < 10; i++) {
+      ten.add(records.get(i));
+    }
+    context.execute(compile(queries[0]), ten);
+    Assertions.assertEquals(10, context.getSteps());
+    Assertions.assertEquals(1, context.getOutputElements());
+  }
+
+  @Test
+  void outputIsChargedPerStage() {
+    Function<JsonElement, JsonElement> query = compile("""
+        ["pipe", ["filter", ["gte", ["get"], 0]], ["sort"], ["map", ["get"]]]
+        """);
+    ExecutionContext context = new ExecutionContext(ExecutionLimits.unlimited());
+    Assertions.assertEquals(numbers(10), context.execute(query, numbers(10)));
+    Assertions.assertEquals(30, context.getOutputElements());
+
+    // The result holds 10 elements, but the intermediate arrays count towards the limit too
+    ExecutionContext limited = new ExecutionContext(ExecutionLimits.unlimited().withMaxOutputElements(25));
+    Assertions.assertEquals(QueryBudgetExceededException.Reason.OUTPUT_ELEMENTS, failure(limited, query, numbers(10)));
+  }
+
+  @Test
+  void outputLimitsStopLargeResults() {
+    ExecutionContext elements = new ExecutionContext(ExecutionLimits.unlimited().withMaxOutputElements(50));
+    JsonArray nested = new JsonArray();
+    nested.add(numbers(40));
+    nested.add(numbers(40));
+    Assertions.assertEquals(QueryBudgetExceededException.Reason.OUTPUT_ELEMENTS,
+        failure(elements, compile("[\"flatten\"]"), nested));
+
+    ExecutionContext bytes = new ExecutionContext(ExecutionLimits.unlimited().withMaxOutputBytes(10_000));
+    Function<JsonElement, JsonElement> widen = compile("""
+        ["map", ["object", {"id": ["get"], "padding": "0123456789012345678901234567890123456789"}]]
+        """);
+    Assertions.assertEquals(QueryBudgetExceededException.Reason.OUTPUT_BYTES, failure(bytes, widen, numbers(1000)));
+    Assertions.assertTrue(bytes.getOutputBytes() > 10_000);
+  }
+
+  @Test
+  void deadlineInterruptsCatastrophicRegex() {
+    JsonObject message = new JsonObject();
+    message.addProperty("text", "a".repeat(40) + "!");
+    Function<JsonElement, JsonElement> query = compile("""
+        ["regex", ["get","text"], "^(.*a){20}$"]
+        """);
+    ExecutionContext context = new ExecutionContext(ExecutionLimits.unlimited().withTimeout(Duration.ofMillis(50)));
+
+    Assertions.assertTimeoutPreemptively(Duration.ofSeconds(10), () ->
+        Assertions.assertEquals(QueryBudgetExceededException.Reason.DEADLINE, failure(context, query, message)));
+  }
+
+  @Test
+  void cancelledContextRefusesToRun() {
+    ExecutionContext context = new ExecutionContext(ExecutionLimits.unlimited());
+    Function<JsonElement, JsonElement> query = compile("[\"map\", [\"get\"]]");
+    Assertions.assertEquals(numbers(3), context.execute(query, numbers(3)));
+
+    context.cancel();
+    Assertions.assertTrue(context.isCancelled());
+    Assertions.assertEquals(QueryBudgetExceededException.Reason.CANCELLED, failure(context, query, numbers(3)));
+    // Queries run outside a context are not affected
+    Assertions.assertEquals(numbers(3), query.apply(numbers(3)));
+  }
+
+  @Test
+  void sortStopsPartwayWhenCancelled() {
+    AtomicInteger selected = new AtomicInteger();
+    FunctionRegistry functions = FunctionRegistry.merge(FunctionRegistry.builtIns(),
+        new FunctionRegistry(Map.of("cancel", new CancellingKey(selected))));
+    ForkJoinPool executor = new ForkJoinPool(4);
+    try {
+      List<JsonQueryCompiler> compilers = List.of(
+          new JsonQueryCompiler(functions, CompilerOptions.defaults()),
+          new JsonQueryCompiler(functions, CompilerOptions.defaults().withParallelExecution(executor, 1000)));
+      for (JsonQueryCompiler sorting : compilers) {
+        for (String query : List.of("[\"sort\", [\"cancel\"]]", "[\"pipe\", [\"sort\", [\"cancel\"]], [\"limit\", 5]]")) {
+          selected.set(0);
+          ExecutionContext context = new ExecutionContext(ExecutionLimits.unlimited());
+          // Sort charges all its steps before the first key is selected, so only polling stops it
+          Assertions.assertEquals(QueryBudgetExceededException.Reason.CANCELLED,
+              failure(context, sorting.compile(JsonParser.parseString(query)), numbers(100_000)), query);
+          Assertions.assertTrue(selected.get() < 100_000, query);
+        }
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  private static final class CancellingKey implements JsonQueryFunction {
+    private final AtomicInteger calls;
+
+    private CancellingKey(AtomicInteger calls) {
+      this.calls = calls;
+    }
+
+    @Override
+    public String getName() {
+      return "cancel";
+    }
+
+    @Override
+    public Function<JsonElement, JsonElement> compile(List<JsonElement> rawArgs, JsonQueryCompiler compiler) {
+      return data -> {
+        calls.incrementAndGet();
+        ExecutionContext.current().cancel();
+        return data;
+      };
+    }
+  }
+}
@@ -19,11 +19,22 @@
 
 package io.mapsmessaging.jsonquery;
 
+import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
+import io.mapsmessaging.jsonquery.functions.FunctionRegistry;
+import io.mapsmessaging.jsonquery.functions.JsonQueryFunction;
+import io.mapsmessaging.jsonquery.functions.LiteralSet;
+import io.mapsmessaging.jsonquery.functions.NumericExpression;
+import io.mapsmessaging.jsonquery.functions.PredicateExpression;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 
 class JsonQueryCompilerTest {
@@ -123,6 +134,167 @@ class JsonQueryCompilerTest {
     Assertions.assertEquals(expected, result);
   }
 
+  @Test
+  void sortLargeArrayIsStableAcrossMergedRuns() {
+    JsonQueryCompiler compiler = JsonQueryCompiler.createDefault();
+
+    JsonArray data = new JsonArray();
+    for (int i = 0; i < 500; i++) {
+      JsonObject element = new JsonObject();
+      element.addProperty("id", i);
+      element.addProperty("group", (i * 7) % 5);
+      data.add(element);
+    }
+
+    JsonArray sorted = compiler.compile(JsonParser.parseString("""
+        ["pipe", ["sort", ["get","group"], "desc"], ["map", ["get","id"]]]
+        """)).apply(data).getAsJsonArray();
+
+    Assertions.assertEquals(data.size(), sorted.size());
+    int previousGroup = Integer.MAX_VALUE;
+    int previousId = -1;
+    for (JsonElement id : sorted) {
+      int group = (id.getAsInt() * 7) % 5;
+      Assertions.assertTrue(group <= previousGroup);
+      if (group == previousGroup) {
+        Assertions.assertTrue(id.getAsInt() > previousId);
+      }
+      previousGroup = group;
+      previousId = id.getAsInt();
+    }
+  }
+
+  @Test
+  void sortThenLimitKeepsStableBucketOrder() {
+    JsonQueryCompiler compiler = JsonQueryCompiler.createDefault();
+
+    JsonElement data = JsonParser.parseString("""
+        [
+          {"name":"A","score":"x"},
+          {"name":"B","score":5},
+          {"name":"C"},
+          {"name":"D","score":7},
+          {"name":"E","score":true},
+          {"name":"F","score":7},
+          {"name":"G","score":[1]}
+        ]
+        """);
+
+    JsonElement desc = JsonParser.parseString("""
+        ["pipe", ["sort", ["get","score"], "desc"], ["limit", 4]]
+        """);
+    JsonElement asc = JsonParser.parseString("""
+        ["pipe", ["sort", ["get","score"]], ["limit", 3], ["map", ["get","name"]]]
+        """);
+
+    JsonElement expectedDesc = JsonParser.parseString("""
+        [
+          {"name":"G","score":[1]},
+          {"name":"A","score":"x"},
+          {"name":"D","score":7},
+          {"name":"F","score":7}
+        ]
+        """);
+
+    Assertions.assertEquals(expectedDesc, compiler.compile(desc).apply(data));
+    Assertions.assertEquals(JsonParser.parseString("[\"C\",\"E\",\"B\"]"), compiler.compile(asc).apply(data));
+    Assertions.assertEquals(JsonNull.INSTANCE, compiler.compile(desc).apply(JsonNull.INSTANCE));
+  }
+
+  @Test
+  void booleanAndSmallIntegerResultsAreShared() {
+    JsonQueryCompiler compiler = JsonQueryCompiler.createDefault();
+
+    JsonElement data = JsonParser.parseString("""
+        {"age":23,"tags":["a","b"]}
+        """);
+
+    Function<JsonElement, JsonElement> adult = compiler.compile(JsonParser.parseString("""
+        ["gte", ["get","age"], 18]
+        """));
+    Function<JsonElement, JsonElement> size = compiler.compile(JsonParser.parseString("""
+        ["pipe", ["get","tags"], ["size"]]
+        """));
+
+    Assertions.assertSame(JsonQueryFunction.TRUE, adult.apply(data));
+    Assertions.assertSame(size.apply(data), size.apply(data));
+    Assertions.assertEquals(2, size.apply(data).getAsInt());
+  }
+
+  @Test
+  void predicatesAndArithmeticCompileToTypedExpressions() {
+    JsonQueryCompiler compiler = JsonQueryCompiler.createDefault();
+
+    JsonElement data = JsonParser.parseString("""
+        {"age":23,"price":2.5,"qty":4,"name":""}
+        """);
+
+    Function<JsonElement, JsonElement> predicate = compiler.compile(JsonParser.parseString("""
+        ["and", ["gt", ["get","age"], 18], ["not", ["get","name"]]]
+        """));
+    Function<JsonElement, JsonElement> total = compiler.compile(JsonParser.parseString("""
+        ["add", ["multiply", ["get","price"], ["get","qty"]], ["divide", ["get","qty"], 16]]
+        """));
+
+    Assertions.assertTrue(predicate instanceof PredicateExpression);
+    Assertions.assertTrue(((PredicateExpression) predicate).test(data));
+    Assertions.assertSame(JsonQueryFunction.TRUE, predicate.apply(data));
+
+    Assertions.assertTrue(total instanceof NumericExpression);
+    Assertions.assertEquals(10.25, ((NumericExpression) total).applyAsDouble(data), 0.0);
+    Assertions.assertEquals("10.25", total.apply(data).toString());
+  }
+
+  @Test
+  void groupingKeepsFirstSeenOrderAndKeyTypes() {
+    JsonQueryCompiler compiler = JsonQueryCompiler.createDefault();
+
+    JsonElement data = JsonParser.parseString("""
+        [{"k":"b"},{"k":1},{"k":true},{"k":"true"},{"k":1.0},{"k":"1"},{"k":null},{"k":"b"}]
+        """);
+
+    // Compared as text so that the key order is checked too
+    Assertions.assertEquals(JsonParser.parseString("""
+        {"b":[{"k":"b"},{"k":"b"}],"1":[{"k":1},{"k":"1"}],"true":[{"k":true},{"k":"true"}],"1.0":[{"k":1.0}]}
+        """).toString(), compiler.compile(JsonParser.parseString("""
+        ["groupBy", ["get","k"]]
+        """)).apply(data).toString());
+    Assertions.assertEquals(JsonParser.parseString("""
+        ["b",1,true,"true","1",null]
+        """), compiler.compile(JsonParser.parseString("""
+        ["pipe", ["map", ["get","k"]], ["uniq"]]
+        """)).apply(data));
+  }
+
+  @Test
+  void groupedAggregatesMatchSeparateStages() {
+    JsonQueryCompiler compiler = JsonQueryCompiler.createDefault();
+
+    JsonElement data = JsonParser.parseString("""
+        [{"k":"a","v":2},{"k":"b","v":1.5},{"k":"a","v":null},{"k":null,"v":9},{"k":"c","v":null},{"k":"a","v":4}]
+        """);
+
+    for (String reducer : new String[]{"sum", "average", "min", "max", "prod", "size"}) {
+      // Wrapping mapValues in its own pipe keeps the two stages apart
+      JsonElement fused = compiler.compile(JsonParser.parseString(
+          "[\"pipe\", [\"groupBy\", [\"get\",\"k\"]], [\"mapValues\", [\"pipe\", [\"map\", [\"get\",\"v\"]], [\"" + reducer + "\"]]]]"
+      )).apply(data);
+      JsonElement separate = compiler.compile(JsonParser.parseString(
+          "[\"pipe\", [\"groupBy\", [\"get\",\"k\"]], [\"pipe\", [\"mapValues\", [\"pipe\", [\"map\", [\"get\",\"v\"]], [\"" + reducer + "\"]]]]]"
+      )).apply(data);
+      Assertions.assertEquals(separate.toString(), fused.toString(), reducer);
+    }
+
+    Assertions.assertEquals(JsonParser.parseString("""
+        {"a":6,"b":1.5,"c":0}
+        """), compiler.compile(JsonParser.parseString("""
+        ["pipe", ["groupBy", ["get","k"]], ["mapValues", ["pipe", ["map", ["get","v"]], ["sum"]]]]
+        """)).apply(data));
+    Assertions.assertThrows(IllegalArgumentException.class, () -> compiler.compile(JsonParser.parseString("""
+        ["pipe", ["groupBy", ["get","k"]], ["mapValues", ["sum"]]]
+        """)).apply(data));
+  }
+
   @Test
   void mapGetAge() {
     JsonQueryCompiler compiler = JsonQueryCompiler.createDefault();
@@ -186,6 +358,31 @@ class JsonQueryCompilerTest {
     Assertions.assertTrue(result.isJsonNull());
   }
 
+  @Test
+  void getFollowsKeysAndIndexes() {
+    JsonQueryCompiler compiler = JsonQueryCompiler.createDefault();
+
+    JsonElement data = JsonParser.parseString("""
+        {"a":{"b":[{"c":{"d":1}},{"c":null}]}}
+        """);
+
+    Assertions.assertEquals("1", compiler.compile(JsonParser.parseString("""
+        ["get", "a", "b", 0, "c", "d"]
+        """)).apply(data).toString());
+    Assertions.assertTrue(compiler.compile(JsonParser.parseString("""
+        ["get", "a", "b", 1, "c", "d"]
+        """)).apply(data).isJsonNull());
+    Assertions.assertTrue(compiler.compile(JsonParser.parseString("""
+        ["get", "a", "b", 2, "c"]
+        """)).apply(data).isJsonNull());
+    Assertions.assertTrue(compiler.compile(JsonParser.parseString("""
+        ["get", "a", "b", "c"]
+        """)).apply(data).isJsonNull());
+    Assertions.assertTrue(compiler.compile(JsonParser.parseString("""
+        ["get", "a", "x", "y"]
+        """)).apply(null).isJsonNull());
+  }
+
 
 
   @Test
@@ -311,4 +508,155 @@ class JsonQueryCompilerTest {
     Assertions.assertEquals(expected, result);
   }
 
+  @Test
+  void constantSubtreesAreEvaluatedOnce() {
+    AtomicInteger pureCalls = new AtomicInteger();
+    AtomicInteger impureCalls = new AtomicInteger();
+    JsonQueryCompiler compiler = JsonQueryCompiler.create(FunctionRegistry.builtIns(), new FunctionRegistry(Map.of(
+        "pureCount", new CountingFunction("pureCount", true, pureCalls),
+        "impureCount", new CountingFunction("impureCount", false, impureCalls)
+    )));
+
+    JsonElement query = JsonParser.parseString("""
+        ["array", ["add", ["pureCount", 1], 2], ["impureCount", 1]]
+        """);
+
+    Function<JsonElement, JsonElement> compiled = compiler.compile(query);
+    for (int i = 0; i < 3; i++) {
+      Assertions.assertEquals(JsonParser.parseString("[3,1]"), compiled.apply(JsonParser.parseString("{}")));
+    }
+
+    Assertions.assertEquals(1, pureCalls.get());
+    Assertions.assertEquals(3, impureCalls.get());
+  }
+
+  /**
+   * Runs in/not in with the list as a constant (hashed) and as input data (linear scan) and checks
+   * that both agree before returning the answer.
+   */
+  private static boolean in(String operator, String value, String list) {
+    JsonQueryCompiler compiler = JsonQueryCompiler.createDefault();
+    JsonElement data = JsonParser.parseString("{\"v\":" + value + ",\"list\":" + list + "}");
+    JsonArray constant = new JsonArray();
+    constant.add("array");
+    data.getAsJsonObject().getAsJsonArray("list").forEach(constant::add);
+
+    boolean hashed = compiler.compile(JsonParser.parseString("[\"" + operator + "\", [\"get\",\"v\"], " + constant + "]"))
+        .apply(data).getAsBoolean();
+    boolean scanned = compiler.compile(JsonParser.parseString("[\"" + operator + "\", [\"get\",\"v\"], [\"get\",\"list\"]]"))
+        .apply(data).getAsBoolean();
+    Assertions.assertEquals(scanned, hashed, operator + " " + value + " " + list);
+    return hashed;
+  }
+
+  @Test
+  void inMatchesLikeTheLinearScan() {
+    Assertions.assertTrue(in("in", "1", "[3, 1.0]"));
+    Assertions.assertTrue(in("in", "1.0", "[1]"));
+    Assertions.assertFalse(in("in", "1", "[\"1\", 2]"));
+    Assertions.assertTrue(in("in", "\"1\"", "[\"1\", 2]"));
+    Assertions.assertTrue(in("not in", "\"2\"", "[\"1\", 2]"));
+    Assertions.assertFalse(in("not in", "2", "[\"1\", 2]"));
+
+    Assertions.assertTrue(in("in", "null", "[1, null]"));
+    Assertions.assertFalse(in("in", "null", "[1, false]"));
+    Assertions.assertTrue(in("in", "false", "[1, false]"));
+    Assertions.assertFalse(in("in", "true", "[1, false]"));
+    Assertions.assertTrue(in("not in", "true", "[1, false, \"true\"]"));
+
+    // in keeps JsonPrimitive equality, where -0.0 is 0.0; eq orders numbers with Double.compare
+    Assertions.assertTrue(in("in", "-0.0", "[0.0]"));
+    Assertions.assertTrue(in("in", "0", "[-0.0]"));
+    Assertions.assertFalse(JsonQueryCompiler.createDefault().compile(JsonParser.parseString("""
+        ["eq", -0.0, 0.0]
+        """)).apply(JsonNull.INSTANCE).getAsBoolean());
+  }
+
+  @Test
+  void inHashesComputedConstantsAndScansEverythingElse() {
+    JsonQueryCompiler compiler = JsonQueryCompiler.createDefault();
+    JsonElement data = JsonParser.parseString("""
+        {"v": 4, "pair": [1,2], "other": [3,4]}
+        """);
+
+    Assertions.assertTrue(compiler.compile(JsonParser.parseString("""
+        ["in", ["get","v"], ["array", ["add", 2, 2], 9]]
+        """)).apply(data).getAsBoolean());
+    Assertions.assertTrue(compiler.compile(JsonParser.parseString("""
+        ["in", ["get","pair"], ["array", ["array", 1, 2], {"a": 1}]]
+        """)).apply(data).getAsBoolean());
+    Assertions.assertTrue(compiler.compile(JsonParser.parseString("""
+        ["in", ["get","v"], ["get","other"]]
+        """)).apply(data).getAsBoolean());
+
+    Assertions.assertNull(LiteralSet.of(JsonParser.parseString("[[1,2], 3]").getAsJsonArray()));
+    Assertions.assertNull(LiteralSet.of(JsonParser.parseString("[{\"a\":1}]").getAsJsonArray()));
+    Assertions.assertNotNull(LiteralSet.of(JsonParser.parseString("[1, \"a\", null, true]").getAsJsonArray()));
+  }
+
+  @Test
+  void constancyIsExaminedOncePerNode() {
+    AtomicInteger calls = new AtomicInteger();
+    CountingFunction pureCount = new CountingFunction("pureCount", true, calls);
+    JsonQueryCompiler compiler = JsonQueryCompiler.create(FunctionRegistry.builtIns(), new FunctionRegistry(Map.of(
+        "pureCount", pureCount,
+        "impureCount", new CountingFunction("impureCount", false, calls)
+    )));
+
+    int depth = 200;
+    JsonElement query = JsonParser.parseString("[\"impureCount\", 1]");
+    for (int i = 0; i < depth; i++) {
+      JsonArray wrapper = new JsonArray();
+      wrapper.add("pureCount");
+      wrapper.add(query);
+      query = wrapper;
+    }
+
+    Assertions.assertEquals(1, compiler.compile(query).apply(JsonNull.INSTANCE).getAsInt());
+    Assertions.assertTrue(pureCount.purityChecks.get() <= 2 * depth, "checks: " + pureCount.purityChecks.get());
+  }
+
+  @Test
+  void foldedContainersAreNotShared() {
+    Function<JsonElement, JsonElement> compiled = JsonQueryCompiler.createDefault().compile(JsonParser.parseString("""
+        ["array", 1, 2]
+        """));
+
+    compiled.apply(JsonNull.INSTANCE).getAsJsonArray().add(3);
+
+    Assertions.assertEquals(JsonParser.parseString("[1,2]"), compiled.apply(JsonNull.INSTANCE));
+  }
+
+  private static final class CountingFunction implements JsonQueryFunction {
+    private final String name;
+    private final boolean pure;
+    private final AtomicInteger calls;
+    private final AtomicInteger purityChecks = new AtomicInteger();
+
+    private CountingFunction(String name, boolean pure, AtomicInteger calls) {
+      this.name = name;
+      this.pure = pure;
+      this.calls = calls;
+    }
+
+    @Override
+    public String getName() {
+      return name;
+    }
+
+    @Override
+    public boolean isPure() {
+      purityChecks.incrementAndGet();
+      return pure;
+    }
+
+    @Override
+    public Function<JsonElement, JsonElement> compile(List<JsonElement> rawArgs, JsonQueryCompiler compiler) {
+      Function<JsonElement, JsonElement> arg = compiler.compile(rawArgs.get(0));
+      return data -> {
+        calls.incrementAndGet();
+        return arg.apply(data);
+      };
+    }
+  }
 }
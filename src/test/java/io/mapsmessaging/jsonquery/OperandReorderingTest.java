@@ -0,0 +1,192 @@
+/*
+ *
+ *  Copyright [ 2020 - 2024 ] Matthew Buckton
+ *  Copyright [ 2024 - 2025 ] MapsMessaging B.V.
+ *
+ *  Licensed under the Apache License, Version 2.0 with the Commons Clause
+ *  (the "License"); you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at:
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *      https://commonsclause.com/
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.mapsmessaging.jsonquery;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import io.mapsmessaging.jsonquery.functions.FunctionRegistry;
+import io.mapsmessaging.jsonquery.functions.JsonQueryFunction;
+import io.mapsmessaging.jsonquery.functions.logic.OperandOrder;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+class OperandReorderingTest {
+
+  private static List<JsonElement> args(String operands) {
+    return JsonParser.parseString(operands).getAsJsonArray().asList();
+  }
+
+  @Test
+  void cheapOperandsMoveAheadOfCostlyOnes() {
+    JsonQueryCompiler compiler = new JsonQueryCompiler(FunctionRegistry.builtIns(),
+        CompilerOptions.defaults().withOperandReordering(true));
+
+    Assertions.assertEquals(args("""
+        [["eq", ["get","age"], 3], ["and", ["gt", ["get","age"], 1], ["lt", ["get","age"], 9]]]
+        """), OperandOrder.reorder(args("""
+        [["and", ["gt", ["get","age"], 1], ["lt", ["get","age"], 9]], ["eq", ["get","age"], 3]]
+        """), compiler));
+
+    Assertions.assertEquals(JsonQueryFunction.UNKNOWN_COST, compiler.estimateCost(JsonParser.parseString("""
+        ["eq", ["string", ["keys"]], "x"]
+        """)));
+
+    // Operands that may throw stay put and nothing moves across them
+    List<JsonElement> pinned = args("""
+        [["or", ["eq", ["get","a"], 1], ["eq", ["get","b"], 2]], ["regex", ["get","name"], "^a"], ["ne", ["get","age"], ["get","x"]], ["exists", ["get","x"]]]
+        """);
+    Assertions.assertEquals(args("""
+        [["or", ["eq", ["get","a"], 1], ["eq", ["get","b"], 2]], ["regex", ["get","name"], "^a"], ["exists", ["get","x"]], ["ne", ["get","age"], ["get","x"]]]
+        """), OperandOrder.reorder(pinned, compiler));
+  }
+
+  @Test
+  void guardsStayAheadOfOperandsThatCanThrow() {
+    JsonQueryCompiler compiler = new JsonQueryCompiler(FunctionRegistry.builtIns(),
+        CompilerOptions.defaults().withOperandReordering(true));
+
+    List<JsonElement> guarded = args("""
+        [["eq", ["string", ["get","t"]], "n"], ["lt", ["subtract", ["get","v"], 1], 5]]
+        """);
+    Assertions.assertSame(guarded, OperandOrder.reorder(guarded, compiler));
+    // The guard costs more than the arithmetic, but must still run first
+    guarded = args("""
+        [["and", ["exists", ["get","v"]], ["ne", ["get","v"], null]], ["lt", ["subtract", ["get","v"], 1], 5]]
+        """);
+    Assertions.assertSame(guarded, OperandOrder.reorder(guarded, compiler));
+
+    Assertions.assertTrue(compiler.isInfallible(JsonParser.parseString("""
+        ["and", ["in", ["get","s"], ["array", "a", "b"]], ["not", ["eq", ["get","v"], ["add", 40, 2]]]]
+        """)));
+    Assertions.assertFalse(compiler.isInfallible(JsonParser.parseString("""
+        ["in", ["get","s"], ["get","list"]]
+        """)));
+  }
+
+  @Test
+  void samplingKeepsGuardsAheadOfOperandsThatCanThrow() {
+    JsonQueryCompiler compiler = new JsonQueryCompiler(FunctionRegistry.builtIns(),
+        CompilerOptions.defaults().withSelectivitySampling(20));
+    Function<JsonElement, JsonElement> predicate = compiler.compile(JsonParser.parseString("""
+        ["and", ["exists", ["get","price"]], ["gt", ["subtract", ["get","price"], 10], 0]]
+        """));
+    JsonElement priced = JsonParser.parseString("""
+        {"price":5}
+        """);
+    JsonElement unpriced = JsonParser.parseString("""
+        {"name":"x"}
+        """);
+
+    // Sampled mostly on messages where the arithmetic never decides, then checked without a price
+    for (int i = 0; i < 100; i++) {
+      Assertions.assertEquals(JsonQueryFunction.FALSE, predicate.apply(priced));
+      Assertions.assertEquals(JsonQueryFunction.FALSE, predicate.apply(unpriced));
+    }
+  }
+
+  @Test
+  void reorderedPredicatesKeepTheirResults() {
+    JsonQueryCompiler written = JsonQueryCompiler.createDefault();
+    JsonQueryCompiler reordered = new JsonQueryCompiler(FunctionRegistry.builtIns(),
+        CompilerOptions.defaults().withOperandReordering(true).withSelectivitySampling(50));
+
+    JsonArray people = new JsonArray();
+    for (int i = 0; i < 300; i++) {
+      JsonObject person = new JsonObject();
+      person.addProperty("name", (i % 5 == 0 ? "alice" : "bob") + i);
+      person.addProperty("age", i % 40);
+      people.add(person);
+    }
+
+    for (String query : List.of(
+        """
+            ["filter", ["and", ["regex", ["get","name"], "^a"], ["gt", ["get","age"], 10], ["ne", ["get","age"], 20]]]
+            """,
+        """
+            ["filter", ["or", ["regex", ["get","name"], "7$"], ["not", ["lt", ["get","age"], 30]], ["eq", ["get","age"], 1]]]
+            """)) {
+      JsonElement ast = JsonParser.parseString(query);
+      Function<JsonElement, JsonElement> expected = written.compile(ast);
+      Function<JsonElement, JsonElement> actual = reordered.compile(ast);
+      // Repeated so that the sampled order is exercised after it settles
+      for (int run = 0; run < 3; run++) {
+        Assertions.assertEquals(expected.apply(people), actual.apply(people), query);
+      }
+    }
+  }
+
+  @Test
+  void samplingPutsTheDecidingOperandFirst() {
+    AtomicInteger probes = new AtomicInteger();
+    JsonQueryCompiler compiler = new JsonQueryCompiler(FunctionRegistry.merge(FunctionRegistry.builtIns(),
+        new FunctionRegistry(Map.of("probe", new ProbeFunction(probes)))),
+        CompilerOptions.defaults().withSelectivitySampling(100));
+
+    // probe is cheaper, so it starts first, but it never rules anything out
+    Function<JsonElement, JsonElement> predicate = compiler.compile(JsonParser.parseString("""
+        ["and", ["eq", ["get","age"], ["add", 40, 2]], ["probe"]]
+        """));
+    JsonElement data = JsonParser.parseString("""
+        {"age":7}
+        """);
+    for (int i = 0; i < 1000; i++) {
+      Assertions.assertEquals(JsonQueryFunction.FALSE, predicate.apply(data));
+    }
+    Assertions.assertEquals(100, probes.get());
+  }
+
+  private static final class ProbeFunction implements JsonQueryFunction {
+    private final AtomicInteger calls;
+
+    private ProbeFunction(AtomicInteger calls) {
+      this.calls = calls;
+    }
+
+    @Override
+    public String getName() {
+      return "probe";
+    }
+
+    @Override
+    public int cost() {
+      return 1;
+    }
+
+    @Override
+    public boolean isInfallible(List<JsonElement> rawArgs, JsonQueryCompiler compiler) {
+      return true;
+    }
+
+    @Override
+    public Function<JsonElement, JsonElement> compile(List<JsonElement> rawArgs, JsonQueryCompiler compiler) {
+      return data -> {
+        calls.incrementAndGet();
+        return TRUE;
+      };
+    }
+  }
+}
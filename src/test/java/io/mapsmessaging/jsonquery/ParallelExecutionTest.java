@@ -0,0 +1,140 @@
+/*
+ *
+ *  Copyright [ 2020 - 2024 ] Matthew Buckton
+ *  Copyright [ 2024 - 2025 ] MapsMessaging B.V.
+ *
+ *  Licensed under the Apache License, Version 2.0 with the Commons Clause
+ *  (the "License"); you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at:
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *      https://commonsclause.com/
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.mapsmessaging.jsonquery;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import io.mapsmessaging.jsonquery.functions.FunctionRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+
+class ParallelExecutionTest {
+
+  private static JsonArray people(int count) {
+    JsonArray people = new JsonArray();
+    for (int i = 0; i < count; i++) {
+      JsonObject person = new JsonObject();
+      person.addProperty("name", "p" + i);
+      person.addProperty("age", i % 90);
+      if (i % 7 != 0) {
+        person.addProperty("city", i % 3 == 0 ? "Oslo" : "Rome");
+      }
+      people.add(person);
+    }
+    people.add(JsonParser.parseString("null"));
+    return people;
+  }
+
+  @Test
+  void parallelStagesKeepSequentialResults() {
+    ForkJoinPool executor = new ForkJoinPool(4);
+    try {
+      JsonQueryCompiler sequential = JsonQueryCompiler.createDefault();
+      JsonQueryCompiler parallel = new JsonQueryCompiler(FunctionRegistry.builtIns(),
+          CompilerOptions.defaults().withParallelExecution(executor, 1000));
+      JsonArray data = people(50_000);
+
+      List<String> queries = List.of(
+          """
+              ["filter", ["gte", ["get","age"], 45]]
+              """,
+          """
+              ["map", ["get","city"]]
+              """,
+          """
+              ["pick", "name", "city"]
+              """,
+          """
+              ["pipe", ["filter", ["eq", ["get","city"], "Oslo"]], ["map", ["get","age"]], ["sum"]]
+              """,
+          """
+              ["sort", ["get","city"]]
+              """,
+          """
+              ["sort", ["get","age"], "desc"]
+              """
+      );
+      for (String query : queries) {
+        JsonElement ast = JsonParser.parseString(query);
+        Assertions.assertEquals(sequential.compile(ast).apply(data), parallel.compile(ast).apply(data), query);
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  void parallelStagesRethrowElementErrors() {
+    ForkJoinPool executor = new ForkJoinPool(4);
+    try {
+      JsonQueryCompiler parallel = new JsonQueryCompiler(FunctionRegistry.builtIns(),
+          CompilerOptions.defaults().withParallelExecution(executor, 1000));
+      JsonArray data = people(20_000);
+      data.set(15_000, JsonParser.parseString("{\"age\":\"old\"}"));
+
+      IllegalArgumentException error = Assertions.assertThrows(IllegalArgumentException.class,
+          () -> parallel.compile(JsonParser.parseString("""
+              ["map", ["multiply", 2, ["get","age"]]]
+              """)).apply(data));
+      Assertions.assertEquals("Number expected", error.getMessage());
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  void nestedStagesOnABoundedExecutorComplete() {
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      JsonQueryCompiler sequential = JsonQueryCompiler.createDefault();
+      JsonQueryCompiler parallel = new JsonQueryCompiler(FunctionRegistry.builtIns(),
+          CompilerOptions.defaults().withParallelExecution(executor, 2));
+      JsonArray row = new JsonArray();
+      for (int i = 0; i < 4096; i++) {
+        row.add(i % 10);
+      }
+      JsonArray rows = new JsonArray();
+      for (int i = 0; i < 4096; i++) {
+        rows.add(row);
+      }
+      // Every map chunk runs a parallel filter while both pool threads are busy with map chunks
+      JsonElement ast = JsonParser.parseString("""
+          ["map", ["pipe", ["filter", ["gte", ["get"], 5]], ["size"]]]
+          """);
+      JsonElement expected = sequential.compile(ast).apply(rows);
+
+      Assertions.assertTimeoutPreemptively(Duration.ofSeconds(60), () -> {
+        Assertions.assertEquals(expected, parallel.compile(ast).apply(rows));
+        // The whole query on a pool thread leaves a single worker for its chunks
+        Assertions.assertEquals(expected, executor.submit(() -> parallel.compile(ast).apply(rows)).get());
+      });
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+}
@@ -0,0 +1,139 @@
+/*
+ *
+ *  Copyright [ 2020 - 2024 ] Matthew Buckton
+ *  Copyright [ 2024 - 2025 ] MapsMessaging B.V.
+ *
+ *  Licensed under the Apache License, Version 2.0 with the Commons Clause
+ *  (the "License"); you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at:
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *      https://commonsclause.com/
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.mapsmessaging.jsonquery;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class ProfiledQueryTest {
+
+  private static final JsonElement PEOPLE = JsonParser.parseString("""
+      [
+        {"first":"Chris","age":23},
+        {"first":"Joe","age":32},
+        {"first":"Emily","age":19},
+        {"first":"Pat","age":40}
+      ]
+      """);
+
+  private final JsonQueryCompiler compiler = JsonQueryCompiler.createDefault();
+
+  @Test
+  void profileMirrorsThePipeline() {
+    JsonElement query = JsonParser.parseString("""
+        ["pipe",
+          ["filter", ["gt", ["get","age"], ["add", 1, 20]]],
+          ["sort", ["get","age"], "desc"],
+          ["map", ["get","first"]]
+        ]
+        """);
+    ProfiledQuery profiled = compiler.compileProfiled(query);
+
+    Assertions.assertEquals(compiler.compile(query).apply(PEOPLE), profiled.apply(PEOPLE));
+
+    JsonObject pipe = profiled.getProfile();
+    Assertions.assertEquals("pipe", pipe.get("function").getAsString());
+    Assertions.assertEquals(query, pipe.get("query"));
+    Assertions.assertEquals(1, pipe.get("invocations").getAsLong());
+    Assertions.assertEquals(4, pipe.get("inputElements").getAsLong());
+    Assertions.assertEquals(3, pipe.get("outputElements").getAsLong());
+    Assertions.assertTrue(pipe.get("totalNanos").getAsLong() >= pipe.get("selfNanos").getAsLong());
+
+    JsonArray stages = pipe.getAsJsonArray("children");
+    Assertions.assertEquals(3, stages.size());
+    JsonObject filter = stages.get(0).getAsJsonObject();
+    Assertions.assertEquals("filter", filter.get("function").getAsString());
+    Assertions.assertEquals(4, filter.get("inputElements").getAsLong());
+    Assertions.assertEquals(3, filter.get("outputElements").getAsLong());
+
+    JsonObject gt = filter.getAsJsonArray("children").get(0).getAsJsonObject();
+    Assertions.assertEquals(4, gt.get("invocations").getAsLong());
+    Assertions.assertFalse(gt.has("inputElements"));
+    // Folding the constant ran it once during compilation, which does not count
+    JsonObject add = gt.getAsJsonArray("children").get(1).getAsJsonObject();
+    Assertions.assertEquals("add", add.get("function").getAsString());
+    Assertions.assertEquals(4, add.get("invocations").getAsLong());
+
+    Assertions.assertEquals("sort", stages.get(1).getAsJsonObject().get("function").getAsString());
+    Assertions.assertEquals("map", stages.get(2).getAsJsonObject().get("function").getAsString());
+  }
+
+  @Test
+  void fusedStagesReportAsOneNode() {
+    JsonElement query = JsonParser.parseString("""
+        ["pipe",
+          ["filter", ["gt", ["get","age"], 20]],
+          ["sort", ["get","age"]],
+          ["limit", 2]
+        ]
+        """);
+    ProfiledQuery profiled = compiler.compileProfiled(query);
+
+    Assertions.assertEquals(JsonParser.parseString("""
+        [{"first":"Chris","age":23},{"first":"Joe","age":32}]
+        """), profiled.apply(PEOPLE));
+
+    JsonArray stages = profiled.getProfile().getAsJsonArray("children");
+    Assertions.assertEquals(2, stages.size());
+    Assertions.assertEquals("filter", stages.get(0).getAsJsonObject().get("function").getAsString());
+    JsonObject topK = stages.get(1).getAsJsonObject();
+    Assertions.assertEquals("sort|limit", topK.get("function").getAsString());
+    Assertions.assertEquals(JsonParser.parseString("""
+        ["sort|limit", ["sort", ["get","age"]], ["limit", 2]]
+        """), topK.get("query"));
+    Assertions.assertEquals(1, topK.get("invocations").getAsLong());
+    Assertions.assertEquals(3, topK.get("inputElements").getAsLong());
+    Assertions.assertEquals(2, topK.get("outputElements").getAsLong());
+    JsonObject key = topK.getAsJsonArray("children").get(0).getAsJsonObject();
+    Assertions.assertEquals("get", key.get("function").getAsString());
+    Assertions.assertEquals(3, key.get("invocations").getAsLong());
+
+    ProfiledQuery grouped = compiler.compileProfiled(JsonParser.parseString("""
+        ["pipe", ["groupBy", ["get","first"]], ["mapValues", ["size"]]]
+        """));
+    grouped.apply(PEOPLE);
+    JsonArray groupStages = grouped.getProfile().getAsJsonArray("children");
+    Assertions.assertEquals(1, groupStages.size());
+    Assertions.assertEquals("groupBy|mapValues", groupStages.get(0).getAsJsonObject().get("function").getAsString());
+  }
+
+  @Test
+  void countsErrorsAndResets() {
+    ProfiledQuery profiled = compiler.compileProfiled(JsonParser.parseString("""
+        ["filter", ["get","age"]]
+        """));
+
+    Assertions.assertThrows(IllegalArgumentException.class, () -> profiled.apply(JsonParser.parseString("{}")));
+    profiled.apply(PEOPLE);
+    JsonObject filter = profiled.getProfile();
+    Assertions.assertEquals(2, filter.get("invocations").getAsLong());
+    Assertions.assertEquals(1, filter.get("errors").getAsLong());
+    Assertions.assertEquals(4, filter.get("inputElements").getAsLong());
+    Assertions.assertEquals(4, filter.getAsJsonArray("children").get(0).getAsJsonObject().get("invocations").getAsLong());
+
+    profiled.reset();
+    Assertions.assertEquals(0, profiled.getProfile().get("invocations").getAsLong());
+    Assertions.assertEquals(0, profiled.getProfile().get("totalNanos").getAsLong());
+  }
+}
@@ -0,0 +1,164 @@
+/*
+ *
+ *  Copyright [ 2020 - 2024 ] Matthew Buckton
+ *  Copyright [ 2024 - 2025 ] MapsMessaging B.V.
+ *
+ *  Licensed under the Apache License, Version 2.0 with the Commons Clause
+ *  (the "License"); you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at:
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *      https://commonsclause.com/
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.mapsmessaging.jsonquery.codegen;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import io.mapsmessaging.jsonquery.CompilerOptions;
+import io.mapsmessaging.jsonquery.JsonQueryCompiler;
+import io.mapsmessaging.jsonquery.functions.FunctionRegistry;
+import io.mapsmessaging.jsonquery.functions.PredicateExpression;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+class PredicateCodeGeneratorTest {
+
+  // Values placed at the compared path: each JSON type, both zeros and a missing field
+  private static final List<String> VALUES = List.of("5", "5.0", "4", "6", "0", "-0.0", "\"5\"", "\"b\"", "true", "false",
+      "null", "[5]", "{\"v\":5}");
+
+  private static final List<String> CONSTANTS = List.of("5", "0", "-0.0", "\"b\"", "true", "null");
+
+  private static final List<String> OPERATORS = List.of("eq", "ne", "gt", "gte", "lt", "lte");
+
+  private static JsonQueryCompiler generating() {
+    return new JsonQueryCompiler(FunctionRegistry.builtIns(), CompilerOptions.defaults().withBytecodeGeneration(true));
+  }
+
+  private static boolean isGenerated(Function<JsonElement, JsonElement> function) {
+    return function instanceof PredicateExpression && function.getClass().getName().contains("GeneratedPredicate");
+  }
+
+  private static List<JsonElement> messages() {
+    List<JsonElement> messages = new ArrayList<>();
+    for (String value : VALUES) {
+      messages.add(JsonParser.parseString("{\"v\":" + value + ",\"a\":{\"b\":[0," + value + "]}}"));
+    }
+    messages.add(JsonParser.parseString("{}"));
+    messages.add(JsonParser.parseString("{\"a\":{\"b\":[]}}"));
+    messages.add(JsonParser.parseString("[\"not\",\"an\",\"object\"]"));
+    messages.add(JsonParser.parseString("null"));
+    return messages;
+  }
+
+  // Either the result or the error, so operands that throw are compared too
+  private static Object outcome(Function<JsonElement, JsonElement> function, JsonElement message) {
+    try {
+      return function.apply(message);
+    } catch (IllegalArgumentException e) {
+      return e.getMessage();
+    }
+  }
+
+  private static void assertSameOutcomes(Function<JsonElement, JsonElement> expected,
+                                         Function<JsonElement, JsonElement> actual, String query) {
+    for (JsonElement message : messages()) {
+      Assertions.assertEquals(outcome(expected, message), outcome(actual, message), query + " on " + message);
+    }
+  }
+
+  private static void assertGeneratedAgrees(String query) {
+    JsonElement ast = JsonParser.parseString(query);
+    Function<JsonElement, JsonElement> expected = JsonQueryCompiler.createDefault().compile(ast);
+    Function<JsonElement, JsonElement> actual = generating().compile(ast);
+
+    Assertions.assertTrue(isGenerated(actual), query);
+    assertSameOutcomes(expected, actual, query);
+  }
+
+  @Test
+  void comparisonTemplatesAgreeWithClosures() {
+    for (String operator : OPERATORS) {
+      for (String constant : CONSTANTS) {
+        assertGeneratedAgrees("[\"" + operator + "\", [\"get\",\"v\"], " + constant + "]");
+        // Constant on the left flips the operator; array index segments are walked inline
+        assertGeneratedAgrees("[\"" + operator + "\", " + constant + ", [\"get\",\"a\",\"b\",1]]");
+      }
+    }
+  }
+
+  @Test
+  void constantSubtreesAreFoldedIntoTemplates() {
+    assertGeneratedAgrees("""
+        ["lte", ["get","v"], ["add", 2, 3]]
+        """);
+  }
+
+  @Test
+  void opaqueOperandsStayInsideGeneratedTrees() {
+    assertGeneratedAgrees("""
+        ["and", ["exists", ["get","v"]], ["gte", ["get","v"], 5]]
+        """);
+    assertGeneratedAgrees("""
+        ["or", ["regex", ["get","v"], "^b"], ["not", ["eq", ["get","a","b",1], true]]]
+        """);
+    assertGeneratedAgrees("""
+        ["and", ["get","v"], ["ne", ["get","v"], null], ["eq", ["get","v"], ["get","a","b",1]]]
+        """);
+  }
+
+  @Test
+  void rootsWithoutTemplatesFallBackToClosures() {
+    JsonQueryCompiler compiler = generating();
+    List<String> queries = List.of(
+        """
+            ["regex", ["get","v"], "^b"]
+            """,
+        """
+            ["eq", ["get","v"], ["get","a","b",1]]
+            """,
+        """
+            ["and", ["exists", ["get","v"]], ["eq", ["get","v"], ["get","a","b",1]]]
+            """,
+        """
+            ["eq", ["get","a","b",-1], 5]
+            """,
+        """
+            ["eq", ["get","v"], ["object", {"v":5}]]
+            """
+    );
+
+    for (String query : queries) {
+      JsonElement ast = JsonParser.parseString(query);
+      Function<JsonElement, JsonElement> expected = JsonQueryCompiler.createDefault().compile(ast);
+      Function<JsonElement, JsonElement> actual = compiler.compile(ast);
+
+      Assertions.assertFalse(isGenerated(actual), query);
+      assertSameOutcomes(expected, actual, query);
+    }
+  }
+
+  @Test
+  void filterUsesGeneratedPredicate() {
+    JsonElement query = JsonParser.parseString("""
+        ["filter", ["and", ["gte", ["get","v"], 5], ["lt", ["get","a","b",1], 6]]]
+        """);
+    JsonArray data = new JsonArray();
+    messages().forEach(data::add);
+
+    Assertions.assertEquals(JsonQueryCompiler.createDefault().compile(query).apply(data),
+        generating().compile(query).apply(data));
+  }
+}
@@ -0,0 +1,186 @@
+/*
+ *
+ *  Copyright [ 2020 - 2024 ] Matthew Buckton
+ *  Copyright [ 2024 - 2025 ] MapsMessaging B.V.
+ *
+ *  Licensed under the Apache License, Version 2.0 with the Commons Clause
+ *  (the "License"); you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at:
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *      https://commonsclause.com/
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.mapsmessaging.jsonquery.functions;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import io.mapsmessaging.jsonquery.CompilerOptions;
+import io.mapsmessaging.jsonquery.JsonQueryCompiler;
+import io.mapsmessaging.selector.ParseException;
+import io.mapsmessaging.selector.SelectorParser;
+import io.mapsmessaging.selector.operators.ParserExecutor;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+class SelectorTranslatorTest {
+
+  private final JsonQueryCompiler compiler = JsonQueryCompiler.createDefault();
+
+  private boolean test(String selector, String message) {
+    PredicateExpression predicate = SelectorTranslator.translate(selector, compiler);
+    Assertions.assertNotNull(predicate, selector);
+    return predicate.test(JsonParser.parseString(message));
+  }
+
+  @Test
+  void comparisonsFollowThreeValuedLogic() {
+    String message = """
+        {"state":"Alaska","age":23,"vip":true,"address":{"city":"Juneau"},"note":null}
+        """;
+
+    Assertions.assertTrue(test("state = 'Alaska' AND age >= 21", message));
+    Assertions.assertTrue(test("address.city <> 'Anchorage'", message));
+    Assertions.assertTrue(test("30 > age", message));
+    Assertions.assertTrue(test("vip AND NOT (age BETWEEN 30 AND 40)", message));
+    Assertions.assertTrue(test("state IN ('Texas', 'Alaska') and address.city LIKE 'J_n%'", message));
+    Assertions.assertTrue(test("note IS NULL AND missing IS NULL AND age IS NOT NULL", message));
+    Assertions.assertTrue(test("missing = 1 OR age = 23.0", message));
+
+    // Missing and mistyped values are unknown, and NOT unknown is still unknown
+    Assertions.assertFalse(test("NOT (missing = 1)", message));
+    Assertions.assertFalse(test("NOT (state > 1)", message));
+    Assertions.assertFalse(test("missing NOT IN ('a')", message));
+    Assertions.assertTrue(test("NOT (missing = 1 AND age < 0)", message));
+  }
+
+  @Test
+  void likeHonoursEscapes() {
+    Assertions.assertTrue(test("code LIKE '100!%' ESCAPE '!'", """
+        {"code":"100%"}
+        """));
+    Assertions.assertFalse(test("code LIKE '100!%' ESCAPE '!'", """
+        {"code":"1000"}
+        """));
+  }
+
+  @Test
+  void unsupportedSelectorsAreLeftToTheExecutor() {
+    Assertions.assertNull(SelectorTranslator.translate("age + 1 > 21", compiler));
+    Assertions.assertNull(SelectorTranslator.translate("age > limit", compiler));
+    Assertions.assertNull(SelectorTranslator.translate("name > 'b'", compiler));
+    Assertions.assertNull(SelectorTranslator.translate("size = 0x1F", compiler));
+    Assertions.assertNull(SelectorTranslator.translate("state = 'Alaska", compiler));
+  }
+
+  @Test
+  void translationAgreesWithTheSelectorExecutor() throws ParseException {
+    List<String> messages = List.of(
+        """
+        {"state":"Alaska","age":23,"score":2.5,"vip":true,"code":"100%","address":{"city":"Juneau","zip":99801}}
+        """,
+        """
+        {"state":"Texas","age":23.0,"score":2,"vip":false,"code":"1000","address":{"city":"Austin"}}
+        """,
+        """
+        {"state":null,"age":"23","vip":"yes","address":"Juneau"}
+        """,
+        """
+        {"age":40,"score":-1.5,"address":{"city":null,"zip":"99801"}}
+        """,
+        """
+        {}
+        """);
+    List<String> selectors = List.of(
+        "state = 'Alaska'",
+        "state <> 'Alaska'",
+        "age = 23",
+        "age = 23.0",
+        "score = 2",
+        "score = 2.0",
+        "age > 21 AND age <= 23",
+        "age < 30 OR score >= 2.5",
+        "-2 < score",
+        "NOT (age >= 30)",
+        "vip",
+        "NOT vip",
+        "vip = TRUE",
+        "vip = false",
+        "age BETWEEN 20 AND 25",
+        "age NOT BETWEEN 20 AND 25",
+        "state IN ('Texas', 'Alaska')",
+        "state NOT IN ('Texas')",
+        "code LIKE '100%'",
+        "code NOT LIKE '1_0_'",
+        "code LIKE '100!%' ESCAPE '!'",
+        "state IS NULL",
+        "state IS NOT NULL",
+        "address.city = 'Juneau'",
+        "address.city IS NULL",
+        "address.zip = 99801",
+        "address.zip > 99800 AND (state = 'Alaska' OR NOT vip)",
+        "NOT (missing = 1 AND age < 0)");
+
+    for (String selector : selectors) {
+      PredicateExpression translated = SelectorTranslator.translate(selector, compiler);
+      Assertions.assertNotNull(translated, selector);
+      ParserExecutor executor = SelectorParser.compile(selector);
+      for (String message : messages) {
+        JsonObject object = JsonParser.parseString(message).getAsJsonObject();
+        Assertions.assertEquals(executor.evaluate(object), translated.test(object),
+            selector + " on " + message.strip());
+      }
+    }
+  }
+
+  @Test
+  void selectorFunctionWithoutTranslationIsUnchanged() {
+    JsonQueryCompiler executing = new JsonQueryCompiler(FunctionRegistry.builtIns(),
+        CompilerOptions.defaults().withSelectorTranslation(false));
+    JsonQueryCompiler translating = new JsonQueryCompiler(FunctionRegistry.builtIns(),
+        CompilerOptions.defaults().withSelectorTranslation(true));
+    JsonElement data = JsonParser.parseString("""
+        [{"state":"Alaska","age":10,"address":{"city":"Juneau"}}, 123, "x",
+         {"state":"Texas","age":11.0}, null, {"state":"Alaska","age":"12"}]
+        """);
+
+    for (String selector : List.of("state = 'Alaska'", "age = 11", "address.city LIKE 'J%'", "age + 1 > 11")) {
+      JsonElement query = JsonParser.parseString("[\"selector\", \"" + selector + "\"]");
+      Assertions.assertEquals(translating.compile(query).apply(data), executing.compile(query).apply(data), selector);
+    }
+    Assertions.assertEquals(JsonParser.parseString("""
+        [{"state":"Alaska","age":10,"address":{"city":"Juneau"}},{"state":"Alaska","age":"12"}]
+        """), executing.compile(JsonParser.parseString("""
+        ["selector", "state = 'Alaska'"]
+        """)).apply(data));
+  }
+
+  @Test
+  void selectorFunctionUsesTheTranslation() {
+    JsonQueryCompiler translating = new JsonQueryCompiler(FunctionRegistry.builtIns(),
+        CompilerOptions.defaults().withSelectorTranslation(true));
+    JsonElement data = JsonParser.parseString("""
+        [{"state":"Alaska","age":10}, 123, "x", {"state":"Texas","age":11}, null, {"state":"Alaska","age":12}]
+        """);
+
+    Assertions.assertEquals(JsonParser.parseString("""
+        [{"state":"Alaska","age":10},{"state":"Alaska","age":12}]
+        """), translating.compile(JsonParser.parseString("""
+        ["selector", "state = 'Alaska'"]
+        """)).apply(data));
+    Assertions.assertTrue(translating.compile(JsonParser.parseString("""
+        ["selector", "age > 100"]
+        """)).apply(JsonParser.parseString("""
+        {"age":4}
+        """)).isJsonNull());
+  }
+}
@@ -0,0 +1,104 @@
+/*
+ *
+ *  Copyright [ 2020 - 2024 ] Matthew Buckton
+ *  Copyright [ 2024 - 2025 ] MapsMessaging B.V.
+ *
+ *  Licensed under the Apache License, Version 2.0 with the Commons Clause
+ *  (the "License"); you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at:
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *      https://commonsclause.com/
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.mapsmessaging.jsonquery.functions.matcher;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import io.mapsmessaging.jsonquery.JsonQueryCompiler;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.function.Function;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+class RegexArgumentsTest {
+
+  private final JsonQueryCompiler compiler = JsonQueryCompiler.createDefault();
+
+  private static JsonElement json(String text) {
+    return JsonParser.parseString(text);
+  }
+
+  @Test
+  void literalPatternAndFlagsAreCompiledOnce() {
+    RegexPatternCache.clear();
+    Function<JsonElement, CompiledRegex> regex = RegexArguments.compile(json("\"^a+$\""), json("\"i\""), compiler);
+
+    CompiledRegex first = regex.apply(json("{}"));
+    Assertions.assertSame(first, regex.apply(json("{}")));
+    Assertions.assertEquals("^a+$", first.getPattern().pattern());
+    Assertions.assertEquals(Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE, first.getPattern().flags());
+    Assertions.assertEquals(0, RegexPatternCache.size());
+  }
+
+  @Test
+  void dynamicPatternsComeFromTheBoundedCache() {
+    RegexPatternCache.clear();
+    Function<JsonElement, CompiledRegex> regex =
+        RegexArguments.compile(json("[\"get\",\"pattern\"]"), json("[\"get\",\"flags\"]"), compiler);
+
+    CompiledRegex first = regex.apply(json("{\"pattern\":\"b+\",\"flags\":\"m\"}"));
+    Assertions.assertSame(first, regex.apply(json("{\"pattern\":\"b+\",\"flags\":\"m\"}")));
+    Assertions.assertTrue(RegexPatternCache.contains("b+", Pattern.MULTILINE));
+    Assertions.assertNotSame(first, regex.apply(json("{\"pattern\":\"b+\",\"flags\":\"s\"}")));
+
+    for (int i = 0; i < RegexPatternCache.MAXIMUM_SIZE * 2; i++) {
+      regex.apply(json("{\"pattern\":\"p" + i + "\",\"flags\":\"\"}"));
+    }
+    Assertions.assertTrue(RegexPatternCache.size() <= RegexPatternCache.MAXIMUM_SIZE);
+    Assertions.assertTrue(RegexPatternCache.contains("p" + (RegexPatternCache.MAXIMUM_SIZE * 2 - 1), 0));
+  }
+
+  @Test
+  void invalidLiteralsStillFailAtEvaluation() {
+    Function<JsonElement, JsonElement> badPattern = compiler.compile(json("""
+        ["regex", ["get","text"], "(a"]
+        """));
+    PatternSyntaxException expected =
+        Assertions.assertThrows(PatternSyntaxException.class, () -> Pattern.compile("(a"));
+    PatternSyntaxException actual =
+        Assertions.assertThrows(PatternSyntaxException.class, () -> badPattern.apply(json("{\"text\":\"a\"}")));
+    Assertions.assertEquals(expected.getMessage(), actual.getMessage());
+
+    Function<JsonElement, JsonElement> badFlags = compiler.compile(json("""
+        ["match", ["get","text"], "a", "q"]
+        """));
+    IllegalArgumentException flagError =
+        Assertions.assertThrows(IllegalArgumentException.class, () -> RegexFunctionFlags.parseFlags("q"));
+    Assertions.assertEquals(flagError.getMessage(), Assertions.assertThrows(IllegalArgumentException.class,
+        () -> badFlags.apply(json("{\"text\":\"a\"}"))).getMessage());
+  }
+
+  @Test
+  void regexDoesNotParseNamedGroups() {
+    RegexPatternCache.clear();
+    JsonElement message = json("{\"text\":\"ab\",\"pattern\":\"(?<first>a)b\"}");
+
+    Assertions.assertTrue(compiler.compile(json("[\"regex\", [\"get\",\"text\"], [\"get\",\"pattern\"]]"))
+        .apply(message).getAsBoolean());
+    CompiledRegex cached = RegexPatternCache.get("(?<first>a)b", 0);
+    Assertions.assertFalse(cached.hasParsedNamedGroups());
+
+    JsonElement match = compiler.compile(json("[\"match\", [\"get\",\"text\"], [\"get\",\"pattern\"]]")).apply(message);
+    Assertions.assertEquals("a", match.getAsJsonObject().getAsJsonObject("namedGroups").get("first").getAsString());
+    Assertions.assertTrue(cached.hasParsedNamedGroups());
+  }
+}
@@ -0,0 +1,141 @@
+/*
+ *
+ *  Copyright [ 2020 - 2024 ] Matthew Buckton
+ *  Copyright [ 2024 - 2025 ] MapsMessaging B.V.
+ *
+ *  Licensed under the Apache License, Version 2.0 with the Commons Clause
+ *  (the "License"); you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at:
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *      https://commonsclause.com/
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.mapsmessaging.jsonquery.index;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import io.mapsmessaging.jsonquery.JsonQueryCompiler;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+class SubscriptionMatcherTest {
+
+  private static SubscriptionMatcher<String> subscribe(JsonQueryCompiler compiler, Map<String, String> predicates) {
+    SubscriptionMatcher<String> matcher = new SubscriptionMatcher<>(compiler);
+    predicates.forEach((id, predicate) -> matcher.add(id, JsonParser.parseString("[\"filter\", " + predicate + "]")));
+    return matcher;
+  }
+
+  /**
+   * Checks the matcher against the expected ids and against running every filter on its own.
+   */
+  private static void assertMatches(JsonQueryCompiler compiler, SubscriptionMatcher<String> matcher,
+                                    Map<String, String> predicates, String message, Set<String> expected) {
+    JsonElement data = JsonParser.parseString(message);
+    JsonArray single = new JsonArray();
+    single.add(data);
+    Set<String> evaluated = new TreeSet<>();
+    predicates.forEach((id, predicate) -> {
+      JsonElement filter = JsonParser.parseString("[\"filter\", " + predicate + "]");
+      if (!compiler.compile(filter).apply(single).getAsJsonArray().isEmpty()) {
+        evaluated.add(id);
+      }
+    });
+    Assertions.assertEquals(new TreeSet<>(expected), evaluated, "evaluated " + message);
+    Assertions.assertEquals(new TreeSet<>(expected), new TreeSet<>(matcher.match(data)), "matched " + message);
+  }
+
+  @Test
+  void rangeThresholdsOnOnePath() {
+    JsonQueryCompiler compiler = JsonQueryCompiler.createDefault();
+    Map<String, String> predicates = Map.of(
+        "gt30", "[\"gt\", [\"get\",\"age\"], 30]",
+        "gte30", "[\"gte\", [\"get\",\"age\"], 30]",
+        "lt30", "[\"lt\", [\"get\",\"age\"], 30]",
+        "lte30", "[\"lte\", [\"get\",\"age\"], 30]",
+        "over18", "[\"lt\", 18, [\"get\",\"age\"]]",
+        "band", "[\"and\", [\"gte\", [\"get\",\"age\"], 20], [\"lt\", [\"get\",\"age\"], 40]]");
+    SubscriptionMatcher<String> matcher = subscribe(compiler, predicates);
+
+    // Every threshold lives on the one age path, which is read once per message
+    Assertions.assertEquals(1, matcher.getIndexedPathCount());
+    assertMatches(compiler, matcher, predicates, "{\"age\":29}", Set.of("lt30", "lte30", "over18", "band"));
+    assertMatches(compiler, matcher, predicates, "{\"age\":30}", Set.of("gte30", "lte30", "over18", "band"));
+    assertMatches(compiler, matcher, predicates, "{\"age\":30.0}", Set.of("gte30", "lte30", "over18", "band"));
+    assertMatches(compiler, matcher, predicates, "{\"age\":31}", Set.of("gt30", "gte30", "over18", "band"));
+    assertMatches(compiler, matcher, predicates, "{\"age\":40}", Set.of("gt30", "gte30", "over18"));
+    assertMatches(compiler, matcher, predicates, "{\"age\":18}", Set.of("lt30", "lte30"));
+    // Values of another type and missing values fall outside every range
+    assertMatches(compiler, matcher, predicates, "{\"age\":\"30\"}", Set.of());
+    assertMatches(compiler, matcher, predicates, "{}", Set.of());
+  }
+
+  @Test
+  void equalityMembershipAndRangesShareAPath() {
+    JsonQueryCompiler compiler = JsonQueryCompiler.createDefault();
+    Map<String, String> predicates = Map.of(
+        "alaska", "[\"eq\", [\"get\",\"state\"], \"Alaska\"]",
+        "listed", "[\"in\", [\"get\",\"state\"], [\"array\", \"Texas\", \"Ohio\"]]",
+        "afterN", "[\"gt\", [\"get\",\"state\"], \"N\"]",
+        "alaskaOrOld", "[\"or\", [\"eq\", [\"get\",\"state\"], \"Alaska\"], [\"gt\", [\"get\",\"age\"], 35]]",
+        "notAlaska", "[\"not\", [\"eq\", [\"get\",\"state\"], \"Alaska\"]]");
+    SubscriptionMatcher<String> matcher = subscribe(compiler, predicates);
+
+    Assertions.assertEquals(2, matcher.getIndexedPathCount());
+    assertMatches(compiler, matcher, predicates, "{\"state\":\"Alaska\",\"age\":40}", Set.of("alaska", "alaskaOrOld"));
+    assertMatches(compiler, matcher, predicates, "{\"state\":\"Texas\",\"age\":20}", Set.of("listed", "afterN", "notAlaska"));
+    assertMatches(compiler, matcher, predicates, "{\"state\":\"Ohio\",\"age\":36}",
+        Set.of("listed", "afterN", "alaskaOrOld", "notAlaska"));
+    assertMatches(compiler, matcher, predicates, "{\"state\":\"Maine\"}", Set.of("notAlaska"));
+    assertMatches(compiler, matcher, predicates, "{\"state\":5,\"age\":50}", Set.of("alaskaOrOld", "notAlaska"));
+    assertMatches(compiler, matcher, predicates, "{\"age\":10}", Set.of("notAlaska"));
+  }
+
+  @Test
+  void addReplacesAndRemoveDrops() {
+    SubscriptionMatcher<String> matcher = SubscriptionMatcher.createDefault();
+    JsonElement message = JsonParser.parseString("""
+        {"state":"Alaska","age":40}
+        """);
+
+    matcher.add("a", JsonParser.parseString("""
+        ["filter", ["eq", ["get","state"], "Texas"]]
+        """));
+    matcher.add("b", JsonParser.parseString("""
+        ["filter", ["gt", ["get","age"], 21]]
+        """));
+    Assertions.assertEquals(List.of("b"), matcher.match(message));
+
+    matcher.add("a", JsonParser.parseString("""
+        ["filter", ["eq", ["get","state"], "Alaska"]]
+        """));
+    Assertions.assertEquals(Set.of("a", "b"), new HashSet<>(matcher.match(message)));
+
+    Assertions.assertTrue(matcher.remove("b"));
+    Assertions.assertFalse(matcher.remove("b"));
+    Assertions.assertEquals(List.of("a"), matcher.match(message));
+    Assertions.assertEquals(1, matcher.size());
+  }
+
+  @Test
+  void invalidQueryIsRejected() {
+    SubscriptionMatcher<String> matcher = SubscriptionMatcher.createDefault();
+    Assertions.assertThrows(IllegalArgumentException.class,
+        () -> matcher.add("bad", JsonParser.parseString("[\"eq\", [\"get\",\"a\"]]")));
+    Assertions.assertEquals(0, matcher.size());
+  }
+}
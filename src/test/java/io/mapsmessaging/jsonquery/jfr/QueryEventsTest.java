@@ -0,0 +1,123 @@
+/*
+ *
+ *  Copyright [ 2020 - 2024 ] Matthew Buckton
+ *  Copyright [ 2024 - 2025 ] MapsMessaging B.V.
+ *
+ *  Licensed under the Apache License, Version 2.0 with the Commons Clause
+ *  (the "License"); you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at:
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *      https://commonsclause.com/
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.mapsmessaging.jsonquery.jfr;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import io.mapsmessaging.jsonquery.CompilerOptions;
+import io.mapsmessaging.jsonquery.JsonQueryCompiler;
+import io.mapsmessaging.jsonquery.JsonQueryParser;
+import io.mapsmessaging.jsonquery.functions.FunctionRegistry;
+import io.mapsmessaging.jsonquery.functions.PredicateExpression;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Function;
+
+class QueryEventsTest {
+
+  private static List<RecordedEvent> record(Runnable work) throws IOException {
+    Path file = Files.createTempFile("jsonquery", ".jfr");
+    try (Recording recording = new Recording()) {
+      recording.enable("io.mapsmessaging.jsonquery.Parse");
+      recording.enable("io.mapsmessaging.jsonquery.Compile");
+      recording.enable("io.mapsmessaging.jsonquery.Execute");
+      recording.enable("io.mapsmessaging.jsonquery.SlowQuery").withThreshold(Duration.ZERO);
+      recording.start();
+      work.run();
+      recording.stop();
+      recording.dump(file);
+      return RecordingFile.readAllEvents(file);
+    } finally {
+      Files.deleteIfExists(file);
+    }
+  }
+
+  private static List<RecordedEvent> ofType(List<RecordedEvent> events, String name) {
+    return events.stream()
+        .filter(event -> event.getEventType().getName().equals("io.mapsmessaging.jsonquery." + name))
+        .toList();
+  }
+
+  @Test
+  void parseCompileAndExecuteAreRecorded() throws IOException {
+    JsonQueryCompiler compiler = new JsonQueryCompiler(FunctionRegistry.builtIns(),
+        CompilerOptions.defaults().withFlightRecorderEvents(true));
+    JsonElement data = JsonParser.parseString("""
+        [{"age":30},{"age":12},{"age":3}]
+        """);
+
+    List<RecordedEvent> events = record(() -> {
+      Function<JsonElement, JsonElement> query = compiler.compile(JsonQueryParser.parse("filter(.age > 10)"));
+      Assertions.assertEquals(2, query.apply(data).getAsJsonArray().size());
+      Assertions.assertThrows(IllegalArgumentException.class, () -> query.apply(JsonParser.parseString("{}")));
+    });
+
+    Assertions.assertEquals(1, ofType(events, "Parse").size());
+    Assertions.assertEquals("filter(.age > 10)", ofType(events, "Parse").get(0).getString("query"));
+
+    // Only the outermost compile is recorded, not the nested argument compiles
+    List<RecordedEvent> compiles = ofType(events, "Compile");
+    Assertions.assertEquals(1, compiles.size());
+    String queryText = compiles.get(0).getString("query");
+    Assertions.assertTrue(queryText.startsWith("[\"filter\""));
+
+    List<RecordedEvent> executions = ofType(events, "Execute");
+    Assertions.assertEquals(2, executions.size());
+    Assertions.assertEquals(queryText.hashCode(), executions.get(0).getInt("queryHash"));
+    Assertions.assertEquals(3, executions.get(0).getInt("inputElements"));
+    Assertions.assertEquals(2, executions.get(0).getInt("resultElements"));
+    Assertions.assertNull(executions.get(0).getString("error"));
+    Assertions.assertEquals(IllegalArgumentException.class.getName(), executions.get(1).getString("error"));
+
+    List<RecordedEvent> slow = ofType(events, "SlowQuery");
+    Assertions.assertEquals(2, slow.size());
+    Assertions.assertEquals(queryText, slow.get(0).getString("query"));
+  }
+
+  @Test
+  void executionIsOnlyTracedWhenEnabled() throws IOException {
+    JsonElement query = JsonParser.parseString("""
+        ["gt", ["get","age"], 10]
+        """);
+
+    List<RecordedEvent> events = record(() -> {
+      Function<JsonElement, JsonElement> plain = JsonQueryCompiler.createDefault().compile(query);
+      Function<JsonElement, JsonElement> traced = new JsonQueryCompiler(FunctionRegistry.builtIns(),
+          CompilerOptions.defaults().withFlightRecorderEvents(true)).compile(query);
+      Assertions.assertTrue(traced instanceof PredicateExpression);
+      plain.apply(JsonParser.parseString("{\"age\":1}"));
+      ((PredicateExpression) traced).test(JsonParser.parseString("{\"age\":11}"));
+    });
+
+    Assertions.assertEquals(2, ofType(events, "Compile").size());
+    List<RecordedEvent> executions = ofType(events, "Execute");
+    Assertions.assertEquals(1, executions.size());
+    Assertions.assertEquals(1, executions.get(0).getInt("inputElements"));
+  }
+}
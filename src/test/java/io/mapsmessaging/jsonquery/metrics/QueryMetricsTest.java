@@ -0,0 +1,103 @@
+/*
+ *
+ *  Copyright [ 2020 - 2024 ] Matthew Buckton
+ *  Copyright [ 2024 - 2025 ] MapsMessaging B.V.
+ *
+ *  Licensed under the Apache License, Version 2.0 with the Commons Clause
+ *  (the "License"); you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at:
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *      https://commonsclause.com/
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.mapsmessaging.jsonquery.metrics;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import io.mapsmessaging.jsonquery.CachingJsonQueryCompiler;
+import io.mapsmessaging.jsonquery.CompilerOptions;
+import io.mapsmessaging.jsonquery.JsonQueryCompiler;
+import io.mapsmessaging.jsonquery.functions.FunctionRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+class QueryMetricsTest {
+
+  @Test
+  void histogramPercentilesStayWithinPrecision() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (long value = 1; value <= 100_000; value++) {
+      histogram.record(value * 1000);
+    }
+
+    Assertions.assertEquals(100_000, histogram.getCount());
+    Assertions.assertEquals(100_000_000, histogram.getMax());
+    Assertions.assertEquals(50_000_500, histogram.getMean(), 1.0);
+    for (double percentile : new double[]{1, 50, 90, 99, 99.9}) {
+      double expected = percentile * 1_000_000;
+      Assertions.assertEquals(expected, histogram.getValueAtPercentile(percentile), expected * 0.035);
+    }
+    Assertions.assertEquals(100_000_000, histogram.getValueAtPercentile(100));
+
+    histogram.reset();
+    Assertions.assertEquals(0, histogram.getCount());
+    Assertions.assertEquals(0, histogram.getValueAtPercentile(99));
+  }
+
+  @Test
+  void taggedQueriesReportExecutionsAndErrors() {
+    InMemoryQueryMetrics metrics = new InMemoryQueryMetrics();
+    JsonQueryCompiler compiler = new JsonQueryCompiler(FunctionRegistry.builtIns(),
+        CompilerOptions.defaults().withMetrics(metrics));
+    Function<JsonElement, JsonElement> adults = compiler.compile("adults", JsonParser.parseString("""
+        ["filter", ["gte", ["get","age"], 21]]
+        """));
+
+    Assertions.assertEquals(JsonParser.parseString("[{\"age\":30}]"),
+        adults.apply(JsonParser.parseString("[{\"age\":30},{\"age\":12},{\"age\":3}]")));
+    Assertions.assertThrows(IllegalArgumentException.class, () -> adults.apply(JsonParser.parseString("{}")));
+
+    QueryStatistics statistics = metrics.get("adults");
+    Assertions.assertEquals(1, statistics.getCompileTime().getCount());
+    Assertions.assertEquals(2, statistics.getLatency().getCount());
+    Assertions.assertEquals(3, statistics.getInputElements());
+    Assertions.assertEquals(1, statistics.getResultElements());
+    Assertions.assertEquals(Map.of(IllegalArgumentException.class.getName(), 1L), statistics.getErrorCounts());
+
+    // Untagged queries are not measured
+    compiler.compile(JsonParser.parseString("[\"get\",\"age\"]")).apply(JsonParser.parseString("{}"));
+    Assertions.assertEquals(Set.of("adults"), metrics.getQueryIds());
+  }
+
+  @Test
+  void cacheLookupsAreCountedPerQueryId() {
+    InMemoryQueryMetrics metrics = new InMemoryQueryMetrics();
+    CachingJsonQueryCompiler cache = new CachingJsonQueryCompiler(new JsonQueryCompiler(FunctionRegistry.builtIns(),
+        CompilerOptions.defaults().withMetrics(metrics)));
+
+    Function<JsonElement, JsonElement> first = cache.compile("sub-1", ".age");
+    Function<JsonElement, JsonElement> second = cache.compile("sub-2", ".age");
+    cache.compile("sub-2", ".age");
+    first.apply(JsonParser.parseString("{\"age\":1}"));
+    second.apply(JsonParser.parseString("{\"age\":2}"));
+
+    Assertions.assertEquals(0.0, metrics.get("sub-1").getCacheHitRatio());
+    Assertions.assertEquals(1, metrics.get("sub-1").getCompileTime().getCount());
+    Assertions.assertEquals(1.0, metrics.get("sub-2").getCacheHitRatio());
+    Assertions.assertEquals(0, metrics.get("sub-2").getCompileTime().getCount());
+    Assertions.assertEquals(1, metrics.get("sub-1").getLatency().getCount());
+    Assertions.assertEquals(1, metrics.get("sub-2").getLatency().getCount());
+    Assertions.assertEquals(1, cache.size());
+  }
+}
@@ -0,0 +1,114 @@
+/*
+ *
+ *  Copyright [ 2020 - 2024 ] Matthew Buckton
+ *  Copyright [ 2024 - 2025 ] MapsMessaging B.V.
+ *
+ *  Licensed under the Apache License, Version 2.0 with the Commons Clause
+ *  (the "License"); you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at:
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *      https://commonsclause.com/
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.mapsmessaging.jsonquery.projection;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonReader;
+import io.mapsmessaging.jsonquery.JsonQueryCompiler;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+class CompiledQueryTest {
+
+  private static final String MESSAGE = """
+      {"status":"active","id":7,"payload":{"blob":[1,2,{"deep":"x"}],"size":3},
+       "items":[{"name":"a","qty":2,"extra":{"k":1}},{"name":"b","qty":5,"extra":[1,2]}]}
+      """;
+
+  private static JsonElement pruned(JsonQueryCompiler compiler, String query) throws IOException {
+    PathTrie paths = PathAnalyzer.analyse(compiler, JsonParser.parseString(query));
+    return PrunedReader.read(new JsonReader(new StringReader(MESSAGE)), paths);
+  }
+
+  @Test
+  void payloadQueriesMatchParsedTrees() {
+    JsonQueryCompiler compiler = JsonQueryCompiler.createDefault();
+    byte[] bytes = MESSAGE.getBytes(StandardCharsets.UTF_8);
+    ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length).put(bytes).flip();
+
+    for (String query : List.of(
+        """
+            ["eq", ["get","status"], "active"]
+            """,
+        """
+            ["pipe", ["get","items"], ["filter", ["gt", ["get","qty"], 3]], ["pick", "name"]]
+            """,
+        """
+            ["pipe", ["get","items"], ["map", ["get","extra"]]]
+            """,
+        """
+            ["pipe", ["get","payload"], ["size"]]
+            """,
+        """
+            ["get","payload","blob",2]
+            """,
+        """
+            ["keys"]
+            """)) {
+      JsonElement ast = JsonParser.parseString(query);
+      JsonElement expected = compiler.compile(ast).apply(JsonParser.parseString(MESSAGE));
+      CompiledQuery compiled = CompiledQuery.compile(compiler, ast);
+      Assertions.assertEquals(expected, compiled.apply(bytes), query);
+      Assertions.assertEquals(expected, compiled.apply(direct), query);
+      Assertions.assertEquals(0, direct.position());
+    }
+  }
+
+  @Test
+  void unreadMembersAreSkipped() throws IOException {
+    JsonQueryCompiler compiler = JsonQueryCompiler.createDefault();
+
+    Assertions.assertEquals(JsonParser.parseString("""
+        {"status":"active"}
+        """), pruned(compiler, """
+        ["eq", ["get","status"], "active"]
+        """));
+    Assertions.assertEquals(JsonParser.parseString("""
+        {"items":[{"name":"a","qty":2},{"name":"b","qty":5}]}
+        """), pruned(compiler, """
+        ["pipe", ["get","items"], ["filter", ["gt", ["get","qty"], 3]], ["pick", "name"]]
+        """));
+    // Whatever the query returns as is has to be read in full
+    Assertions.assertEquals(JsonParser.parseString(MESSAGE), pruned(compiler, """
+        ["filter", ["eq", ["get","status"], "active"]]
+        """));
+  }
+
+  @Test
+  void emptyAndMalformedPayloadsBehaveLikeTheParser() {
+    CompiledQuery compiled = CompiledQuery.compile(JsonQueryCompiler.createDefault(), JsonParser.parseString("""
+        ["get","a"]
+        """));
+
+    Assertions.assertTrue(compiled.apply(new byte[0]).isJsonNull());
+    Assertions.assertThrows(JsonSyntaxException.class,
+        () -> compiled.apply("{\"a\":1} trailing".getBytes(StandardCharsets.UTF_8)));
+    Assertions.assertThrows(JsonSyntaxException.class,
+        () -> compiled.apply("{\"a\":".getBytes(StandardCharsets.UTF_8)));
+  }
+}
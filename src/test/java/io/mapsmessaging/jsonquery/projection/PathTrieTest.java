@@ -0,0 +1,85 @@
+/*
+ *
+ *  Copyright [ 2020 - 2024 ] Matthew Buckton
+ *  Copyright [ 2024 - 2025 ] MapsMessaging B.V.
+ *
+ *  Licensed under the Apache License, Version 2.0 with the Commons Clause
+ *  (the "License"); you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at:
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *      https://commonsclause.com/
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.mapsmessaging.jsonquery.projection;
+
+import com.google.gson.JsonParser;
+import io.mapsmessaging.jsonquery.JsonQueryCompiler;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+class PathTrieTest {
+
+  private final JsonQueryCompiler compiler = JsonQueryCompiler.createDefault();
+
+  private PathTrie paths(String query) {
+    return PathTrie.of(compiler, JsonParser.parseString(query));
+  }
+
+  @Test
+  void getChainsThroughPipeFilterAndPick() {
+    PathTrie paths = paths("""
+        ["pipe", ["get","orders"], ["filter", ["gt", ["get","total"], 10]], ["sort", ["get","date"]], ["pick", "id"]]
+        """);
+
+    Assertions.assertEquals(Set.of("orders"), paths.getMembers().keySet());
+    PathTrie order = paths.find("orders").getElements();
+    Assertions.assertEquals(Set.of("total", "date", "id"), order.getMembers().keySet());
+    Assertions.assertTrue(order.find("total").isWhole());
+    Assertions.assertNull(order.find("customer"));
+    Assertions.assertFalse(paths.isWhole());
+  }
+
+  @Test
+  void existsOnlyNeedsPresenceAndGroupedSumsOnlyTheirFields() {
+    PathTrie exists = paths("""
+        ["exists", ["get","header","trace"]]
+        """);
+    Assertions.assertTrue(exists.find("header").find("trace").isPresenceOnly());
+
+    PathTrie grouped = paths("""
+        ["pipe", ["groupBy", ["get","region"]], ["mapValues", ["pipe", ["map", ["get","amount"]], ["sum"]]]]
+        """);
+    Assertions.assertEquals(Set.of("region", "amount"), grouped.getElements().getMembers().keySet());
+    Assertions.assertFalse(grouped.getElements().isWhole());
+
+    // Unknown shapes keep everything
+    Assertions.assertTrue(paths("""
+        ["keys"]
+        """).isWhole());
+  }
+
+  @Test
+  void mayAffectFollowsTheReadPaths() {
+    PathTrie paths = paths("""
+        ["and", ["eq", ["get","status"], "active"], ["gt", ["get","items",0,"qty"], 3]]
+        """);
+
+    Assertions.assertTrue(paths.mayAffect(List.of("status")));
+    Assertions.assertTrue(paths.mayAffect(List.of("status", "nested")));
+    Assertions.assertTrue(paths.mayAffect(List.of("items", 4, "qty")));
+    Assertions.assertFalse(paths.mayAffect(List.of("items", 4, "name")));
+    Assertions.assertFalse(paths.mayAffect(List.of("payload")));
+    Assertions.assertTrue(paths.mayAffect(List.of()));
+    Assertions.assertThrows(IllegalArgumentException.class, () -> paths.mayAffect(List.of(true)));
+  }
+}
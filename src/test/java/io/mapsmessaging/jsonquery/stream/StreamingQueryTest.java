@@ -0,0 +1,147 @@
+/*
+ *
+ *  Copyright [ 2020 - 2024 ] Matthew Buckton
+ *  Copyright [ 2024 - 2025 ] MapsMessaging B.V.
+ *
+ *  Licensed under the Apache License, Version 2.0 with the Commons Clause
+ *  (the "License"); you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at:
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *      https://commonsclause.com/
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package io.mapsmessaging.jsonquery.stream;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import io.mapsmessaging.jsonquery.JsonQueryCompiler;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+class StreamingQueryTest {
+
+  private static final String DOCUMENT = """
+      {
+        "meta": {"ignored": [1, 2, 3]},
+        "people": [
+          {"first":"Chris","age":23,"address":{"state":"Alaska"}},
+          {"first":"Joe","age":32,"address":{"state":"Alaska"}},
+          {"first":"Emily","age":19,"address":{"state":"Texas"}},
+          {"first":"Pat","age":40,"address":{"state":"Alaska"}}
+        ]
+      }
+      """;
+
+  private static JsonElement runStreaming(String query, String document) throws IOException {
+    JsonQueryCompiler compiler = JsonQueryCompiler.createDefault();
+    StreamingQuery streaming = StreamingQuery.compile(compiler, JsonParser.parseString(query));
+    return streaming.execute(new JsonReader(new StringReader(document)));
+  }
+
+  private static JsonElement runTree(String query, String document) {
+    JsonQueryCompiler compiler = JsonQueryCompiler.createDefault();
+    return compiler.compile(JsonParser.parseString(query)).apply(JsonParser.parseString(document));
+  }
+
+  @Test
+  void elementWiseStagesMatchTreeEvaluation() throws IOException {
+    String query = """
+        ["pipe",
+          ["get", "people"],
+          ["filter", ["eq", ["get","address","state"], "Alaska"]],
+          ["pick", "first", "age"]
+        ]
+        """;
+
+    Assertions.assertEquals(runTree(query, DOCUMENT), runStreaming(query, DOCUMENT));
+  }
+
+  @Test
+  void elementStagesKeepTheirArraySemantics() throws IOException {
+    String document = """
+        {"items": [{"v":1,"n":{"x":"a"}}, 2, "text", null, {"v":0}, {"v":"s","n":{}}, [1]]}
+        """;
+    String[] queries = {
+        """
+        ["pipe", ["get","items"], ["filter", ["get","v"]], ["map", ["get","n"]], ["pick", "x"]]
+        """,
+        """
+        ["pipe", ["get","items"], ["map", ["get","v"]], ["filter", ["get"]]]
+        """,
+        """
+        ["pipe", ["get","items"], ["pick", "v"], ["limit", 4], ["map", ["get","v"]]]
+        """
+    };
+    for (String query : queries) {
+      Assertions.assertEquals(runTree(query, document), runStreaming(query, document), query);
+    }
+  }
+
+  @Test
+  void bufferingStagesRunOnFilteredElements() throws IOException {
+    String query = """
+        ["pipe",
+          ["get", "people"],
+          ["filter", ["gt", ["get","age"], 20]],
+          ["sort", ["get","age"], "desc"],
+          ["map", ["get","first"]]
+        ]
+        """;
+
+    JsonElement expected = JsonParser.parseString("""
+        ["Pat","Joe","Chris"]
+        """);
+    Assertions.assertEquals(expected, runStreaming(query, DOCUMENT));
+    Assertions.assertEquals(runTree(query, DOCUMENT), runStreaming(query, DOCUMENT));
+  }
+
+  @Test
+  void limitStopsReadingInput() throws IOException {
+    // Everything after the second element is malformed and must never be read
+    String document = "[1, 2, 3, this is not json";
+    String query = """
+        ["pipe", ["map", ["multiply", ["get"], 10]], ["limit", 2]]
+        """;
+
+    Assertions.assertEquals(JsonParser.parseString("[10,20]"), runStreaming(query, document));
+  }
+
+  @Test
+  void missingPathAndNonArrayValuesFallBackToTree() throws IOException {
+    Assertions.assertEquals(runTree("""
+        ["pipe", ["get", "missing"], ["map", ["get","age"]]]
+        """, DOCUMENT), runStreaming("""
+        ["pipe", ["get", "missing"], ["map", ["get","age"]]]
+        """, DOCUMENT));
+
+    Assertions.assertEquals(JsonParser.parseString("[1,2,3]"), runStreaming("""
+        ["get", "meta", "ignored"]
+        """, DOCUMENT));
+  }
+
+  @Test
+  void writesResultsIncrementally() throws IOException {
+    JsonQueryCompiler compiler = JsonQueryCompiler.createDefault();
+    StreamingQuery streaming = StreamingQuery.compile(compiler, JsonParser.parseString("""
+        ["pipe", ["get","people"], ["map", ["get","first"]], ["limit", 2]]
+        """));
+
+    StringWriter output = new StringWriter();
+    streaming.execute(new JsonReader(new StringReader(DOCUMENT)), new JsonWriter(output));
+
+    Assertions.assertEquals("[\"Chris\",\"Joe\"]", output.toString());
+  }
+}